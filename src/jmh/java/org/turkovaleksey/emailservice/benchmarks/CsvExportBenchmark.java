@@ -0,0 +1,52 @@
+package org.turkovaleksey.emailservice.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.turkovaleksey.emailservice.repositories.model.Email;
+import org.turkovaleksey.emailservice.services.impl.EmailServiceImpl;
+
+import java.io.OutputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CSV encoding of synthetic emails: the materializing {@code convertListAsCsv}
+ * against the streaming {@code writeEmailsAsCsv} writing to a discarding stream.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class CsvExportBenchmark {
+    @Param({"10000", "1000000", "10000000"})
+    private int rows;
+    private List<Email> emails;
+    private EmailServiceImpl emailService;
+
+    @Setup
+    public void setUp() {
+        emails = SyntheticEmails.list(rows);
+        emailService = Services.emailService(SyntheticEmails.repository(rows), false);
+    }
+
+    @Benchmark
+    public String convertListAsCsv() {
+        return emailService.convertListAsCsv(emails);
+    }
+
+    @Benchmark
+    public void writeEmailsAsCsv() {
+        emailService.writeEmailsAsCsv(OutputStream.nullOutputStream());
+    }
+}
@@ -0,0 +1,49 @@
+package org.turkovaleksey.emailservice.benchmarks;
+
+import java.lang.reflect.Proxy;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.time.LocalDate;
+
+/**
+ * Mocked emails {@link ResultSet} over in-memory rows with the columns {@code id, create_date, email}.
+ * Only the methods used by row mappers are answered, both mappers pay the same proxy overhead.
+ */
+public final class InMemoryResultSet {
+    private static final String[] COLUMNS = {"id", "create_date", "email"};
+
+    private InMemoryResultSet() {
+    }
+
+    public static ResultSet of(long[] ids, LocalDate[] createDates, String[] emails) {
+        ResultSetMetaData metaData = (ResultSetMetaData) Proxy.newProxyInstance(
+                InMemoryResultSet.class.getClassLoader(), new Class<?>[]{ResultSetMetaData.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "getColumnCount" -> COLUMNS.length;
+                    case "getColumnLabel", "getColumnName" -> COLUMNS[(int) args[0] - 1];
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+        int[] row = {-1};
+        return (ResultSet) Proxy.newProxyInstance(
+                InMemoryResultSet.class.getClassLoader(), new Class<?>[]{ResultSet.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "next" -> ++row[0] < ids.length;
+                    case "beforeFirst" -> {
+                        row[0] = -1;
+                        yield null;
+                    }
+                    case "getRow" -> row[0] + 1;
+                    case "getMetaData" -> metaData;
+                    case "wasNull" -> false;
+                    case "getLong" -> ids[row[0]];
+                    case "getString" -> emails[row[0]];
+                    case "getObject" -> switch ((int) args[0]) {
+                        case 1 -> ids[row[0]];
+                        case 2 -> createDates[row[0]];
+                        case 3 -> emails[row[0]];
+                        default -> throw new IllegalArgumentException("column " + args[0]);
+                    };
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+    }
+}
@@ -0,0 +1,82 @@
+package org.turkovaleksey.emailservice.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.jdbc.core.BeanPropertyRowMapper;
+import org.turkovaleksey.emailservice.repositories.impl.EmailRowMapper;
+import org.turkovaleksey.emailservice.repositories.model.Email;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+import static org.turkovaleksey.emailservice.benchmarks.RowMapperBenchmark.ROWS;
+
+/**
+ * Compares mapping emails rows with the reflective {@code BeanPropertyRowMapper} created per query,
+ * as the repository used to do, against {@link EmailRowMapper} and a row callback that creates no Email.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@OperationsPerInvocation(ROWS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RowMapperBenchmark {
+    static final int ROWS = 10_000;
+    private ResultSet resultSet;
+
+    @Setup
+    public void setUp() {
+        long[] ids = new long[ROWS];
+        LocalDate[] createDates = new LocalDate[ROWS];
+        String[] emails = new String[ROWS];
+        for (int i = 0; i < ROWS; i++) {
+            ids[i] = i + 1;
+            createDates[i] = LocalDate.of(2023, 1, 1).plusDays(i / 100);
+            emails[i] = "email" + i + "@example.com";
+        }
+        resultSet = InMemoryResultSet.of(ids, createDates, emails);
+    }
+
+    @Benchmark
+    public void beanPropertyRowMapper(Blackhole blackhole) throws SQLException {
+        resultSet.beforeFirst();
+        BeanPropertyRowMapper<Email> rowMapper = new BeanPropertyRowMapper<>(Email.class);
+        int rowNum = 0;
+        while (resultSet.next()) {
+            blackhole.consume(rowMapper.mapRow(resultSet, rowNum++));
+        }
+    }
+
+    @Benchmark
+    public void emailRowMapper(Blackhole blackhole) throws SQLException {
+        resultSet.beforeFirst();
+        int rowNum = 0;
+        while (resultSet.next()) {
+            blackhole.consume(EmailRowMapper.INSTANCE.mapRow(resultSet, rowNum++));
+        }
+    }
+
+    @Benchmark
+    public void rowCallback(Blackhole blackhole) throws SQLException {
+        resultSet.beforeFirst();
+        while (resultSet.next()) {
+            blackhole.consume(resultSet.getLong(1));
+            blackhole.consume(resultSet.getObject(2, LocalDate.class));
+            blackhole.consume(resultSet.getString(3));
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package org.turkovaleksey.emailservice.benchmarks;
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.joran.JoranConfigurator;
+import ch.qos.logback.core.joran.spi.JoranException;
+import org.h2.jdbcx.JdbcDataSource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.turkovaleksey.emailservice.repositories.impl.EmailRepositoryImpl;
+import org.turkovaleksey.emailservice.services.impl.EmailServiceImpl;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Full single save path, from {@code EmailServiceImpl.save} through the duplicate filter
+ * and {@code EmailRepositoryImpl} down to an embedded H2 database in PostgreSQL mode.
+ *
+ * <p>
+ * Logging is configured from the application {@code logback-spring.xml} with the files in a temporary
+ * directory and without the console appender, so that the JMH output stays readable. {@code logLevel}
+ * is applied to the service loggers: {@code OFF} measures the save path with logging disabled,
+ * {@code DEBUG} with every debug line handed to the asynchronous appenders.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SaveBenchmark {
+    private static final String SERVICE_PACKAGE = "org.turkovaleksey.emailservice";
+    @Param({"OFF", "DEBUG"})
+    private String logLevel;
+    private Path logDirectory;
+    private NamedParameterJdbcTemplate jdbcTemplate;
+    private EmailServiceImpl emailService;
+    private long sequence;
+
+    @Setup(Level.Trial)
+    public void setUpLogging() throws IOException, JoranException {
+        logDirectory = Files.createTempDirectory("save-benchmark-logs");
+        LoggerContext loggerContext = (LoggerContext) LoggerFactory.getILoggerFactory();
+        loggerContext.reset();
+        loggerContext.putProperty("LOG_PATH", logDirectory.toString());
+        JoranConfigurator configurator = new JoranConfigurator();
+        configurator.setContext(loggerContext);
+        configurator.doConfigure(SaveBenchmark.class.getResource("/logback-spring.xml"));
+        loggerContext.getLogger(Logger.ROOT_LOGGER_NAME).detachAppender("asyncConsole");
+        ch.qos.logback.classic.Level level = ch.qos.logback.classic.Level.toLevel(logLevel);
+        for (Logger logger : loggerContext.getLoggerList()) {
+            if (logger.getName().startsWith(SERVICE_PACKAGE) && logger.getLevel() != null) {
+                logger.setLevel(level);
+            }
+        }
+        loggerContext.getLogger(SERVICE_PACKAGE).setLevel(level);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDownLogging() throws IOException {
+        ((LoggerContext) LoggerFactory.getILoggerFactory()).stop();
+        try (Stream<Path> paths = Files.walk(logDirectory)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:emails;MODE=PostgreSQL;DB_CLOSE_DELAY=-1");
+        jdbcTemplate = new NamedParameterJdbcTemplate(dataSource);
+        jdbcTemplate.getJdbcOperations().execute(
+                "CREATE TABLE emails (id SERIAL PRIMARY KEY, create_date DATE, email VARCHAR(100) UNIQUE)");
+        EmailRepositoryImpl emailRepository = new EmailRepositoryImpl(jdbcTemplate);
+        emailService = Services.emailService(emailRepository, true);
+        sequence = 0;
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() {
+        jdbcTemplate.getJdbcOperations().execute("DROP TABLE emails");
+    }
+
+    @Benchmark
+    public void save() {
+        emailService.save("email" + sequence++ + "@example.com");
+    }
+}
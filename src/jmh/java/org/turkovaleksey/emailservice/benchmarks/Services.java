@@ -0,0 +1,56 @@
+package org.turkovaleksey.emailservice.benchmarks;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.context.ApplicationEventPublisher;
+import org.turkovaleksey.emailservice.repositories.api.IEmailRepository;
+import org.turkovaleksey.emailservice.services.events.EmailsSavedEvent;
+import org.turkovaleksey.emailservice.services.impl.EmailBloomFilter;
+import org.turkovaleksey.emailservice.services.impl.EmailDailyCounts;
+import org.turkovaleksey.emailservice.services.impl.EmailIngestionBuffer;
+import org.turkovaleksey.emailservice.services.impl.EmailMetrics;
+import org.turkovaleksey.emailservice.services.impl.EmailServiceImpl;
+import org.turkovaleksey.emailservice.services.impl.ExportCache;
+import org.turkovaleksey.emailservice.services.impl.ExportSegmentStore;
+import org.turkovaleksey.emailservice.services.impl.ExportSnapshotStore;
+import org.turkovaleksey.emailservice.services.impl.ExportVersionTracker;
+import org.turkovaleksey.emailservice.services.impl.HighWaterMarkTracker;
+import org.turkovaleksey.emailservice.services.impl.ParallelPeriodExporter;
+
+/**
+ * Wires the service layer by hand the same way the application context does,
+ * with ingestion mode disabled, the duplicate filter updated on every save and the export cache
+ * and segment store disabled so every export is read from the repository.
+ */
+public final class Services {
+
+    private Services() {
+    }
+
+    public static EmailServiceImpl emailService(IEmailRepository emailRepository, boolean warmUpDuplicateFilter) {
+        EmailBloomFilter duplicateFilter = new EmailBloomFilter(emailRepository, 1_000_000, 0.01);
+        if (warmUpDuplicateFilter) {
+            duplicateFilter.warmUp();
+        }
+        ExportCache exportCache = new ExportCache(0, 0);
+        ExportVersionTracker exportVersionTracker = new ExportVersionTracker(emailRepository);
+        EmailDailyCounts dailyCounts = new EmailDailyCounts(emailRepository);
+        ExportSegmentStore exportSegmentStore = new ExportSegmentStore(emailRepository, false, System.getProperty("java.io.tmpdir"));
+        ParallelPeriodExporter parallelPeriodExporter = new ParallelPeriodExporter(emailRepository, false, 31, 1, 1, 1,
+                0, System.getProperty("java.io.tmpdir"));
+        ExportSnapshotStore exportSnapshotStore = new ExportSnapshotStore(false, System.getProperty("java.io.tmpdir"), 60, 4);
+        ApplicationEventPublisher eventPublisher = event -> {
+            if (event instanceof EmailsSavedEvent emailsSavedEvent) {
+                duplicateFilter.onEmailsSaved(emailsSavedEvent);
+                exportCache.onEmailsSaved(emailsSavedEvent);
+                exportVersionTracker.onEmailsSaved(emailsSavedEvent);
+                dailyCounts.onEmailsSaved(emailsSavedEvent);
+            }
+        };
+        EmailIngestionBuffer ingestionBuffer = new EmailIngestionBuffer(emailRepository, eventPublisher,
+                false, 1, 1, 1, EmailIngestionBuffer.Backpressure.REJECT, 0, 1);
+        return new EmailServiceImpl(emailRepository, ingestionBuffer, duplicateFilter, eventPublisher,
+                exportCache, exportVersionTracker, exportSegmentStore, parallelPeriodExporter,
+                dailyCounts, exportSnapshotStore, new EmailMetrics(new SimpleMeterRegistry()),
+                new HighWaterMarkTracker(emailRepository, 0));
+    }
+}
@@ -0,0 +1,66 @@
+package org.turkovaleksey.emailservice.benchmarks;
+
+import org.turkovaleksey.emailservice.repositories.api.IEmailRepository;
+import org.turkovaleksey.emailservice.repositories.api.IEmailRowCallback;
+import org.turkovaleksey.emailservice.repositories.model.Email;
+
+import java.lang.reflect.Proxy;
+import java.time.LocalDate;
+import java.util.AbstractList;
+import java.util.List;
+
+/**
+ * Synthetic emails rows for benchmarks. Rows cycle over a fixed pool of distinct emails spread
+ * over 100 rows per day, so generating a row allocates nothing and millions of rows need no memory.
+ */
+public final class SyntheticEmails {
+    private static final int POOL_SIZE = 10_000;
+    private static final Email[] POOL = new Email[POOL_SIZE];
+
+    static {
+        for (int i = 0; i < POOL_SIZE; i++) {
+            POOL[i] = new Email(LocalDate.of(2023, 1, 1).plusDays(i / 100), "email" + i + "@example.com");
+            POOL[i].setId((long) i + 1);
+        }
+    }
+
+    private SyntheticEmails() {
+    }
+
+    /**
+     * Returns a read-only list of the given number of synthetic emails.
+     */
+    public static List<Email> list(int rows) {
+        return new AbstractList<>() {
+            @Override
+            public Email get(int index) {
+                return POOL[index % POOL_SIZE];
+            }
+
+            @Override
+            public int size() {
+                return rows;
+            }
+        };
+    }
+
+    /**
+     * Returns a repository whose streaming methods hand the given number of synthetic rows
+     * to the callback. Any other method throws {@link UnsupportedOperationException}.
+     */
+    public static IEmailRepository repository(int rows) {
+        return (IEmailRepository) Proxy.newProxyInstance(
+                SyntheticEmails.class.getClassLoader(), new Class<?>[]{IEmailRepository.class},
+                (proxy, method, args) -> {
+                    if (method.getName().startsWith("stream")) {
+                        IEmailRowCallback callback = (IEmailRowCallback) args[args.length - 1];
+                        for (int i = 0; i < rows; i++) {
+                            Email email = POOL[i % POOL_SIZE];
+                            callback.processRow(email.getId(), email.getCreateDate(), email.getEmail());
+                        }
+                        return null;
+                    }
+                    throw new UnsupportedOperationException(method.getName());
+                });
+    }
+}
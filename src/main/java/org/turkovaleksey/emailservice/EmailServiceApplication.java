@@ -2,8 +2,18 @@ package org.turkovaleksey.emailservice;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.r2dbc.R2dbcAutoConfiguration;
+import org.springframework.boot.autoconfigure.r2dbc.R2dbcTransactionManagerAutoConfiguration;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
-@SpringBootApplication
+/**
+ * The R2DBC auto-configuration is excluded: the reactive connection pool is only created when the
+ * reactive endpoints are enabled, and a reactive transaction manager would replace the JDBC one.
+ *
+ * @see org.turkovaleksey.emailservice.configs.ReactiveConfig
+ */
+@EnableScheduling
+@SpringBootApplication(exclude = {R2dbcAutoConfiguration.class, R2dbcTransactionManagerAutoConfiguration.class})
 public class EmailServiceApplication {
 	public static void main(String[] args) {
 		SpringApplication.run(EmailServiceApplication.class, args);
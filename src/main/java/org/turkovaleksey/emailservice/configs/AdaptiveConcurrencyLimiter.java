@@ -0,0 +1,110 @@
+package org.turkovaleksey.emailservice.configs;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Concurrency limit adapting to the observed latency of the admitted requests (additive increase,
+ * multiplicative decrease). The limiter keeps a baseline of the latency without queueing: it follows
+ * every faster sample at once and creeps up slowly otherwise, so it also adjusts when the database
+ * gets permanently slower. A request slower than {@code tolerance} times the baseline means requests
+ * queue somewhere, in the connection pool or the database, and the limit is reduced by 10%; otherwise,
+ * while at least half the limit is in use, the limit grows by one request per limit completions.
+ * Requests that failed are released with {@link #release()} and do not take part in the adaptation,
+ * since a rejected or failed request is usually much faster than a save and would drag the baseline down.
+ *
+ * <p>
+ * Admission is a compare-and-set on the in-flight counter; only completions take the lock to update
+ * the limit and the baseline.
+ * </p>
+ */
+public final class AdaptiveConcurrencyLimiter {
+    private static final double BACKOFF_RATIO = 0.9;
+    private static final double BASELINE_DRIFT = 0.01;
+    private final int minLimit;
+    private final int maxLimit;
+    private final double tolerance;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final LongAdder rejected = new LongAdder();
+    private final ReentrantLock lock = new ReentrantLock();
+    private volatile double limit;
+    private double baselineNanos = Double.NaN;
+
+    /**
+     * Instantiates a new Adaptive concurrency limiter.
+     *
+     * @param initialLimit the limit before any latency has been observed
+     * @param minLimit     the lowest limit
+     * @param maxLimit     the highest limit
+     * @param tolerance    the ratio of latency to the baseline at which the limit is reduced
+     */
+    public AdaptiveConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit, double tolerance) {
+        this.minLimit = Math.max(minLimit, 1);
+        this.maxLimit = Math.max(maxLimit, this.minLimit);
+        this.tolerance = Math.max(tolerance, 1.0);
+        this.limit = Math.min(Math.max(initialLimit, this.minLimit), this.maxLimit);
+    }
+
+    /**
+     * Admits a request if fewer requests than the limit are in flight.
+     *
+     * @return {@code true} if the request is admitted and {@link #release(long)} or {@link #release()} must be called when it completes.
+     */
+    public boolean tryAcquire() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= (int) limit) {
+                rejected.increment();
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Completes an admitted request without adapting the limit.
+     */
+    public void release() {
+        inFlight.decrementAndGet();
+    }
+
+    /**
+     * Completes an admitted request and adapts the limit to its latency.
+     *
+     * @param latencyNanos The time the request took.
+     */
+    public void release(long latencyNanos) {
+        int inFlightBefore = inFlight.getAndDecrement();
+        lock.lock();
+        try {
+            if (Double.isNaN(baselineNanos) || latencyNanos < baselineNanos) {
+                baselineNanos = latencyNanos;
+            } else {
+                baselineNanos += (latencyNanos - baselineNanos) * BASELINE_DRIFT;
+            }
+            double current = limit;
+            if (latencyNanos > baselineNanos * tolerance) {
+                limit = Math.max(minLimit, current * BACKOFF_RATIO);
+            } else if (inFlightBefore * 2 >= current) {
+                limit = Math.min(maxLimit, current + 1 / current);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getLimit() {
+        return (int) limit;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    public long getRejected() {
+        return rejected.sum();
+    }
+}
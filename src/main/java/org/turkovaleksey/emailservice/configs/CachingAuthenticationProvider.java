@@ -0,0 +1,175 @@
+package org.turkovaleksey.emailservice.configs;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.security.authentication.AuthenticationProvider;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.AuthenticationException;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Authentication provider remembering successful username and password verifications of its delegate
+ * for a limited time. The password hash is deliberately slow to check, so without the cache every
+ * HTTP Basic request pays for a full BCrypt round; a repeated request with the same credentials
+ * is authorized by one HMAC and a map lookup instead.
+ *
+ * <p>
+ * Neither the password nor an unkeyed hash of it is kept: entries are keyed by an HMAC-SHA256 of the
+ * username and password under a random key generated at startup and held only in memory. Failed
+ * verifications are never cached, so guessing a password costs a full hash check every time.
+ * The cache is bounded by {@code max-entries} and evicts the least recently used entry first; an entry
+ * expires {@code ttl} after the verification, which also bounds how long a removed or changed user
+ * stays authorized.
+ * </p>
+ *
+ * @see SecurityConfig#authenticationProvider
+ */
+public class CachingAuthenticationProvider implements AuthenticationProvider {
+    private static final Logger logger = LoggerFactory.getLogger(CachingAuthenticationProvider.class);
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+    private final AuthenticationProvider delegate;
+    private final int maxEntries;
+    private final Duration ttl;
+    private final Clock clock;
+    private final SecretKeySpec key;
+    private final LinkedHashMap<String, CachedAuthentication> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final ReentrantLock lock = new ReentrantLock();
+
+    /**
+     * Instantiates a new Caching authentication provider.
+     *
+     * @param delegate   the provider verifying the credentials
+     * @param maxEntries the maximum number of cached verifications, 0 disables the cache
+     * @param ttl        the time a verification stays cached
+     */
+    public CachingAuthenticationProvider(AuthenticationProvider delegate, int maxEntries, Duration ttl) {
+        this(delegate, maxEntries, ttl, Clock.systemUTC());
+    }
+
+    /**
+     * Instantiates a new Caching authentication provider.
+     *
+     * @param delegate   the provider verifying the credentials
+     * @param maxEntries the maximum number of cached verifications, 0 disables the cache
+     * @param ttl        the time a verification stays cached
+     * @param clock      the clock of the expiry
+     */
+    public CachingAuthenticationProvider(AuthenticationProvider delegate, int maxEntries, Duration ttl, Clock clock) {
+        this.delegate = delegate;
+        this.maxEntries = maxEntries;
+        this.ttl = ttl;
+        this.clock = clock;
+        byte[] secret = new byte[32];
+        new SecureRandom().nextBytes(secret);
+        this.key = new SecretKeySpec(secret, HMAC_ALGORITHM);
+    }
+
+    /**
+     * Authenticates from the cache if the same credentials were verified recently,
+     * otherwise with the delegate, caching a successful result.
+     *
+     * @param authentication The username and password to be verified.
+     * @return The authenticated token.
+     * @throws AuthenticationException If the delegate rejects the credentials.
+     */
+    @Override
+    public Authentication authenticate(Authentication authentication) throws AuthenticationException {
+        if (maxEntries <= 0 || ttl.isZero() || ttl.isNegative()
+                || authentication.getCredentials() == null) {
+            return delegate.authenticate(authentication);
+        }
+        String cacheKey = cacheKey(authentication.getName(), authentication.getCredentials().toString());
+        Instant now = clock.instant();
+        CachedAuthentication cached = get(cacheKey, now);
+        if (cached != null) {
+            logger.debug("authenticate() from cache for user = {}", authentication.getName());
+            UsernamePasswordAuthenticationToken result = UsernamePasswordAuthenticationToken.authenticated(
+                    cached.authentication.getPrincipal(), null, cached.authentication.getAuthorities());
+            result.setDetails(authentication.getDetails());
+            return result;
+        }
+        Authentication result = delegate.authenticate(authentication);
+        if (result != null && result.isAuthenticated()) {
+            put(cacheKey, new CachedAuthentication(result, now.plus(ttl)));
+        }
+        return result;
+    }
+
+    @Override
+    public boolean supports(Class<?> authentication) {
+        return delegate.supports(authentication);
+    }
+
+    public int size() {
+        lock.lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private CachedAuthentication get(String cacheKey, Instant now) {
+        lock.lock();
+        try {
+            CachedAuthentication cached = entries.get(cacheKey);
+            if (cached != null && !now.isBefore(cached.expiresAt)) {
+                entries.remove(cacheKey);
+                return null;
+            }
+            return cached;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void put(String cacheKey, CachedAuthentication cached) {
+        lock.lock();
+        try {
+            entries.put(cacheKey, cached);
+            Iterator<Map.Entry<String, CachedAuthentication>> iterator = entries.entrySet().iterator();
+            while (entries.size() > maxEntries && iterator.hasNext()) {
+                iterator.next();
+                iterator.remove();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private String cacheKey(String username, String password) {
+        try {
+            Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+            mac.init(key);
+            mac.update(username.getBytes(StandardCharsets.UTF_8));
+            mac.update((byte) 0);
+            return Base64.getEncoder().encodeToString(mac.doFinal(password.getBytes(StandardCharsets.UTF_8)));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(HMAC_ALGORITHM + " is not available", e);
+        }
+    }
+
+    private static final class CachedAuthentication {
+        private final Authentication authentication;
+        private final Instant expiresAt;
+
+        private CachedAuthentication(Authentication authentication, Instant expiresAt) {
+            this.authentication = authentication;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package org.turkovaleksey.emailservice.configs;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.authentication.AuthenticationProvider;
+import org.springframework.security.authentication.ProviderManager;
+import org.springframework.security.authentication.ReactiveAuthenticationManager;
+import org.springframework.security.authentication.ReactiveAuthenticationManagerAdapter;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.web.server.authentication.ServerHttpBasicAuthenticationConverter;
+import org.springframework.web.reactive.function.server.HandlerFilterFunction;
+import org.springframework.web.reactive.function.server.HandlerFunction;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Mono;
+
+/**
+ * HTTP Basic authentication for the reactive endpoints, checked by the same authentication provider
+ * and its cache of verified credentials as the blocking endpoints. The provider runs on the bounded
+ * elastic scheduler, so the event loop is never blocked by a password hash check.
+ *
+ * @see SecurityConfig#authenticationProvider
+ */
+public class ReactiveBasicAuthenticationFilter implements HandlerFilterFunction<ServerResponse, ServerResponse> {
+    private static final Logger logger = LoggerFactory.getLogger(ReactiveBasicAuthenticationFilter.class);
+    private final ServerHttpBasicAuthenticationConverter authenticationConverter = new ServerHttpBasicAuthenticationConverter();
+    private final ReactiveAuthenticationManager authenticationManager;
+
+    /**
+     * Instantiates a new Reactive basic authentication filter.
+     *
+     * @param authenticationProvider the provider verifying the credentials of the users allowed to download emails
+     */
+    public ReactiveBasicAuthenticationFilter(AuthenticationProvider authenticationProvider) {
+        this.authenticationManager = new ReactiveAuthenticationManagerAdapter(new ProviderManager(authenticationProvider));
+    }
+
+    /**
+     * Passes the request to the handler if it carries valid credentials, answers 401 otherwise.
+     *
+     * @param request The request to be authenticated.
+     * @param next    The handler of the request.
+     * @return A Mono of the response of the handler or of the 401 response.
+     */
+    @Override
+    public Mono<ServerResponse> filter(ServerRequest request, HandlerFunction<ServerResponse> next) {
+        return authenticationConverter.convert(request.exchange())
+                .flatMap(authenticationManager::authenticate)
+                .filter(Authentication::isAuthenticated)
+                .onErrorResume(e -> {
+                    logger.warn("filter() authentication failed - {}", e.getMessage());
+                    return Mono.empty();
+                })
+                .flatMap(authentication -> next.handle(request))
+                .switchIfEmpty(Mono.defer(() -> ServerResponse.status(HttpStatus.UNAUTHORIZED)
+                        .header(HttpHeaders.WWW_AUTHENTICATE, "Basic realm=\"Realm\"")
+                        .build()));
+    }
+}
@@ -0,0 +1,117 @@
+package org.turkovaleksey.emailservice.configs;
+
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.ConnectionFactoryOptions;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.boot.web.server.WebServer;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.security.authentication.AuthenticationProvider;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.RouterFunctions;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import org.turkovaleksey.emailservice.controllers.ReactiveEmailController;
+
+/**
+ * Configures the reactive email endpoints, enabled with {@code email-service.reactive.enabled}.
+ * The application itself runs on the servlet stack, where an export holds a request thread for as long
+ * as the client downloads it. The reactive endpoints are served by a separate Netty server on
+ * {@code email-service.reactive.port} with a few event-loop threads, backed by an R2DBC connection pool,
+ * so both stacks can be compared side by side under the same load.
+ * The save endpoint of this server is not covered by {@link SaveAdmissionInterceptor}; it is only bounded
+ * by the R2DBC pool, so the port must not be exposed to untrusted clients.
+ *
+ * @see ReactiveEmailController
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "email-service.reactive", name = "enabled", havingValue = "true")
+public class ReactiveConfig {
+
+    /**
+     * Creates the pool of R2DBC connections used by the reactive repository.
+     *
+     * @param url      The R2DBC url of the database.
+     * @param username The database user.
+     * @param password The database password.
+     * @param poolSize The maximum number of connections.
+     * @return A ConnectionPool, disposed on shutdown.
+     * @see ConnectionPool
+     */
+    @Bean(destroyMethod = "dispose")
+    public ConnectionPool reactiveConnectionFactory(@Value("${email-service.reactive.url}") String url,
+                                                    @Value("${email-service.reactive.username}") String username,
+                                                    @Value("${email-service.reactive.password}") String password,
+                                                    @Value("${email-service.reactive.pool-size:10}") int poolSize) {
+        ConnectionFactory connectionFactory = ConnectionFactories.get(ConnectionFactoryOptions.parse(url).mutate()
+                .option(ConnectionFactoryOptions.USER, username)
+                .option(ConnectionFactoryOptions.PASSWORD, password)
+                .build());
+        return new ConnectionPool(ConnectionPoolConfiguration.builder(connectionFactory)
+                .maxSize(poolSize)
+                .build());
+    }
+
+    /**
+     * Creates the database client of the reactive repository.
+     *
+     * @param connectionFactory The pool of R2DBC connections.
+     * @return A DatabaseClient.
+     * @see DatabaseClient
+     */
+    @Bean
+    public DatabaseClient reactiveDatabaseClient(ConnectionFactory connectionFactory) {
+        return DatabaseClient.create(connectionFactory);
+    }
+
+    /**
+     * Creates the Netty server of the reactive endpoints. The downloads require HTTP Basic authentication
+     * like their blocking counterparts.
+     *
+     * @param controller         The handler functions of the reactive endpoints.
+     * @param authenticationProvider The provider verifying the users allowed to download emails.
+     * @param port               The port of the reactive server.
+     * @return A SmartLifecycle starting and stopping the server with the application context.
+     * @see ReactiveBasicAuthenticationFilter
+     */
+    @Bean
+    public SmartLifecycle reactiveWebServer(ReactiveEmailController controller, AuthenticationProvider authenticationProvider,
+                                            @Value("${email-service.reactive.port:15556}") int port) {
+        RouterFunction<ServerResponse> downloads = RouterFunctions.route()
+                .GET("/api/email/download", controller::downloadEmails)
+                .GET("/api/email/download-period", controller::downloadEmailsByPeriod)
+                .filter(new ReactiveBasicAuthenticationFilter(authenticationProvider))
+                .build();
+        RouterFunction<ServerResponse> routes = RouterFunctions.route()
+                .POST("/api/email/save", controller::saveEmail)
+                .build()
+                .and(downloads);
+        WebServer webServer = new NettyReactiveWebServerFactory(port).getWebServer(RouterFunctions.toHttpHandler(routes));
+        return new SmartLifecycle() {
+            private volatile boolean running;
+
+            @Override
+            public void start() {
+                webServer.start();
+                running = true;
+            }
+
+            @Override
+            public void stop() {
+                running = false;
+                webServer.stop();
+            }
+
+            @Override
+            public boolean isRunning() {
+                return running;
+            }
+        };
+    }
+}
@@ -0,0 +1,115 @@
+package org.turkovaleksey.emailservice.configs;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Puts {@link SaveAdmissionInterceptor} in front of {@code /api/email/save} and {@code /api/email/save-all}.
+ * Enabled with {@code email-service.save.admission.enabled}.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "email-service.save.admission", name = "enabled", havingValue = "true")
+public class SaveAdmissionConfig {
+    private static final String SAVE_PATH = "/api/email/save";
+    private static final String SAVE_ALL_PATH = "/api/email/save-all";
+
+    /**
+     * Creates the admission control of the save endpoints.
+     *
+     * @param rate         The sustained number of save requests per second of all clients.
+     * @param burst        The number of save requests of all clients admitted at once.
+     * @param clientRate   The sustained number of save requests per second of one client.
+     * @param clientBurst  The number of save requests of one client admitted at once.
+     * @param maxClients   The number of clients whose buckets are kept.
+     * @param initialLimit The concurrency limit of each endpoint before any latency has been observed.
+     * @param minLimit     The lowest concurrency limit of each endpoint.
+     * @param maxLimit     The highest concurrency limit of each endpoint.
+     * @param tolerance    The ratio of latency to the baseline at which the concurrency limit is reduced.
+     * @return A SaveAdmissionInterceptor.
+     * @see SaveAdmissionInterceptor
+     * @see AdaptiveConcurrencyLimiter
+     */
+    @Bean
+    public SaveAdmissionInterceptor saveAdmissionInterceptor(
+            @Value("${email-service.save.admission.rate:1000}") double rate,
+            @Value("${email-service.save.admission.burst:200}") int burst,
+            @Value("${email-service.save.admission.client-rate:100}") double clientRate,
+            @Value("${email-service.save.admission.client-burst:100}") int clientBurst,
+            @Value("${email-service.save.admission.max-clients:10000}") int maxClients,
+            @Value("${email-service.save.admission.initial-limit:10}") int initialLimit,
+            @Value("${email-service.save.admission.min-limit:1}") int minLimit,
+            @Value("${email-service.save.admission.max-limit:100}") int maxLimit,
+            @Value("${email-service.save.admission.latency-tolerance:2.0}") double tolerance) {
+        Map<String, AdaptiveConcurrencyLimiter> concurrencyLimiters = new LinkedHashMap<>();
+        concurrencyLimiters.put(SAVE_PATH, new AdaptiveConcurrencyLimiter(initialLimit, minLimit, maxLimit, tolerance));
+        concurrencyLimiters.put(SAVE_ALL_PATH, new AdaptiveConcurrencyLimiter(initialLimit, minLimit, maxLimit, tolerance));
+        return new SaveAdmissionInterceptor(rate, burst, clientRate, clientBurst, maxClients, concurrencyLimiters);
+    }
+
+    /**
+     * Registers the admission control for the save endpoints.
+     *
+     * @param saveAdmissionInterceptor The admission control of the save endpoints.
+     * @return A WebMvcConfigurer adding the interceptor.
+     */
+    @Bean
+    public WebMvcConfigurer saveAdmissionWebMvcConfigurer(SaveAdmissionInterceptor saveAdmissionInterceptor) {
+        return new WebMvcConfigurer() {
+            @Override
+            public void addInterceptors(InterceptorRegistry registry) {
+                registry.addInterceptor(saveAdmissionInterceptor)
+                        .addPathPatterns(SAVE_PATH, SAVE_ALL_PATH);
+            }
+        };
+    }
+
+    /**
+     * Publishes the rejected save requests by reason, and the concurrency limit and the saves in progress by endpoint.
+     *
+     * @param saveAdmissionInterceptor The admission control of the save endpoints.
+     * @return A MeterBinder registering the admission meters.
+     */
+    @Bean
+    public MeterBinder saveAdmissionMetrics(SaveAdmissionInterceptor saveAdmissionInterceptor) {
+        return registry -> {
+            FunctionCounter.builder("email.save.admission.rejected", saveAdmissionInterceptor,
+                            SaveAdmissionInterceptor::getClientRateRejected)
+                    .description("Save requests rejected before reaching the service")
+                    .tag("reason", "client-rate")
+                    .register(registry);
+            FunctionCounter.builder("email.save.admission.rejected", saveAdmissionInterceptor,
+                            SaveAdmissionInterceptor::getGlobalRateRejected)
+                    .description("Save requests rejected before reaching the service")
+                    .tag("reason", "global-rate")
+                    .register(registry);
+            FunctionCounter.builder("email.save.admission.rejected", saveAdmissionInterceptor,
+                            SaveAdmissionInterceptor::getConcurrencyRejected)
+                    .description("Save requests rejected before reaching the service")
+                    .tag("reason", "concurrency")
+                    .register(registry);
+            for (Map.Entry<String, AdaptiveConcurrencyLimiter> entry : saveAdmissionInterceptor.getConcurrencyLimiters().entrySet()) {
+                Gauge.builder("email.save.admission.limit", entry.getValue(), AdaptiveConcurrencyLimiter::getLimit)
+                        .description("Current concurrency limit of the save endpoint")
+                        .tag("endpoint", entry.getKey())
+                        .register(registry);
+                Gauge.builder("email.save.admission.in.flight", entry.getValue(), AdaptiveConcurrencyLimiter::getInFlight)
+                        .description("Save requests in progress")
+                        .tag("endpoint", entry.getKey())
+                        .register(registry);
+            }
+            Gauge.builder("email.save.admission.clients", saveAdmissionInterceptor, SaveAdmissionInterceptor::getClients)
+                    .description("Clients with a rate limit bucket")
+                    .register(registry);
+        };
+    }
+}
@@ -0,0 +1,205 @@
+package org.turkovaleksey.emailservice.configs;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.turkovaleksey.emailservice.services.exceptions.TooManyRequestsException;
+
+import java.security.Principal;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.turkovaleksey.emailservice.services.api.IMessage.SAVE_CONCURRENCY_LIMIT_EXCEPTION;
+import static org.turkovaleksey.emailservice.services.api.IMessage.SAVE_RATE_LIMIT_EXCEPTION;
+
+/**
+ * Admission control in front of the save endpoints. A request must pass, in this order, the token bucket
+ * of its client, the global token bucket and the adaptive concurrency limit of its endpoint; otherwise it
+ * is rejected with {@link TooManyRequestsException} before a servlet thread is spent on the database, and
+ * the client is told when a retry may succeed. The tokens a rejected request took from the buckets before
+ * are given back, so a request only counts against the rates once it is admitted. This keeps the latency
+ * of the admitted saves and of the download endpoints stable under a burst of saves.
+ *
+ * <p>
+ * A client is the authenticated user if there is one, otherwise the remote address. Behind a load balancer
+ * the remote address is the one Tomcat takes from {@code X-Forwarded-For} of a trusted internal proxy
+ * ({@code server.forward-headers-strategy: native}). Every endpoint has its own concurrency limiter, as a
+ * batch save is much slower than a single one, and only successful responses adapt its limit.
+ * </p>
+ *
+ * <p>
+ * Per-client buckets live in a {@link ConcurrentHashMap}. Once it holds {@code max-clients} buckets, full
+ * buckets are dropped at most once a second, which admits the same requests as keeping them; a new client
+ * arriving while every bucket is still in use is only limited by the global bucket.
+ * </p>
+ *
+ * @see TokenBucket
+ * @see AdaptiveConcurrencyLimiter
+ */
+public class SaveAdmissionInterceptor implements HandlerInterceptor {
+    private static final Logger logger = LoggerFactory.getLogger(SaveAdmissionInterceptor.class);
+    private static final String START_ATTRIBUTE = SaveAdmissionInterceptor.class.getName() + ".start";
+    private static final long SWEEP_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private final TokenBucket globalBucket;
+    private final ConcurrentHashMap<String, TokenBucket> clientBuckets = new ConcurrentHashMap<>();
+    private final double clientRate;
+    private final int clientBurst;
+    private final int maxClients;
+    private final Map<String, AdaptiveConcurrencyLimiter> concurrencyLimiters;
+    private final AtomicLong lastSweepNanos = new AtomicLong(System.nanoTime());
+    private final LongAdder clientRateRejected = new LongAdder();
+    private final LongAdder globalRateRejected = new LongAdder();
+
+    /**
+     * Instantiates a new Save admission interceptor.
+     *
+     * @param rate                the sustained number of save requests per second of all clients
+     * @param burst               the number of save requests of all clients admitted at once
+     * @param clientRate          the sustained number of save requests per second of one client
+     * @param clientBurst         the number of save requests of one client admitted at once
+     * @param maxClients          the number of clients whose buckets are kept
+     * @param concurrencyLimiters the limits of save requests in progress by endpoint path
+     */
+    public SaveAdmissionInterceptor(double rate, int burst, double clientRate, int clientBurst, int maxClients,
+                                    Map<String, AdaptiveConcurrencyLimiter> concurrencyLimiters) {
+        this.globalBucket = new TokenBucket(rate, burst, System.nanoTime());
+        this.clientRate = clientRate;
+        this.clientBurst = clientBurst;
+        this.maxClients = maxClients;
+        this.concurrencyLimiters = concurrencyLimiters;
+    }
+
+    /**
+     * Admits the request or rejects it with TooManyRequestsException.
+     *
+     * @param request  The save request.
+     * @param response The response.
+     * @param handler  The handler of the request.
+     * @return {@code true} if the request is admitted.
+     * @throws TooManyRequestsException If a rate or the concurrency limit is exceeded.
+     */
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        long now = System.nanoTime();
+        String client = client(request);
+        TokenBucket clientBucket = clientBucket(client, now);
+        long waitNanos = clientBucket == null ? 0 : clientBucket.tryAcquire(now);
+        if (waitNanos > 0) {
+            clientRateRejected.increment();
+            logger.debug("preHandle() client rate exceeded, client = {}", client);
+            throw new TooManyRequestsException(SAVE_RATE_LIMIT_EXCEPTION, retryAfterSeconds(waitNanos));
+        }
+        waitNanos = globalBucket.tryAcquire(now);
+        if (waitNanos > 0) {
+            release(clientBucket, now);
+            globalRateRejected.increment();
+            logger.debug("preHandle() global rate exceeded");
+            throw new TooManyRequestsException(SAVE_RATE_LIMIT_EXCEPTION, retryAfterSeconds(waitNanos));
+        }
+        AdaptiveConcurrencyLimiter concurrencyLimiter = concurrencyLimiters.get(path(request));
+        if (concurrencyLimiter == null) {
+            return true;
+        }
+        if (!concurrencyLimiter.tryAcquire()) {
+            release(clientBucket, now);
+            globalBucket.release(now);
+            logger.debug("preHandle() concurrency limit = {} of {} reached", concurrencyLimiter.getLimit(), path(request));
+            throw new TooManyRequestsException(SAVE_CONCURRENCY_LIMIT_EXCEPTION, 1);
+        }
+        request.setAttribute(START_ATTRIBUTE, now);
+        return true;
+    }
+
+    /**
+     * Releases the concurrency permit of an admitted request and reports its latency to the limiter
+     * if the request succeeded.
+     */
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        if (request.getAttribute(START_ATTRIBUTE) instanceof Long start) {
+            request.removeAttribute(START_ATTRIBUTE);
+            AdaptiveConcurrencyLimiter concurrencyLimiter = concurrencyLimiters.get(path(request));
+            if (ex == null && response.getStatus() >= 200 && response.getStatus() < 300) {
+                concurrencyLimiter.release(System.nanoTime() - start);
+            } else {
+                concurrencyLimiter.release();
+            }
+        }
+    }
+
+    public long getClientRateRejected() {
+        return clientRateRejected.sum();
+    }
+
+    public long getGlobalRateRejected() {
+        return globalRateRejected.sum();
+    }
+
+    public Map<String, AdaptiveConcurrencyLimiter> getConcurrencyLimiters() {
+        return concurrencyLimiters;
+    }
+
+    public long getConcurrencyRejected() {
+        long rejected = 0;
+        for (AdaptiveConcurrencyLimiter concurrencyLimiter : concurrencyLimiters.values()) {
+            rejected += concurrencyLimiter.getRejected();
+        }
+        return rejected;
+    }
+
+    public int getClients() {
+        return clientBuckets.size();
+    }
+
+    private static String client(HttpServletRequest request) {
+        Principal principal = request.getUserPrincipal();
+        return principal != null ? "user:" + principal.getName() : "address:" + request.getRemoteAddr();
+    }
+
+    private static String path(HttpServletRequest request) {
+        return request.getRequestURI().substring(request.getContextPath().length());
+    }
+
+    private TokenBucket clientBucket(String client, long now) {
+        TokenBucket bucket = clientBuckets.get(client);
+        if (bucket != null) {
+            return bucket;
+        }
+        if (clientBuckets.size() >= maxClients) {
+            sweep(now);
+            if (clientBuckets.size() >= maxClients) {
+                return null;
+            }
+        }
+        return clientBuckets.computeIfAbsent(client, key -> new TokenBucket(clientRate, clientBurst, now));
+    }
+
+    private void sweep(long now) {
+        long lastSweep = lastSweepNanos.get();
+        if (now - lastSweep < SWEEP_INTERVAL_NANOS || !lastSweepNanos.compareAndSet(lastSweep, now)) {
+            return;
+        }
+        Iterator<TokenBucket> iterator = clientBuckets.values().iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().isFull(now)) {
+                iterator.remove();
+            }
+        }
+    }
+
+    private static void release(TokenBucket clientBucket, long now) {
+        if (clientBucket != null) {
+            clientBucket.release(now);
+        }
+    }
+
+    private static long retryAfterSeconds(long waitNanos) {
+        return Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + TimeUnit.SECONDS.toNanos(1) - 1));
+    }
+}
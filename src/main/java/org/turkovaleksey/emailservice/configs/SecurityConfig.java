@@ -1,14 +1,20 @@
 package org.turkovaleksey.emailservice.configs;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.security.authentication.AuthenticationProvider;
+import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.core.userdetails.User;
 import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.crypto.factory.PasswordEncoderFactories;
 import org.springframework.security.provisioning.InMemoryUserDetailsManager;
 import org.springframework.security.web.SecurityFilterChain;
 
+import java.time.Duration;
+
 @Configuration
 @EnableWebSecurity
 public class SecurityConfig {
@@ -29,6 +35,12 @@ public class SecurityConfig {
                 .authorizeHttpRequests()
                 .requestMatchers("/api/email/download").authenticated()
                 .requestMatchers("/api/email/download-period").authenticated()
+                .requestMatchers("/api/email/download-since").authenticated()
+                .requestMatchers("/api/email/page").authenticated()
+                .requestMatchers("/api/email/export-cache/stats").authenticated()
+                .requestMatchers("/api/email/stats").authenticated()
+                .requestMatchers("/api/email/export-jobs/**").authenticated()
+                .requestMatchers("/actuator/prometheus").authenticated()
                 .anyRequest().permitAll()
                 .and()
                 .httpBasic();
@@ -52,4 +64,25 @@ public class SecurityConfig {
                 .build()
         );
     }
+
+    /**
+     * Configures the authentication provider of the application: the password check against the
+     * user details service, with successful verifications cached for a limited time.
+     *
+     * @param userDetailsService The users allowed to download emails.
+     * @param maxEntries         The maximum number of cached verifications, 0 disables the cache.
+     * @param ttlSeconds         The time a verification stays cached.
+     * @return A CachingAuthenticationProvider delegating to a DaoAuthenticationProvider.
+     * @see CachingAuthenticationProvider
+     * @see DaoAuthenticationProvider
+     */
+    @Bean
+    public AuthenticationProvider authenticationProvider(UserDetailsService userDetailsService,
+                                                         @Value("${email-service.security.credential-cache.max-entries:1000}") int maxEntries,
+                                                         @Value("${email-service.security.credential-cache.ttl-seconds:300}") long ttlSeconds) {
+        DaoAuthenticationProvider daoAuthenticationProvider = new DaoAuthenticationProvider(
+                PasswordEncoderFactories.createDelegatingPasswordEncoder());
+        daoAuthenticationProvider.setUserDetailsService(userDetailsService);
+        return new CachingAuthenticationProvider(daoAuthenticationProvider, maxEntries, Duration.ofSeconds(ttlSeconds));
+    }
 }
@@ -0,0 +1,80 @@
+package org.turkovaleksey.emailservice.configs;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free token bucket implemented as the generic cell rate algorithm.
+ * Instead of a token count and a refill timer the bucket keeps one timestamp, the theoretical arrival time
+ * of the next request: every admitted request moves it one emission interval ({@code 1 / rate}) further,
+ * and a request is rejected while that time lies more than {@code burst} intervals ahead of now.
+ * A single compare-and-set updates the bucket, so admitting a request never takes a lock.
+ */
+public final class TokenBucket {
+    private final long emissionIntervalNanos;
+    private final long burstToleranceNanos;
+    private final AtomicLong theoreticalArrivalNanos;
+
+    /**
+     * Instantiates a new Token bucket.
+     *
+     * @param ratePerSecond the sustained number of requests per second
+     * @param burst         the number of requests that may be admitted at once
+     * @param nowNanos      the current {@link System#nanoTime()}
+     */
+    public TokenBucket(double ratePerSecond, int burst, long nowNanos) {
+        this.emissionIntervalNanos = Math.max(1, (long) (TimeUnit.SECONDS.toNanos(1) / ratePerSecond));
+        this.burstToleranceNanos = emissionIntervalNanos * Math.max(burst, 1);
+        this.theoreticalArrivalNanos = new AtomicLong(nowNanos);
+    }
+
+    /**
+     * Takes a token if one is available.
+     *
+     * @param nowNanos The current {@link System#nanoTime()}.
+     * @return 0 if the request is admitted, otherwise the nanoseconds until a token will be available.
+     */
+    public long tryAcquire(long nowNanos) {
+        while (true) {
+            long theoreticalArrival = theoreticalArrivalNanos.get();
+            long next = Math.max(theoreticalArrival - nowNanos, 0) + nowNanos + emissionIntervalNanos;
+            long waitNanos = next - nowNanos - burstToleranceNanos;
+            if (waitNanos > 0) {
+                return waitNanos;
+            }
+            if (theoreticalArrivalNanos.compareAndSet(theoreticalArrival, next)) {
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * Gives back a token taken by {@link #tryAcquire(long)} for a request that was rejected afterwards.
+     * The bucket never holds more than {@code burst} tokens.
+     *
+     * @param nowNanos The current {@link System#nanoTime()}.
+     */
+    public void release(long nowNanos) {
+        while (true) {
+            long theoreticalArrival = theoreticalArrivalNanos.get();
+            if (theoreticalArrival - nowNanos <= 0) {
+                return;
+            }
+            long previous = Math.max(theoreticalArrival - emissionIntervalNanos, nowNanos);
+            if (theoreticalArrivalNanos.compareAndSet(theoreticalArrival, previous)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Checks whether the bucket holds every token, so that dropping it and creating a new one later
+     * would admit exactly the same requests.
+     *
+     * @param nowNanos The current {@link System#nanoTime()}.
+     * @return {@code true} if the bucket is full.
+     */
+    public boolean isFull(long nowNanos) {
+        return theoreticalArrivalNanos.get() - nowNanos <= 0;
+    }
+}
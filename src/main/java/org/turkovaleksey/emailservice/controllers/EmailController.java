@@ -12,16 +12,39 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.turkovaleksey.emailservice.repositories.exceptions.AppError400;
 import org.turkovaleksey.emailservice.services.api.IEmailService;
+import org.turkovaleksey.emailservice.services.dto.BulkSaveResult;
+import org.turkovaleksey.emailservice.services.dto.EmailDailyStats;
+import org.turkovaleksey.emailservice.services.dto.EmailPage;
+import org.turkovaleksey.emailservice.services.dto.ExportCacheStats;
+import org.turkovaleksey.emailservice.services.dto.ExportFormat;
+import org.turkovaleksey.emailservice.services.dto.ExportVersion;
 import org.turkovaleksey.emailservice.services.dto.MailCreatePeriod;
+import org.turkovaleksey.emailservice.services.exceptions.UnsupportedExportFormatException;
+
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
 
 import static org.turkovaleksey.emailservice.services.api.IMessage.SUCCESS_SAVE_EMAIL;
+import static org.turkovaleksey.emailservice.services.api.IMessage.UNSUPPORTED_EXPORT_FORMAT_EXCEPTION;
 
 /**
  * The type Email controller.
@@ -41,6 +64,8 @@ import static org.turkovaleksey.emailservice.services.api.IMessage.SUCCESS_SAVE_
 @Tag(name = "Email controller", description = "Controller for saving email and obtaining a list of all saved emails for authorized users")
 public class EmailController {
     private static final Logger logger = LoggerFactory.getLogger(EmailController.class);
+    private static final int GZIP_BUFFER_SIZE = 8192;
+    private static final String HIGH_WATER_MARK_HEADER = "X-High-Water-Mark";
     private final IEmailService emailService;
 
     /**
@@ -65,6 +90,9 @@ public class EmailController {
             @ApiResponse(responseCode = "200", description = "CSV file with all emails",
                     content = {@Content(mediaType = "application/octet-stream")}),
             @ApiResponse(responseCode = "400", description = "Bad Request",
+                    content = {@Content(mediaType = "application/json",
+                            schema = @Schema(implementation = AppError400.class))}),
+            @ApiResponse(responseCode = "409", description = "Email already exists",
                     content = {@Content(mediaType = "application/json",
                             schema = @Schema(implementation = AppError400.class))})
     })
@@ -77,53 +105,400 @@ public class EmailController {
     }
 
     /**
-     * Downloads the emails in CSV format and returns a ResponseEntity containing the CSV file.
+     * Saves the provided email addresses in batches and returns the result for every address.
+     * One invalid or already existing address does not fail the whole request.
      *
-     * @return A ResponseEntity<byte[]> with the CSV file content.
+     * @param emails The email addresses to be saved.
+     * @return A ResponseEntity with the BulkSaveResult.
+     * @see BulkSaveResult
+     */
+    @Operation(summary = "Saving a list of emails to database")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Save status of every email",
+                    content = {@Content(mediaType = "application/json",
+                            schema = @Schema(implementation = BulkSaveResult.class))}),
+            @ApiResponse(responseCode = "400", description = "Bad Request",
+                    content = {@Content(mediaType = "application/json",
+                            schema = @Schema(implementation = AppError400.class))})
+    })
+    @PostMapping("/save-all")
+    public ResponseEntity<BulkSaveResult> saveEmails(@RequestBody List<String> emails) {
+        logger.debug("saveEmails() with {} emails", emails.size());
+        logger.debug("saveEmails() call saveAll()");
+        return ResponseEntity.ok(emailService.saveAll(emails));
+    }
+
+    /**
+     * Returns one page of emails ordered by id, optionally limited to a period.
+     * Pass the {@code nextCursor} of a page as {@code afterId} to get the next one;
+     * the last page has no cursor.
+     *
+     * @param afterId The cursor of the previous page, 0 for the first page.
+     * @param limit   The maximum number of emails on the page.
+     * @param start   The optional first day of the period, YYYY-MM-DD.
+     * @param end     The optional last day of the period, YYYY-MM-DD.
+     * @return A ResponseEntity with the EmailPage.
+     * @see EmailPage
+     */
+    @Operation(summary = "Receiving a page of saved emails")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Page of emails and the cursor of the next page",
+                    content = {@Content(mediaType = "application/json",
+                            schema = @Schema(implementation = EmailPage.class))}),
+            @ApiResponse(responseCode = "400", description = "Bad Request",
+                    content = {@Content(mediaType = "application/json",
+                            schema = @Schema(implementation = AppError400.class))})
+    })
+    @GetMapping("/page")
+    public ResponseEntity<EmailPage> getEmailsPage(
+            @RequestParam(defaultValue = "0") long afterId,
+            @RequestParam(defaultValue = "100") int limit,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate start,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate end) {
+        logger.debug("getEmailsPage() with afterId = {}, limit = {}, start = {}, end = {}", afterId, limit, start, end);
+        MailCreatePeriod mailCreatePeriod = start == null && end == null ? null : new MailCreatePeriod(start, end);
+        logger.debug("getEmailsPage() call getPage()");
+        return ResponseEntity.ok(emailService.getPage(afterId, limit, mailCreatePeriod));
+    }
+
+    /**
+     * Downloads the emails in CSV format and returns a ResponseEntity streaming the CSV file.
+     * Rows are written to the response as they are read from the database.
+     * With {@code format=gzip} the file is sent as {@code emails.csv.gz}. Without a format the CSV
+     * is sent with {@code Content-Encoding: gzip} when the client accepts it. Compression happens
+     * while streaming, the file is never built in memory.
+     * The response carries an ETag and Last-Modified kept in memory, so a conditional request
+     * whose validators still match is answered with 304 Not Modified without reading the table.
+     * A single {@code Range} of the plain CSV is answered with 206 Partial Content from the snapshot of
+     * the current version, so an interrupted download can be resumed. A request with a {@code Range} header
+     * is never gzip encoded, since the byte ranges refer to the plain CSV. With {@code If-Range} the range is
+     * only sent while the strong entity tag still matches; a date or any other value gets the full export.
+     *
+     * @param format         The export format: csv or gzip.
+     * @param acceptEncoding The Accept-Encoding header of the request.
+     * @param webRequest     The request, checked against the validators of the export.
+     * @return A ResponseEntity<StreamingResponseBody> with the CSV file content, or {@code null} if not modified.
+     * @throws UnsupportedExportFormatException If the format is not csv or gzip.
+     * @see IEmailService#getExportSnapshot(ExportVersion)
      * @see ResponseEntity
+     * @see StreamingResponseBody
+     * @see ExportFormat
      */
     @Operation(summary = "Receiving a file with a list of saved emails")
     @ApiResponses(value = {
-            @ApiResponse(responseCode = "200", description = "CSV file with all emails",
-                    content = {@Content(mediaType = "application/octet-stream")})
+            @ApiResponse(responseCode = "200", description = "CSV file with all emails, optionally gzip compressed",
+                    content = {@Content(mediaType = "application/octet-stream"),
+                            @Content(mediaType = "application/gzip")}),
+            @ApiResponse(responseCode = "206", description = "Requested byte range of the CSV file",
+                    content = {@Content(mediaType = "application/octet-stream")}),
+            @ApiResponse(responseCode = "304", description = "Not Modified since the ETag or date of the request"),
+            @ApiResponse(responseCode = "400", description = "Bad Request",
+                    content = {@Content(mediaType = "application/json",
+                            schema = @Schema(implementation = AppError400.class))}),
+            @ApiResponse(responseCode = "416", description = "Range Not Satisfiable")
     })
     @GetMapping("/download")
-    public ResponseEntity<byte[]> downloadEmailsCsv() {
-        logger.debug("downloadEmailsCsv() do work");
-        logger.debug("downloadEmailsCsv() call getEmailsAsCsv()");
-        String csvContent = emailService.getEmailsAsCsv();
+    public ResponseEntity<StreamingResponseBody> downloadEmailsCsv(
+            @RequestParam(required = false) String format,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            WebRequest webRequest) {
+        logger.debug("downloadEmailsCsv() with format = {}, Accept-Encoding = {}", format, acceptEncoding);
+        ExportFormat exportFormat = ExportFormat.fromParameter(format);
+        if (exportFormat == ExportFormat.ZIP) {
+            logger.error("downloadEmailsCsv() " + UNSUPPORTED_EXPORT_FORMAT_EXCEPTION);
+            throw new UnsupportedExportFormatException(UNSUPPORTED_EXPORT_FORMAT_EXCEPTION);
+        }
+        String range = webRequest.getHeader(HttpHeaders.RANGE);
+        boolean gzipEncoding = format == null && range == null && acceptsGzip(acceptEncoding);
         HttpHeaders headers = new HttpHeaders();
-        headers.setContentType(MediaType.APPLICATION_OCTET_STREAM);
-        headers.setContentDispositionFormData("attachment", "emails.csv");
-        return ResponseEntity.ok()
-                .headers(headers)
-                .body(csvContent.getBytes());
+        ExportVersion exportVersion = emailService.getExportVersion();
+        if (exportVersion != null) {
+            String variant = (exportFormat == ExportFormat.CSV ? "" : "-" + exportFormat.name().toLowerCase())
+                    + (gzipEncoding ? "-gzip" : "");
+            String eTag = exportVersion.getETag(variant);
+            if (webRequest.checkNotModified(eTag, exportVersion.getLastModified())) {
+                logger.debug("downloadEmailsCsv() not modified since {}", exportVersion);
+                return null;
+            }
+            if (variant.isEmpty()) {
+                String ifRange = webRequest.getHeader(HttpHeaders.IF_RANGE);
+                if (range != null && (ifRange == null || ifRangeMatches(ifRange, eTag))) {
+                    ResponseEntity<StreamingResponseBody> partialExport = partialExport(range, exportVersion);
+                    if (partialExport != null) {
+                        return partialExport;
+                    }
+                }
+                headers.set(HttpHeaders.ACCEPT_RANGES, "bytes");
+                logger.debug("downloadEmailsCsv() call writeEmailsAsCsv() with ExportVersion = {}", exportVersion);
+                StreamingResponseBody body = outputStream -> emailService.writeEmailsAsCsv(exportVersion, outputStream);
+                return export(headers, body, "emails", exportFormat, false);
+            }
+        }
+        logger.debug("downloadEmailsCsv() call writeEmailsAsCsv()");
+        return export(headers, emailService::writeEmailsAsCsv, "emails", exportFormat, gzipEncoding);
     }
 
     /**
      * Downloads the emails within the specified MailCreatePeriod in CSV format
-     * and returns a ResponseEntity containing the CSV file.
+     * and returns a ResponseEntity streaming the CSV file.
+     * Besides csv and gzip, {@code format=zip} sends a ZIP archive with one CSV entry per day.
      *
      * @param mailCreatePeriod The MailCreatePeriod defining the period for which emails are to be downloaded.
-     * @return A ResponseEntity<byte[]> with the CSV file content.
+     * @param format           The export format: csv, gzip or zip.
+     * @param acceptEncoding   The Accept-Encoding header of the request.
+     * @return A ResponseEntity<StreamingResponseBody> with the CSV file content.
+     * @throws UnsupportedExportFormatException If the format is unknown.
      * @see MailCreatePeriod
      * @see ResponseEntity
+     * @see StreamingResponseBody
+     * @see ExportFormat
      */
     @Operation(summary = "Receiving a file with a list of saved emails by period")
     @ApiResponses(value = {
-            @ApiResponse(responseCode = "200", description = "CSV file with emails by period",
-                    content = {@Content(mediaType = "application/octet-stream")})
+            @ApiResponse(responseCode = "200", description = "CSV file or per-day ZIP archive with emails by period",
+                    content = {@Content(mediaType = "application/octet-stream"),
+                            @Content(mediaType = "application/gzip"),
+                            @Content(mediaType = "application/zip")}),
+            @ApiResponse(responseCode = "400", description = "Bad Request",
+                    content = {@Content(mediaType = "application/json",
+                            schema = @Schema(implementation = AppError400.class))})
     })
     @GetMapping("/download-period")
-    public ResponseEntity<byte[]> downloadEmailsCsvByPeriod(@RequestBody MailCreatePeriod mailCreatePeriod) {
-        logger.debug("downloadEmailsCsv() with MailCreatePeriod = {}", mailCreatePeriod);
-        logger.debug("downloadEmailsCsv() call getEmailsByPeriodAsCsv() with = {}", mailCreatePeriod);
-        String csvContent = emailService.getEmailsByPeriodAsCsv(mailCreatePeriod);
+    public ResponseEntity<StreamingResponseBody> downloadEmailsCsvByPeriod(
+            @RequestBody MailCreatePeriod mailCreatePeriod,
+            @RequestParam(required = false) String format,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        logger.debug("downloadEmailsCsv() with MailCreatePeriod = {}, format = {}", mailCreatePeriod, format);
+        ExportFormat exportFormat = ExportFormat.fromParameter(format);
+        emailService.checkDateOnValid(mailCreatePeriod);
+        StreamingResponseBody body;
+        if (exportFormat == ExportFormat.ZIP) {
+            logger.debug("downloadEmailsCsv() call writeEmailsByPeriodAsZip() with = {}", mailCreatePeriod);
+            body = outputStream -> emailService.writeEmailsByPeriodAsZip(mailCreatePeriod, outputStream);
+        } else {
+            logger.debug("downloadEmailsCsv() call writeEmailsByPeriodAsCsv() with = {}", mailCreatePeriod);
+            body = outputStream -> emailService.writeEmailsByPeriodAsCsv(mailCreatePeriod, outputStream);
+        }
+        return export(new HttpHeaders(), body, "emails_with_period", exportFormat, format == null && acceptsGzip(acceptEncoding));
+    }
+
+    /**
+     * Downloads the emails added after the given high-water mark in CSV format, ordered by id.
+     * The new high-water mark is returned in the {@value #HIGH_WATER_MARK_HEADER} header;
+     * pass it as {@code afterId} on the next call to get only the emails added in between.
+     * The mark lags behind the newest email, so an insert committing late with a smaller id is not skipped.
+     *
+     * @param afterId        The high-water mark of the previous download, 0 for all emails.
+     * @param format         The export format: csv or gzip.
+     * @param acceptEncoding The Accept-Encoding header of the request.
+     * @return A ResponseEntity<StreamingResponseBody> with the CSV file content.
+     * @throws UnsupportedExportFormatException If the format is not csv or gzip.
+     * @see ExportFormat
+     */
+    @Operation(summary = "Receiving a file with the emails saved since the last download")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "CSV file with the new emails, optionally gzip compressed",
+                    content = {@Content(mediaType = "application/octet-stream"),
+                            @Content(mediaType = "application/gzip")}),
+            @ApiResponse(responseCode = "400", description = "Bad Request",
+                    content = {@Content(mediaType = "application/json",
+                            schema = @Schema(implementation = AppError400.class))})
+    })
+    @GetMapping("/download-since")
+    public ResponseEntity<StreamingResponseBody> downloadEmailsCsvSince(
+            @RequestParam(defaultValue = "0") long afterId,
+            @RequestParam(required = false) String format,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        logger.debug("downloadEmailsCsvSince() with afterId = {}, format = {}", afterId, format);
+        ExportFormat exportFormat = ExportFormat.fromParameter(format);
+        if (exportFormat == ExportFormat.ZIP) {
+            logger.error("downloadEmailsCsvSince() " + UNSUPPORTED_EXPORT_FORMAT_EXCEPTION);
+            throw new UnsupportedExportFormatException(UNSUPPORTED_EXPORT_FORMAT_EXCEPTION);
+        }
+        long highWaterMark = Math.max(emailService.getHighWaterMark(), afterId);
         HttpHeaders headers = new HttpHeaders();
-        headers.setContentType(MediaType.APPLICATION_OCTET_STREAM);
-        headers.setContentDispositionFormData("attachment", "emails_with_period.csv");
+        headers.set(HIGH_WATER_MARK_HEADER, String.valueOf(highWaterMark));
+        logger.debug("downloadEmailsCsvSince() call writeEmailsSinceAsCsv() up to {}", highWaterMark);
+        StreamingResponseBody body = outputStream -> emailService.writeEmailsSinceAsCsv(afterId, highWaterMark, outputStream);
+        return export(headers, body, "emails_since_" + afterId, exportFormat, format == null && acceptsGzip(acceptEncoding));
+    }
+
+    /**
+     * Returns the hit and miss counters and the size of the cache of closed-period exports.
+     *
+     * @return A ResponseEntity with the ExportCacheStats.
+     * @see ExportCacheStats
+     */
+    @Operation(summary = "Receiving the statistics of the export cache")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Hit and miss counters and size of the export cache",
+                    content = {@Content(mediaType = "application/json",
+                            schema = @Schema(implementation = ExportCacheStats.class))})
+    })
+    @GetMapping("/export-cache/stats")
+    public ResponseEntity<ExportCacheStats> getExportCacheStats() {
+        logger.debug("getExportCacheStats() call getExportCacheStats()");
+        return ResponseEntity.ok(emailService.getExportCacheStats());
+    }
+
+    /**
+     * Returns the number of emails created on every day of the period and their total.
+     * The counts are kept in memory, the table is not read.
+     *
+     * @param start The first day of the period, YYYY-MM-DD.
+     * @param end   The last day of the period, YYYY-MM-DD.
+     * @return A ResponseEntity with the EmailDailyStats.
+     * @see EmailDailyStats
+     */
+    @Operation(summary = "Receiving the number of emails per day of a period")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Per-day and total number of emails of the period",
+                    content = {@Content(mediaType = "application/json",
+                            schema = @Schema(implementation = EmailDailyStats.class))}),
+            @ApiResponse(responseCode = "400", description = "Bad Request",
+                    content = {@Content(mediaType = "application/json",
+                            schema = @Schema(implementation = AppError400.class))})
+    })
+    @GetMapping("/stats")
+    public ResponseEntity<EmailDailyStats> getDailyStats(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate start,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate end) {
+        logger.debug("getDailyStats() with start = {}, end = {}", start, end);
+        logger.debug("getDailyStats() call getDailyStats()");
+        return ResponseEntity.ok(emailService.getDailyStats(new MailCreatePeriod(start, end)));
+    }
+
+    /**
+     * Builds the download response for the export format.
+     * The body is wrapped in a gzip stream for the gzip format and for gzip content encoding.
+     *
+     * @param headers      The headers specific to the export, the download headers are added to them.
+     * @param body         The body writing the uncompressed export.
+     * @param fileName     The name of the downloaded file without extension.
+     * @param exportFormat The format of the downloaded file.
+     * @param gzipEncoding Whether the CSV is sent with {@code Content-Encoding: gzip}.
+     * @return A ResponseEntity<StreamingResponseBody> with the download headers.
+     */
+    private ResponseEntity<StreamingResponseBody> export(HttpHeaders headers, StreamingResponseBody body, String fileName,
+                                                         ExportFormat exportFormat, boolean gzipEncoding) {
+        headers.setContentType(exportFormat.getMediaType());
+        headers.setContentDispositionFormData("attachment", fileName + exportFormat.getFileExtension());
+        headers.setVary(List.of(HttpHeaders.ACCEPT_ENCODING));
+        if (gzipEncoding) {
+            headers.set(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        StreamingResponseBody responseBody = body;
+        if (gzipEncoding || exportFormat == ExportFormat.GZIP) {
+            responseBody = outputStream -> {
+                GZIPOutputStream gzipOutputStream = new GZIPOutputStream(outputStream, GZIP_BUFFER_SIZE);
+                body.writeTo(gzipOutputStream);
+                gzipOutputStream.finish();
+            };
+        }
         return ResponseEntity.ok()
                 .headers(headers)
-                .body(csvContent.getBytes());
+                .body(responseBody);
+    }
+
+    /**
+     * Builds the 206 response with one byte range of the snapshot of the version, or the 416 response
+     * if the range starts past its end.
+     *
+     * @param range         The Range header of the request.
+     * @param exportVersion The version of the export the range is taken from.
+     * @return A ResponseEntity<StreamingResponseBody> with the range, or {@code null} if the full export
+     * has to be sent because the header is not one valid byte range or there is no snapshot of the version.
+     */
+    private ResponseEntity<StreamingResponseBody> partialExport(String range, ExportVersion exportVersion) {
+        List<HttpRange> ranges;
+        try {
+            ranges = HttpRange.parseRanges(range);
+        } catch (IllegalArgumentException e) {
+            logger.debug("partialExport() ignoring Range = {} - {}", range, e.getMessage());
+            return null;
+        }
+        if (ranges.size() != 1) {
+            return null;
+        }
+        logger.debug("partialExport() call getExportSnapshot() with Range = {}", range);
+        Path snapshot = emailService.getExportSnapshot(exportVersion);
+        if (snapshot == null) {
+            return null;
+        }
+        FileChannel channel;
+        long length;
+        try {
+            channel = FileChannel.open(snapshot, StandardOpenOption.READ);
+            length = channel.size();
+        } catch (IOException e) {
+            logger.debug("partialExport() snapshot {} is gone - {}", snapshot, e.getMessage());
+            return null;
+        }
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.ACCEPT_RANGES, "bytes");
+        long start;
+        long end;
+        try {
+            start = ranges.get(0).getRangeStart(length);
+            end = ranges.get(0).getRangeEnd(length);
+        } catch (IllegalArgumentException e) {
+            try {
+                channel.close();
+            } catch (IOException closeException) {
+                logger.debug("partialExport() failed to close {} - {}", snapshot, closeException.getMessage());
+            }
+            headers.set(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+            return ResponseEntity.status(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE).headers(headers).build();
+        }
+        headers.setContentType(ExportFormat.CSV.getMediaType());
+        headers.setContentDispositionFormData("attachment", "emails" + ExportFormat.CSV.getFileExtension());
+        headers.set(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + length);
+        headers.setContentLength(end - start + 1);
+        StreamingResponseBody body = outputStream -> {
+            try (channel) {
+                WritableByteChannel target = Channels.newChannel(outputStream);
+                long position = start;
+                while (position <= end) {
+                    position += channel.transferTo(position, end + 1 - position, target);
+                }
+            }
+        };
+        return ResponseEntity.status(HttpStatus.PARTIAL_CONTENT).headers(headers).body(body);
+    }
+
+    /**
+     * Checks the If-Range header against the entity tag. Last-Modified is kept to the second, so two versions
+     * saved within the same second can not be told apart by date; a date is a weak validator and never matches.
+     */
+    private static boolean ifRangeMatches(String ifRange, String eTag) {
+        return ifRange.equals(eTag);
+    }
+
+    /**
+     * Checks whether the Accept-Encoding header allows gzip with a non-zero quality.
+     */
+    private static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.split(";");
+            String name = parts[0].trim();
+            if (!name.equalsIgnoreCase("gzip") && !name.equalsIgnoreCase("x-gzip")) {
+                continue;
+            }
+            for (int i = 1; i < parts.length; i++) {
+                String parameter = parts[i].trim();
+                if (parameter.startsWith("q=")) {
+                    try {
+                        return Double.parseDouble(parameter.substring(2)) > 0;
+                    } catch (NumberFormatException e) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        }
+        return false;
     }
 }
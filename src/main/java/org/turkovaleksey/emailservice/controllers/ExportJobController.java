@@ -0,0 +1,147 @@
+package org.turkovaleksey.emailservice.controllers;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+import org.turkovaleksey.emailservice.repositories.exceptions.AppError400;
+import org.turkovaleksey.emailservice.services.api.IExportJobService;
+import org.turkovaleksey.emailservice.services.dto.ExportJobStatus;
+import org.turkovaleksey.emailservice.services.dto.MailCreatePeriod;
+
+import java.security.Principal;
+
+/**
+ * Controller of asynchronous period exports: a job is submitted, polled until it is done and its file is
+ * downloaded, so long exports do not hold a request thread or a database connection of the web server.
+ */
+@RestController
+@RequestMapping("/api/email/export-jobs")
+@Tag(name = "Export job controller", description = "Controller for exporting emails by period in the background and downloading the file later")
+public class ExportJobController {
+    private static final Logger logger = LoggerFactory.getLogger(ExportJobController.class);
+    private final IExportJobService exportJobService;
+
+    /**
+     * Instantiates a new Export job controller.
+     *
+     * @param exportJobService the export job service
+     */
+    @Autowired
+    public ExportJobController(IExportJobService exportJobService) {
+        this.exportJobService = exportJobService;
+    }
+
+    /**
+     * Submits the export of the emails within the specified MailCreatePeriod.
+     *
+     * @param mailCreatePeriod The MailCreatePeriod to be exported.
+     * @param principal        The authenticated user, the only one allowed to see the job.
+     * @return A ResponseEntity with the ExportJobStatus and the location of the job.
+     * @see ExportJobStatus
+     */
+    @Operation(summary = "Submitting the export of the emails by period")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "202", description = "Export job is queued",
+                    content = {@Content(mediaType = "application/json",
+                            schema = @Schema(implementation = ExportJobStatus.class))}),
+            @ApiResponse(responseCode = "400", description = "Bad Request",
+                    content = {@Content(mediaType = "application/json",
+                            schema = @Schema(implementation = AppError400.class))}),
+            @ApiResponse(responseCode = "429", description = "Too many export jobs",
+                    content = {@Content(mediaType = "application/json",
+                            schema = @Schema(implementation = AppError400.class))})
+    })
+    @PostMapping
+    public ResponseEntity<ExportJobStatus> submitExportJob(@RequestBody MailCreatePeriod mailCreatePeriod, Principal principal) {
+        logger.debug("submitExportJob() call submit() with MailCreatePeriod = {}", mailCreatePeriod);
+        ExportJobStatus status = exportJobService.submit(mailCreatePeriod, principal.getName());
+        return ResponseEntity.accepted()
+                .location(ServletUriComponentsBuilder.fromCurrentRequest().path("/{id}").buildAndExpand(status.getId()).toUri())
+                .body(status);
+    }
+
+    /**
+     * Returns the state and progress of the export job.
+     *
+     * @param id        The id of the job.
+     * @param principal The authenticated user.
+     * @return A ResponseEntity with the ExportJobStatus.
+     */
+    @Operation(summary = "Receiving the state and progress of an export job")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "State and progress of the export job",
+                    content = {@Content(mediaType = "application/json",
+                            schema = @Schema(implementation = ExportJobStatus.class))}),
+            @ApiResponse(responseCode = "404", description = "Export job not found",
+                    content = {@Content(mediaType = "application/json",
+                            schema = @Schema(implementation = AppError400.class))})
+    })
+    @GetMapping("/{id}")
+    public ResponseEntity<ExportJobStatus> getExportJob(@PathVariable String id, Principal principal) {
+        logger.debug("getExportJob() call getStatus() with id = {}", id);
+        return ResponseEntity.ok(exportJobService.getStatus(id, principal.getName()));
+    }
+
+    /**
+     * Downloads the CSV file of a finished export job.
+     *
+     * @param id        The id of the job.
+     * @param principal The authenticated user.
+     * @return A ResponseEntity with the CSV file.
+     */
+    @Operation(summary = "Receiving the file of a finished export job")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "CSV file with emails by period",
+                    content = {@Content(mediaType = "application/octet-stream")}),
+            @ApiResponse(responseCode = "404", description = "Export job not found",
+                    content = {@Content(mediaType = "application/json",
+                            schema = @Schema(implementation = AppError400.class))}),
+            @ApiResponse(responseCode = "409", description = "Export job is not done",
+                    content = {@Content(mediaType = "application/json",
+                            schema = @Schema(implementation = AppError400.class))})
+    })
+    @GetMapping("/{id}/download")
+    public ResponseEntity<Resource> downloadExportJob(@PathVariable String id, Principal principal) {
+        logger.debug("downloadExportJob() call getFile() with id = {}", id);
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_OCTET_STREAM);
+        headers.setContentDispositionFormData("attachment", "emails_with_period.csv");
+        return ResponseEntity.ok()
+                .headers(headers)
+                .body(new FileSystemResource(exportJobService.getFile(id, principal.getName())));
+    }
+
+    /**
+     * Cancels the export job if it is not finished and deletes it with its file.
+     *
+     * @param id        The id of the job.
+     * @param principal The authenticated user.
+     * @return An empty ResponseEntity.
+     */
+    @Operation(summary = "Deleting an export job")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "204", description = "Export job is deleted"),
+            @ApiResponse(responseCode = "404", description = "Export job not found",
+                    content = {@Content(mediaType = "application/json",
+                            schema = @Schema(implementation = AppError400.class))})
+    })
+    @DeleteMapping("/{id}")
+    public ResponseEntity<Void> deleteExportJob(@PathVariable String id, Principal principal) {
+        logger.debug("deleteExportJob() call delete() with id = {}", id);
+        exportJobService.delete(id, principal.getName());
+        return ResponseEntity.noContent().build();
+    }
+}
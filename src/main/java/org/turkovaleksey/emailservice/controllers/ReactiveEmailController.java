@@ -0,0 +1,129 @@
+package org.turkovaleksey.emailservice.controllers;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.dao.DataAccessException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import org.springframework.web.server.ServerWebInputException;
+import org.turkovaleksey.emailservice.repositories.exceptions.AppError400;
+import org.turkovaleksey.emailservice.services.api.IReactiveEmailService;
+import org.turkovaleksey.emailservice.services.dto.MailCreatePeriod;
+import org.turkovaleksey.emailservice.services.exceptions.EmailAlreadyExistsException;
+import org.turkovaleksey.emailservice.services.exceptions.IncorrectPeriodException;
+import org.turkovaleksey.emailservice.services.exceptions.InvalidEmailException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+
+import static org.turkovaleksey.emailservice.services.api.IMessage.SUCCESS_SAVE_EMAIL;
+
+/**
+ * Handler functions of the reactive email endpoints.
+ * They mirror the CSV export and save endpoints of {@link EmailController} but are served by the
+ * reactive server on its own port, where the body of an export is the {@link Flux} of CSV chunks
+ * written to the socket as the client reads it. Errors are answered with the same status codes
+ * and {@link AppError400} body as the blocking endpoints.
+ *
+ * @see org.turkovaleksey.emailservice.configs.ReactiveConfig
+ */
+@Component
+@ConditionalOnProperty(prefix = "email-service.reactive", name = "enabled", havingValue = "true")
+public class ReactiveEmailController {
+    private static final Logger logger = LoggerFactory.getLogger(ReactiveEmailController.class);
+    private final IReactiveEmailService emailService;
+
+    /**
+     * Instantiates a new Reactive email controller.
+     *
+     * @param emailService the reactive email service
+     */
+    @Autowired
+    public ReactiveEmailController(IReactiveEmailService emailService) {
+        this.emailService = emailService;
+    }
+
+    /**
+     * Saves the email address from the request body.
+     *
+     * @param request The request with the email address as body.
+     * @return A Mono of the response with a success message, 409 if the email already exists.
+     */
+    public Mono<ServerResponse> saveEmail(ServerRequest request) {
+        logger.debug("saveEmail() call save()");
+        return request.bodyToMono(String.class)
+                .switchIfEmpty(Mono.error(() -> new ServerWebInputException("Required request body is missing")))
+                .flatMap(emailService::save)
+                .then(ServerResponse.ok().contentType(MediaType.TEXT_PLAIN).bodyValue(SUCCESS_SAVE_EMAIL))
+                .onErrorResume(this::handleError);
+    }
+
+    /**
+     * Streams all emails as a CSV file.
+     *
+     * @param request The request.
+     * @return A Mono of the response with the CSV chunks as body.
+     */
+    public Mono<ServerResponse> downloadEmails(ServerRequest request) {
+        logger.debug("downloadEmails() call exportEmailsAsCsv()");
+        return csv("emails.csv", emailService.exportEmailsAsCsv());
+    }
+
+    /**
+     * Streams the emails within the period from the request body as a CSV file.
+     *
+     * @param request The request with the MailCreatePeriod as body.
+     * @return A Mono of the response with the CSV chunks as body, 400 if the period is incorrect.
+     */
+    public Mono<ServerResponse> downloadEmailsByPeriod(ServerRequest request) {
+        logger.debug("downloadEmailsByPeriod() call exportEmailsByPeriodAsCsv()");
+        return request.bodyToMono(MailCreatePeriod.class)
+                .switchIfEmpty(Mono.error(() -> new ServerWebInputException("Required request body is missing")))
+                .flatMap(period -> csv("emails_with_period.csv", emailService.exportEmailsByPeriodAsCsv(period)))
+                .onErrorResume(this::handleError);
+    }
+
+    private static Mono<ServerResponse> csv(String fileName, Flux<DataBuffer> body) {
+        return ServerResponse.ok()
+                .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                .headers(headers -> headers.setContentDispositionFormData("attachment", fileName))
+                .body(body, DataBuffer.class);
+    }
+
+    private Mono<ServerResponse> handleError(Throwable e) {
+        if (e instanceof EmailAlreadyExistsException) {
+            logger.warn("EmailAlreadyExistsException - {}", e.getMessage());
+            return error(HttpStatus.CONFLICT, "EmailAlreadyExistsException", e.getMessage());
+        }
+        if (e instanceof InvalidEmailException) {
+            logger.warn("InvalidEmailException - {}", e.getMessage());
+            return error(HttpStatus.BAD_REQUEST, "InvalidEmailException", e.getMessage());
+        }
+        if (e instanceof IncorrectPeriodException) {
+            logger.error("IncorrectPeriodException - {}", e.getMessage());
+            return error(HttpStatus.BAD_REQUEST, "IncorrectPeriodException", e.getMessage());
+        }
+        if (e instanceof ServerWebInputException) {
+            logger.error("ServerWebInputException - {}", e.getMessage());
+            return error(HttpStatus.BAD_REQUEST, "ServerWebInputException", e.getMessage());
+        }
+        if (e instanceof DataAccessException) {
+            logger.error("DataAccessException - {}", e.getMessage());
+            return error(HttpStatus.INTERNAL_SERVER_ERROR, "DataAccessException", e.getMessage());
+        }
+        return Mono.error(e);
+    }
+
+    private static Mono<ServerResponse> error(HttpStatus status, String errorClass, String message) {
+        return ServerResponse.status(status)
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(new AppError400(errorClass, Map.of("errorMessage", String.valueOf(message))));
+    }
+}
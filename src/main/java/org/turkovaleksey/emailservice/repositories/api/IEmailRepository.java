@@ -3,12 +3,34 @@ package org.turkovaleksey.emailservice.repositories.api;
 import org.turkovaleksey.emailservice.repositories.model.Email;
 import org.turkovaleksey.emailservice.services.dto.MailCreatePeriod;
 
+import java.time.LocalDate;
 import java.util.List;
+import java.util.Map;
 
 public interface IEmailRepository {
     List<Email> findAll();
 
     List<Email> findAllByPeriod(MailCreatePeriod mailCreatePeriod);
 
+    void streamAll(IEmailRowCallback callback);
+
+    void streamAllByPeriod(MailCreatePeriod mailCreatePeriod, IEmailRowCallback callback);
+
+    void streamByIdRange(long afterId, long upToId, IEmailRowCallback callback);
+
+    List<Email> findPage(long afterId, int limit, MailCreatePeriod mailCreatePeriod);
+
+    boolean existsByEmail(String email);
+
+    long findMaxId();
+
+    LocalDate findMinCreateDate();
+
+    long count();
+
+    Map<LocalDate, Long> countByCreateDate();
+
     void save(Email email);
+
+    int[] saveAll(List<Email> emails);
 }
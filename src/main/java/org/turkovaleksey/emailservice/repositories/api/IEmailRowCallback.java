@@ -0,0 +1,31 @@
+package org.turkovaleksey.emailservice.repositories.api;
+
+import java.time.LocalDate;
+
+/**
+ * Callback receiving the columns of every streamed emails row
+ * without an {@code Email} object being created for it.
+ */
+@FunctionalInterface
+public interface IEmailRowCallback {
+    void processRow(long id, LocalDate createDate, String email);
+
+    /**
+     * Tells the repository to measure the stages of the stream and report them
+     * to {@link #streamTimings(long, long, long)}. Untimed streams pay nothing for it.
+     */
+    default boolean isTimed() {
+        return false;
+    }
+
+    /**
+     * Receives the time spent on every stage once a timed stream is finished.
+     * The times may be estimated from a sample of the rows.
+     *
+     * @param queryNanos    the time spent executing the query and fetching rows from the cursor
+     * @param mappingNanos  the time spent reading the column values of the rows
+     * @param callbackNanos the time spent in {@link #processRow(long, LocalDate, String)}
+     */
+    default void streamTimings(long queryNanos, long mappingNanos, long callbackNanos) {
+    }
+}
@@ -0,0 +1,16 @@
+package org.turkovaleksey.emailservice.repositories.api;
+
+import org.turkovaleksey.emailservice.repositories.model.Email;
+import org.turkovaleksey.emailservice.services.dto.MailCreatePeriod;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+public interface IReactiveEmailRepository {
+    Flux<Email> streamAll();
+
+    Flux<Email> streamAllByPeriod(MailCreatePeriod mailCreatePeriod);
+
+    Mono<Boolean> existsByEmail(String email);
+
+    Mono<Long> save(Email email);
+}
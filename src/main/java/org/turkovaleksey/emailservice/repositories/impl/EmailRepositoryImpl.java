@@ -3,15 +3,34 @@ package org.turkovaleksey.emailservice.repositories.impl;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.jdbc.core.BeanPropertyRowMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.ArgumentPreparedStatementSetter;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.EmptySqlParameterSource;
 import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterUtils;
+import org.springframework.jdbc.core.namedparam.ParsedSql;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import org.turkovaleksey.emailservice.repositories.api.IEmailRepository;
+import org.turkovaleksey.emailservice.repositories.api.IEmailRowCallback;
 import org.turkovaleksey.emailservice.repositories.model.Email;
 import org.turkovaleksey.emailservice.services.dto.MailCreatePeriod;
 
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.LocalDate;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+
+import static org.turkovaleksey.emailservice.repositories.impl.EmailRowMapper.CREATE_DATE_COLUMN;
+import static org.turkovaleksey.emailservice.repositories.impl.EmailRowMapper.EMAIL_COLUMN;
+import static org.turkovaleksey.emailservice.repositories.impl.EmailRowMapper.ID_COLUMN;
 
 /**
  * The type Email repository.
@@ -19,7 +38,13 @@ import java.util.List;
 @Repository
 public class EmailRepositoryImpl implements IEmailRepository {
     private static final Logger logger = LoggerFactory.getLogger(EmailRepositoryImpl.class);
+    private static final int TIMING_SAMPLE_BATCHES = 16;
+    private static final int TIMING_BATCH_ROWS = 1000;
     private final NamedParameterJdbcTemplate jdbcTemplate;
+    @Value("${email-service.export.fetch-size:1000}")
+    private int fetchSize = 1000;
+    @Value("${email-service.save.batch-size:500}")
+    private int batchSize = 500;
 
     /**
      * Instantiates a new Email repository.
@@ -34,21 +59,21 @@ public class EmailRepositoryImpl implements IEmailRepository {
     /**
      * Retrieves all emails from the database.
      *
-     * @return A List of Email objects representing all emails in the database.
+     * @return A List of Email objects representing all emails in the database, ordered by id.
      * @see Email
      */
     @Override
     public List<Email> findAll() {
         logger.debug("findAll() do work");
         logger.debug("findAll() getting all emails from db");
-        return jdbcTemplate.query("SELECT id, create_date, email FROM emails", new BeanPropertyRowMapper<>(Email.class));
+        return jdbcTemplate.query("SELECT id, create_date, email FROM emails ORDER BY id", EmailRowMapper.INSTANCE);
     }
 
     /**
      * Retrieves all emails within the specified MailCreatePeriod from the database.
      *
      * @param mailCreatePeriod The MailCreatePeriod defining the period for which emails are to be retrieved.
-     * @return A List of Email objects representing all emails within the specified period.
+     * @return A List of Email objects representing all emails within the specified period, ordered by date and id.
      * @see Email
      * @see MailCreatePeriod
      */
@@ -59,7 +84,164 @@ public class EmailRepositoryImpl implements IEmailRepository {
         params.addValue("startDate", mailCreatePeriod.getStart());
         params.addValue("endDate", mailCreatePeriod.getEnd());
         logger.debug("findAllByPeriod() getting all emails by period from db");
-        return jdbcTemplate.query("SELECT * FROM emails WHERE create_date BETWEEN :startDate AND :endDate", params, new BeanPropertyRowMapper<>(Email.class));
+        return jdbcTemplate.query("SELECT id, create_date, email FROM emails WHERE create_date BETWEEN :startDate AND :endDate ORDER BY create_date, id", params, EmailRowMapper.INSTANCE);
+    }
+
+    /**
+     * Streams all emails from the database to the given callback one row at a time, ordered by id.
+     * The query runs on a forward-only, read-only cursor with the configured fetch size,
+     * so only one fetch batch is held in memory regardless of the table size.
+     * The read-only transaction lets the driver use a server-side cursor.
+     * Rows are handed over as column values, no Email object is created for them.
+     *
+     * @param callback The callback receiving the columns of each row as it is read.
+     * @see IEmailRowCallback
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public void streamAll(IEmailRowCallback callback) {
+        logger.debug("streamAll() do work");
+        logger.debug("streamAll() streaming all emails from db with fetchSize = {}", fetchSize);
+        stream("SELECT id, create_date, email FROM emails ORDER BY id", EmptySqlParameterSource.INSTANCE, callback);
+    }
+
+    /**
+     * Streams all emails within the specified MailCreatePeriod to the given callback one row at a time.
+     * Rows are ordered by creation date and id, so all emails of one day are handed over together.
+     * The filter and the order are served by the {@code (create_date, id) INCLUDE (email)} index.
+     *
+     * @param mailCreatePeriod The MailCreatePeriod defining the period for which emails are to be streamed.
+     * @param callback         The callback receiving the columns of each row as it is read.
+     * @see #streamAll(IEmailRowCallback)
+     * @see MailCreatePeriod
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public void streamAllByPeriod(MailCreatePeriod mailCreatePeriod, IEmailRowCallback callback) {
+        logger.debug("streamAllByPeriod() with MailCreatePeriod = {}", mailCreatePeriod);
+        MapSqlParameterSource params = new MapSqlParameterSource();
+        params.addValue("startDate", mailCreatePeriod.getStart());
+        params.addValue("endDate", mailCreatePeriod.getEnd());
+        logger.debug("streamAllByPeriod() streaming emails by period from db with fetchSize = {}", fetchSize);
+        stream("SELECT id, create_date, email FROM emails WHERE create_date BETWEEN :startDate AND :endDate ORDER BY create_date, id", params, callback);
+    }
+
+    /**
+     * Streams the emails with an id in {@code (afterId, upToId]} to the given callback, ordered by id.
+     * The rows are located with a range scan of the primary key index, so the cost depends on the
+     * number of new rows and not on the size of the table.
+     *
+     * @param afterId  The greatest id the caller already has, 0 to start from the first email.
+     * @param upToId   The greatest id to be streamed.
+     * @param callback The callback receiving the columns of each row as it is read.
+     * @see #streamAll(IEmailRowCallback)
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public void streamByIdRange(long afterId, long upToId, IEmailRowCallback callback) {
+        logger.debug("streamByIdRange() with afterId = {}, upToId = {}", afterId, upToId);
+        MapSqlParameterSource params = new MapSqlParameterSource();
+        params.addValue("afterId", afterId);
+        params.addValue("upToId", upToId);
+        logger.debug("streamByIdRange() streaming emails by id range from db with fetchSize = {}", fetchSize);
+        stream("SELECT id, create_date, email FROM emails WHERE id > :afterId AND id <= :upToId ORDER BY id", params, callback);
+    }
+
+    /**
+     * Retrieves up to {@code limit} emails with an id greater than {@code afterId}, ordered by id.
+     * The page is located with the primary key index instead of OFFSET, so every page costs
+     * the same no matter how deep into the table it is.
+     *
+     * @param afterId          The id of the last email of the previous page, 0 for the first page.
+     * @param limit            The maximum number of emails to be retrieved.
+     * @param mailCreatePeriod The optional period filter, either bound may be {@code null}.
+     * @return A List of Email objects ordered by id.
+     * @see Email
+     * @see MailCreatePeriod
+     */
+    @Override
+    public List<Email> findPage(long afterId, int limit, MailCreatePeriod mailCreatePeriod) {
+        logger.debug("findPage() with afterId = {}, limit = {}, MailCreatePeriod = {}", afterId, limit, mailCreatePeriod);
+        MapSqlParameterSource params = new MapSqlParameterSource();
+        params.addValue("afterId", afterId);
+        params.addValue("limit", limit);
+        StringBuilder sql = new StringBuilder("SELECT id, create_date, email FROM emails WHERE id > :afterId");
+        if (mailCreatePeriod != null && mailCreatePeriod.getStart() != null) {
+            sql.append(" AND create_date >= :startDate");
+            params.addValue("startDate", mailCreatePeriod.getStart());
+        }
+        if (mailCreatePeriod != null && mailCreatePeriod.getEnd() != null) {
+            sql.append(" AND create_date <= :endDate");
+            params.addValue("endDate", mailCreatePeriod.getEnd());
+        }
+        sql.append(" ORDER BY id LIMIT :limit");
+        logger.debug("findPage() getting page of emails from db");
+        return jdbcTemplate.query(sql.toString(), params, EmailRowMapper.INSTANCE);
+    }
+
+    /**
+     * Checks whether the email is already stored, using the unique index on the email column.
+     *
+     * @param email The email address to be checked.
+     * @return {@code true} if the email is stored in the database.
+     */
+    @Override
+    public boolean existsByEmail(String email) {
+        logger.debug("existsByEmail() with email = {}", email);
+        MapSqlParameterSource params = new MapSqlParameterSource();
+        params.addValue("email", email);
+        Boolean exists = jdbcTemplate.queryForObject("SELECT EXISTS (SELECT 1 FROM emails WHERE email = :email)", params, Boolean.class);
+        return Boolean.TRUE.equals(exists);
+    }
+
+    /**
+     * Retrieves the greatest id of the emails table using the primary key index.
+     *
+     * @return The greatest id, or 0 if the table is empty.
+     */
+    @Override
+    public long findMaxId() {
+        logger.debug("findMaxId() do work");
+        Long maxId = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM emails", EmptySqlParameterSource.INSTANCE, Long.class);
+        return maxId == null ? 0 : maxId;
+    }
+
+    /**
+     * Finds the earliest creation date, read from the create_date index.
+     *
+     * @return The first day with emails, or {@code null} if the table is empty.
+     */
+    @Override
+    public LocalDate findMinCreateDate() {
+        logger.debug("findMinCreateDate() do work");
+        return jdbcTemplate.queryForObject("SELECT MIN(create_date) FROM emails", EmptySqlParameterSource.INSTANCE, LocalDate.class);
+    }
+
+    /**
+     * Counts the emails stored in the database.
+     *
+     * @return The number of rows of the emails table.
+     */
+    @Override
+    public long count() {
+        logger.debug("count() do work");
+        Long count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM emails", EmptySqlParameterSource.INSTANCE, Long.class);
+        return count == null ? 0 : count;
+    }
+
+    /**
+     * Counts the emails of every creation date with one aggregate query over the {@code create_date} index.
+     *
+     * @return The number of emails per creation date, dates without emails are missing.
+     */
+    @Override
+    public Map<LocalDate, Long> countByCreateDate() {
+        logger.debug("countByCreateDate() do work");
+        Map<LocalDate, Long> counts = new HashMap<>();
+        jdbcTemplate.query("SELECT create_date, COUNT(*) FROM emails WHERE create_date IS NOT NULL GROUP BY create_date",
+                EmptySqlParameterSource.INSTANCE,
+                (RowCallbackHandler) rs -> counts.put(rs.getObject(1, LocalDate.class), rs.getLong(2)));
+        return counts;
     }
 
     /**
@@ -77,4 +259,104 @@ public class EmailRepositoryImpl implements IEmailRepository {
         logger.debug("save() insert Email = {} to db", currentEmail);
         jdbcTemplate.update("INSERT INTO emails (create_date, email) VALUES (:createDate, :email)", params);
     }
+
+    /**
+     * Saves the provided Email objects to the database using JDBC batch inserts.
+     * The list is sent in chunks of the configured batch size. Emails that already exist
+     * are skipped by the database instead of failing the whole batch.
+     *
+     * @param emails The Email objects to be saved.
+     * @return The update count for every email in list order: 0 if the email already exists.
+     * @see Email
+     */
+    @Override
+    @Transactional
+    public int[] saveAll(List<Email> emails) {
+        logger.debug("saveAll() with {} emails and batchSize = {}", emails.size(), batchSize);
+        int[] updateCounts = new int[emails.size()];
+        for (int from = 0; from < emails.size(); from += batchSize) {
+            List<Email> chunk = emails.subList(from, Math.min(from + batchSize, emails.size()));
+            SqlParameterSource[] batch = new SqlParameterSource[chunk.size()];
+            for (int i = 0; i < chunk.size(); i++) {
+                MapSqlParameterSource params = new MapSqlParameterSource();
+                params.addValue("createDate", chunk.get(i).getCreateDate());
+                params.addValue("email", chunk.get(i).getEmail());
+                batch[i] = params;
+            }
+            logger.debug("saveAll() insert batch of {} emails to db", batch.length);
+            int[] chunkCounts = jdbcTemplate.batchUpdate(
+                    "INSERT INTO emails (create_date, email) VALUES (:createDate, :email) ON CONFLICT (email) DO NOTHING", batch);
+            System.arraycopy(chunkCounts, 0, updateCounts, from, chunkCounts.length);
+        }
+        return updateCounts;
+    }
+
+    /**
+     * Executes a named-parameter query on a forward-only cursor with the configured fetch size
+     * and hands the columns of every row over to the callback.
+     * The query must select the columns in the order {@code id, create_date, email}.
+     * For a timed callback the mapping and the callback are only measured on the rows of every
+     * {@value #TIMING_SAMPLE_BATCHES}th fetch batch and scaled to all rows, so most rows cost no clock
+     * reads; the query stage is the rest of the total time, which includes every round trip.
+     * The timings are reported once the result set is exhausted.
+     *
+     * @param sql      The SQL query with named parameters.
+     * @param params   The values of the named parameters.
+     * @param callback The callback receiving the columns of each row.
+     * @see IEmailRowCallback#isTimed()
+     */
+    private void stream(String sql, SqlParameterSource params, IEmailRowCallback callback) {
+        ParsedSql parsedSql = NamedParameterUtils.parseSqlStatement(sql);
+        String sqlToUse = NamedParameterUtils.substituteNamedParameters(parsedSql, params);
+        Object[] values = NamedParameterUtils.buildValueArray(parsedSql, params, null);
+        PreparedStatementCreator statementCreator = connection -> {
+            PreparedStatement statement = connection.prepareStatement(sqlToUse, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            statement.setFetchSize(fetchSize);
+            new ArgumentPreparedStatementSetter(values).setValues(statement);
+            return statement;
+        };
+        if (!callback.isTimed()) {
+            RowCallbackHandler rowCallbackHandler = resultSet -> callback.processRow(
+                    resultSet.getLong(ID_COLUMN),
+                    resultSet.getObject(CREATE_DATE_COLUMN, LocalDate.class),
+                    resultSet.getString(EMAIL_COLUMN));
+            jdbcTemplate.getJdbcOperations().query(statementCreator, rowCallbackHandler);
+            return;
+        }
+        long start = System.nanoTime();
+        jdbcTemplate.getJdbcOperations().query(statementCreator, (ResultSetExtractor<Void>) resultSet -> {
+            int batchRows = fetchSize > 0 ? fetchSize : TIMING_BATCH_ROWS;
+            long rows = 0;
+            long sampledRows = 0;
+            long mappingNanos = 0;
+            long callbackNanos = 0;
+            while (resultSet.next()) {
+                if (rows / batchRows % TIMING_SAMPLE_BATCHES == 0) {
+                    long mappingStart = System.nanoTime();
+                    long id = resultSet.getLong(ID_COLUMN);
+                    LocalDate createDate = resultSet.getObject(CREATE_DATE_COLUMN, LocalDate.class);
+                    String email = resultSet.getString(EMAIL_COLUMN);
+                    long callbackStart = System.nanoTime();
+                    mappingNanos += callbackStart - mappingStart;
+                    callback.processRow(id, createDate, email);
+                    callbackNanos += System.nanoTime() - callbackStart;
+                    sampledRows++;
+                } else {
+                    callback.processRow(
+                            resultSet.getLong(ID_COLUMN),
+                            resultSet.getObject(CREATE_DATE_COLUMN, LocalDate.class),
+                            resultSet.getString(EMAIL_COLUMN));
+                }
+                rows++;
+            }
+            long totalNanos = System.nanoTime() - start;
+            if (sampledRows > 0 && sampledRows < rows) {
+                double scale = (double) rows / sampledRows;
+                mappingNanos = (long) (mappingNanos * scale);
+                callbackNanos = (long) (callbackNanos * scale);
+            }
+            callback.streamTimings(Math.max(totalNanos - mappingNanos - callbackNanos, 0), mappingNanos, callbackNanos);
+            return null;
+        });
+    }
 }
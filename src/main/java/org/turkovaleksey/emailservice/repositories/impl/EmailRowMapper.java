@@ -0,0 +1,33 @@
+package org.turkovaleksey.emailservice.repositories.impl;
+
+import org.springframework.jdbc.core.RowMapper;
+import org.turkovaleksey.emailservice.repositories.model.Email;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+
+/**
+ * Row mapper for the emails table reading the columns by index.
+ * Unlike {@code BeanPropertyRowMapper} it does not inspect the result set metadata or match
+ * properties by reflection, and {@code create_date} is read straight into a {@link LocalDate}.
+ * The query must select the columns in the order {@code id, create_date, email}.
+ *
+ * @see Email
+ */
+public final class EmailRowMapper implements RowMapper<Email> {
+    public static final EmailRowMapper INSTANCE = new EmailRowMapper();
+    static final int ID_COLUMN = 1;
+    static final int CREATE_DATE_COLUMN = 2;
+    static final int EMAIL_COLUMN = 3;
+
+    private EmailRowMapper() {
+    }
+
+    @Override
+    public Email mapRow(ResultSet resultSet, int rowNum) throws SQLException {
+        Email email = new Email(resultSet.getObject(CREATE_DATE_COLUMN, LocalDate.class), resultSet.getString(EMAIL_COLUMN));
+        email.setId(resultSet.getLong(ID_COLUMN));
+        return email;
+    }
+}
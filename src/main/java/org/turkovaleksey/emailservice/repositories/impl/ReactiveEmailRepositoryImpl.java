@@ -0,0 +1,118 @@
+package org.turkovaleksey.emailservice.repositories.impl;
+
+import io.r2dbc.spi.Readable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import org.turkovaleksey.emailservice.repositories.api.IReactiveEmailRepository;
+import org.turkovaleksey.emailservice.repositories.model.Email;
+import org.turkovaleksey.emailservice.services.dto.MailCreatePeriod;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDate;
+
+/**
+ * R2DBC implementation of the email repository used by the reactive endpoints.
+ * Queries return a cold {@link Flux} that reads rows on demand: the statement runs with the configured
+ * fetch size, so the driver fetches the next batch of the cursor only when the subscriber has requested
+ * the rows of the previous one. A slow consumer therefore holds back the database instead of
+ * filling the memory.
+ *
+ * @see EmailRepositoryImpl
+ */
+@Repository
+@ConditionalOnProperty(prefix = "email-service.reactive", name = "enabled", havingValue = "true")
+public class ReactiveEmailRepositoryImpl implements IReactiveEmailRepository {
+    private static final Logger logger = LoggerFactory.getLogger(ReactiveEmailRepositoryImpl.class);
+    private final DatabaseClient databaseClient;
+    private final int fetchSize;
+
+    /**
+     * Instantiates a new Reactive email repository.
+     *
+     * @param databaseClient the reactive database client
+     * @param fetchSize      the number of rows fetched from the cursor at once
+     */
+    @Autowired
+    public ReactiveEmailRepositoryImpl(DatabaseClient databaseClient,
+                                       @Value("${email-service.export.fetch-size:1000}") int fetchSize) {
+        this.databaseClient = databaseClient;
+        this.fetchSize = fetchSize;
+    }
+
+    /**
+     * Streams all emails from the database, ordered by id.
+     *
+     * @return A Flux of Email objects emitted as they are requested.
+     * @see Email
+     */
+    @Override
+    public Flux<Email> streamAll() {
+        logger.debug("streamAll() streaming all emails from db with fetchSize = {}", fetchSize);
+        return databaseClient.sql("SELECT id, create_date, email FROM emails ORDER BY id")
+                .filter((statement, next) -> next.execute(statement.fetchSize(fetchSize)))
+                .map(ReactiveEmailRepositoryImpl::mapRow)
+                .all();
+    }
+
+    /**
+     * Streams all emails within the specified MailCreatePeriod, ordered by date and id.
+     *
+     * @param mailCreatePeriod The MailCreatePeriod defining the period for which emails are to be streamed.
+     * @return A Flux of Email objects emitted as they are requested.
+     * @see MailCreatePeriod
+     */
+    @Override
+    public Flux<Email> streamAllByPeriod(MailCreatePeriod mailCreatePeriod) {
+        logger.debug("streamAllByPeriod() with MailCreatePeriod = {}", mailCreatePeriod);
+        return databaseClient.sql("SELECT id, create_date, email FROM emails WHERE create_date BETWEEN :startDate AND :endDate ORDER BY create_date, id")
+                .bind("startDate", mailCreatePeriod.getStart())
+                .bind("endDate", mailCreatePeriod.getEnd())
+                .filter((statement, next) -> next.execute(statement.fetchSize(fetchSize)))
+                .map(ReactiveEmailRepositoryImpl::mapRow)
+                .all();
+    }
+
+    /**
+     * Checks whether the email is already stored, using the unique index on the email column.
+     *
+     * @param email The email address to be checked.
+     * @return A Mono emitting {@code true} if the email is stored in the database.
+     */
+    @Override
+    public Mono<Boolean> existsByEmail(String email) {
+        logger.debug("existsByEmail() with email = {}", email);
+        return databaseClient.sql("SELECT EXISTS (SELECT 1 FROM emails WHERE email = :email)")
+                .bind("email", email)
+                .map(row -> Boolean.TRUE.equals(row.get(0, Boolean.class)))
+                .one();
+    }
+
+    /**
+     * Inserts the email unless the address is already stored.
+     *
+     * @param email The Email object to be saved.
+     * @return A Mono emitting the number of inserted rows, 0 if the email already exists.
+     * @see Email
+     */
+    @Override
+    public Mono<Long> save(Email email) {
+        logger.debug("save() insert Email = {} to db", email);
+        return databaseClient.sql("INSERT INTO emails (create_date, email) VALUES (:createDate, :email) ON CONFLICT (email) DO NOTHING")
+                .bind("createDate", email.getCreateDate())
+                .bind("email", email.getEmail())
+                .fetch()
+                .rowsUpdated();
+    }
+
+    private static Email mapRow(Readable row) {
+        Email email = new Email(row.get("create_date", LocalDate.class), row.get("email", String.class));
+        email.setId(row.get("id", Long.class));
+        return email;
+    }
+}
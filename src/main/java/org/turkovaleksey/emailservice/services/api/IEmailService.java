@@ -1,11 +1,46 @@
 package org.turkovaleksey.emailservice.services.api;
 
+import org.turkovaleksey.emailservice.services.dto.BulkSaveResult;
+import org.turkovaleksey.emailservice.services.dto.EmailDailyStats;
+import org.turkovaleksey.emailservice.services.dto.EmailPage;
+import org.turkovaleksey.emailservice.services.dto.ExportCacheStats;
+import org.turkovaleksey.emailservice.services.dto.ExportVersion;
 import org.turkovaleksey.emailservice.services.dto.MailCreatePeriod;
 
+import java.io.OutputStream;
+import java.nio.file.Path;
+import java.util.List;
+
 public interface IEmailService {
     String getEmailsAsCsv();
 
     String getEmailsByPeriodAsCsv(MailCreatePeriod mailCreatePeriod);
 
+    void writeEmailsAsCsv(OutputStream outputStream);
+
+    void writeEmailsAsCsv(ExportVersion exportVersion, OutputStream outputStream);
+
+    ExportVersion getExportVersion();
+
+    Path getExportSnapshot(ExportVersion exportVersion);
+
+    void writeEmailsByPeriodAsCsv(MailCreatePeriod mailCreatePeriod, OutputStream outputStream);
+
+    void writeEmailsByPeriodAsZip(MailCreatePeriod mailCreatePeriod, OutputStream outputStream);
+
+    long getHighWaterMark();
+
+    void writeEmailsSinceAsCsv(long afterId, long highWaterMark, OutputStream outputStream);
+
+    EmailPage getPage(long afterId, int limit, MailCreatePeriod mailCreatePeriod);
+
+    ExportCacheStats getExportCacheStats();
+
+    EmailDailyStats getDailyStats(MailCreatePeriod mailCreatePeriod);
+
+    void checkDateOnValid(MailCreatePeriod mailCreatePeriod);
+
     void save(String email);
+
+    BulkSaveResult saveAll(List<String> emails);
 }
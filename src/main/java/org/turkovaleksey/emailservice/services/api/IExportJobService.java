@@ -0,0 +1,16 @@
+package org.turkovaleksey.emailservice.services.api;
+
+import org.turkovaleksey.emailservice.services.dto.ExportJobStatus;
+import org.turkovaleksey.emailservice.services.dto.MailCreatePeriod;
+
+import java.nio.file.Path;
+
+public interface IExportJobService {
+    ExportJobStatus submit(MailCreatePeriod mailCreatePeriod, String owner);
+
+    ExportJobStatus getStatus(String id, String owner);
+
+    Path getFile(String id, String owner);
+
+    void delete(String id, String owner);
+}
@@ -4,4 +4,13 @@ public interface IMessage {
     String SUCCESS_SAVE_EMAIL = "Your email has been successfully saved";
     String CONVERT_LIST_TO_CSV_EXCEPTION = "Failed to convert email list to csv file";
     String INCORRECT_DATE_EXCEPTION = "The date must be greater than or equal to the start date";
+    String INVALID_EMAIL_EXCEPTION = "The email must be a valid address of at most 100 characters";
+    String EMAIL_ALREADY_EXISTS_EXCEPTION = "This email has already been saved";
+    String INGESTION_QUEUE_FULL_EXCEPTION = "Too many emails are waiting to be saved, try again later";
+    String UNSUPPORTED_EXPORT_FORMAT_EXCEPTION = "The format must be csv or gzip, zip is only available for a period";
+    String SAVE_RATE_LIMIT_EXCEPTION = "Too many save requests, try again later";
+    String SAVE_CONCURRENCY_LIMIT_EXCEPTION = "Too many save requests are in progress, try again later";
+    String EXPORT_JOB_NOT_FOUND_EXCEPTION = "The export job does not exist or has expired";
+    String EXPORT_JOB_NOT_READY_EXCEPTION = "The export job has not finished successfully yet";
+    String EXPORT_JOBS_LIMIT_EXCEPTION = "Too many export jobs are queued, try again later";
 }
@@ -0,0 +1,14 @@
+package org.turkovaleksey.emailservice.services.api;
+
+import org.springframework.core.io.buffer.DataBuffer;
+import org.turkovaleksey.emailservice.services.dto.MailCreatePeriod;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+public interface IReactiveEmailService {
+    Flux<DataBuffer> exportEmailsAsCsv();
+
+    Flux<DataBuffer> exportEmailsByPeriodAsCsv(MailCreatePeriod mailCreatePeriod);
+
+    Mono<Void> save(String email);
+}
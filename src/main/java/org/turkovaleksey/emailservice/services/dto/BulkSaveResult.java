@@ -0,0 +1,50 @@
+package org.turkovaleksey.emailservice.services.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class BulkSaveResult {
+    @Schema(description = "Number of inserted emails", example = "2")
+    private int inserted;
+    @Schema(description = "Number of emails that already exist", example = "1")
+    private int duplicates;
+    @Schema(description = "Number of invalid emails", example = "0")
+    private int invalid;
+    @Schema(description = "Result for every email in request order")
+    private List<EmailSaveResult> results = new ArrayList<>();
+
+    public BulkSaveResult() {
+    }
+
+    public void add(String email, SaveStatus status) {
+        results.add(new EmailSaveResult(email, status));
+        switch (status) {
+            case INSERTED -> inserted++;
+            case DUPLICATE -> duplicates++;
+            case INVALID -> invalid++;
+        }
+    }
+
+    public int getInserted() {
+        return inserted;
+    }
+
+    public int getDuplicates() {
+        return duplicates;
+    }
+
+    public int getInvalid() {
+        return invalid;
+    }
+
+    public List<EmailSaveResult> getResults() {
+        return results;
+    }
+
+    @Override
+    public String toString() {
+        return "inserted=" + inserted + ", duplicates=" + duplicates + ", invalid=" + invalid;
+    }
+}
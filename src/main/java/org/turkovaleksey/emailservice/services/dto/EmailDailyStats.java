@@ -0,0 +1,46 @@
+package org.turkovaleksey.emailservice.services.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.time.LocalDate;
+import java.util.Map;
+
+public class EmailDailyStats {
+    @Schema(description = "First day of the period", example = "2023-01-01")
+    private final LocalDate start;
+    @Schema(description = "Last day of the period", example = "2023-01-31")
+    private final LocalDate end;
+    @Schema(description = "Number of emails created within the period", example = "42")
+    private final long total;
+    @Schema(description = "Number of emails per creation date in date order, days without emails are omitted",
+            example = "{\"2023-01-01\": 40, \"2023-01-03\": 2}")
+    private final Map<LocalDate, Long> days;
+
+    public EmailDailyStats(LocalDate start, LocalDate end, long total, Map<LocalDate, Long> days) {
+        this.start = start;
+        this.end = end;
+        this.total = total;
+        this.days = days;
+    }
+
+    public LocalDate getStart() {
+        return start;
+    }
+
+    public LocalDate getEnd() {
+        return end;
+    }
+
+    public long getTotal() {
+        return total;
+    }
+
+    public Map<LocalDate, Long> getDays() {
+        return days;
+    }
+
+    @Override
+    public String toString() {
+        return "start=" + start + ", end=" + end + ", total=" + total + ", days=" + days.size();
+    }
+}
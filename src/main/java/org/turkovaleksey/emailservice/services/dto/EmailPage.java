@@ -0,0 +1,34 @@
+package org.turkovaleksey.emailservice.services.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import org.turkovaleksey.emailservice.repositories.model.Email;
+
+import java.util.List;
+
+public class EmailPage {
+    @Schema(description = "Emails of the page ordered by id")
+    private List<Email> emails;
+    @Schema(description = "Value of afterId for the next page, null on the last page", example = "100")
+    private Long nextCursor;
+
+    public EmailPage() {
+    }
+
+    public EmailPage(List<Email> emails, Long nextCursor) {
+        this.emails = emails;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<Email> getEmails() {
+        return emails;
+    }
+
+    public Long getNextCursor() {
+        return nextCursor;
+    }
+
+    @Override
+    public String toString() {
+        return "emails=" + emails.size() + ", nextCursor=" + nextCursor;
+    }
+}
@@ -0,0 +1,54 @@
+package org.turkovaleksey.emailservice.services.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.util.Objects;
+
+public class EmailSaveResult {
+    @Schema(description = "Email", example = "example@email.com")
+    private String email;
+    @Schema(description = "Save status", example = "INSERTED")
+    private SaveStatus status;
+
+    public EmailSaveResult() {
+    }
+
+    public EmailSaveResult(String email, SaveStatus status) {
+        this.email = email;
+        this.status = status;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public void setEmail(String email) {
+        this.email = email;
+    }
+
+    public SaveStatus getStatus() {
+        return status;
+    }
+
+    public void setStatus(SaveStatus status) {
+        this.status = status;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        EmailSaveResult that = (EmailSaveResult) o;
+        return Objects.equals(email, that.email) && status == that.status;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(email, status);
+    }
+
+    @Override
+    public String toString() {
+        return "email=" + email + ", status=" + status;
+    }
+}
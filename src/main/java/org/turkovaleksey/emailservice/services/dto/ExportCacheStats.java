@@ -0,0 +1,49 @@
+package org.turkovaleksey.emailservice.services.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+public class ExportCacheStats {
+    @Schema(description = "Number of exports served from the cache", example = "42")
+    private final long hits;
+    @Schema(description = "Number of cacheable exports read from the database", example = "3")
+    private final long misses;
+    @Schema(description = "Number of cached exports", example = "3")
+    private final int entries;
+    @Schema(description = "Total size of the cached exports in bytes", example = "1048576")
+    private final long bytes;
+    @Schema(description = "Maximum total size of the cached exports in bytes", example = "67108864")
+    private final long maxBytes;
+
+    public ExportCacheStats(long hits, long misses, int entries, long bytes, long maxBytes) {
+        this.hits = hits;
+        this.misses = misses;
+        this.entries = entries;
+        this.bytes = bytes;
+        this.maxBytes = maxBytes;
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+
+    public int getEntries() {
+        return entries;
+    }
+
+    public long getBytes() {
+        return bytes;
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    @Override
+    public String toString() {
+        return "hits=" + hits + ", misses=" + misses + ", entries=" + entries + ", bytes=" + bytes;
+    }
+}
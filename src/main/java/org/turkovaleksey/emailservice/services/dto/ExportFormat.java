@@ -0,0 +1,59 @@
+package org.turkovaleksey.emailservice.services.dto;
+
+import org.springframework.http.MediaType;
+import org.turkovaleksey.emailservice.services.exceptions.UnsupportedExportFormatException;
+
+import static org.turkovaleksey.emailservice.services.api.IMessage.UNSUPPORTED_EXPORT_FORMAT_EXCEPTION;
+
+/**
+ * File format of an emails export, selected with the {@code format} request parameter.
+ */
+public enum ExportFormat {
+    /**
+     * Plain CSV file.
+     */
+    CSV(MediaType.APPLICATION_OCTET_STREAM, ".csv"),
+    /**
+     * CSV file compressed with gzip while it is streamed.
+     */
+    GZIP(MediaType.parseMediaType("application/gzip"), ".csv.gz"),
+    /**
+     * ZIP archive with one CSV entry per day of the period.
+     */
+    ZIP(MediaType.parseMediaType("application/zip"), ".zip");
+
+    private final MediaType mediaType;
+    private final String fileExtension;
+
+    ExportFormat(MediaType mediaType, String fileExtension) {
+        this.mediaType = mediaType;
+        this.fileExtension = fileExtension;
+    }
+
+    public MediaType getMediaType() {
+        return mediaType;
+    }
+
+    public String getFileExtension() {
+        return fileExtension;
+    }
+
+    /**
+     * Resolves the export format from the request parameter, ignoring case.
+     *
+     * @param format The value of the format parameter, may be {@code null}.
+     * @return The requested ExportFormat, or {@link #CSV} if no format is given.
+     * @throws UnsupportedExportFormatException If the format is unknown.
+     */
+    public static ExportFormat fromParameter(String format) {
+        if (format == null || format.isBlank()) {
+            return CSV;
+        }
+        for (ExportFormat exportFormat : values()) {
+            if (exportFormat.name().equalsIgnoreCase(format.trim())) {
+                return exportFormat;
+            }
+        }
+        throw new UnsupportedExportFormatException(UNSUPPORTED_EXPORT_FORMAT_EXCEPTION);
+    }
+}
@@ -0,0 +1,23 @@
+package org.turkovaleksey.emailservice.services.dto;
+
+/**
+ * State of an asynchronous export job.
+ */
+public enum ExportJobState {
+    /**
+     * Waiting for a free export worker.
+     */
+    QUEUED,
+    /**
+     * The export file is being written.
+     */
+    RUNNING,
+    /**
+     * The export file is ready for download until the job expires.
+     */
+    DONE,
+    /**
+     * The export failed, the error message is reported until the job expires.
+     */
+    FAILED
+}
@@ -0,0 +1,88 @@
+package org.turkovaleksey.emailservice.services.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.time.Instant;
+import java.time.LocalDate;
+
+public class ExportJobStatus {
+    @Schema(description = "Id of the export job", example = "3f1c9e0a-5d1b-4a57-9a43-0c1b8f7e2d10")
+    private final String id;
+    @Schema(description = "State of the export job", example = "RUNNING")
+    private final ExportJobState state;
+    @Schema(description = "All emails from date YYYY-MM-DD", example = "2020-01-01")
+    private final LocalDate start;
+    @Schema(description = "All emails by date YYYY-MM-DD", example = "2023-12-31")
+    private final LocalDate end;
+    @Schema(description = "Number of rows written so far", example = "125000")
+    private final long rows;
+    @Schema(description = "Number of bytes written so far", example = "4500000")
+    private final long bytes;
+    @Schema(description = "Time the job was submitted")
+    private final Instant createdAt;
+    @Schema(description = "Time the job finished, null while it is queued or running")
+    private final Instant finishedAt;
+    @Schema(description = "Time the job and its file are deleted, null while it is queued or running")
+    private final Instant expiresAt;
+    @Schema(description = "Error message of a failed job", example = "Failed to convert email list to csv file")
+    private final String errorMessage;
+
+    public ExportJobStatus(String id, ExportJobState state, LocalDate start, LocalDate end, long rows, long bytes,
+                           Instant createdAt, Instant finishedAt, Instant expiresAt, String errorMessage) {
+        this.id = id;
+        this.state = state;
+        this.start = start;
+        this.end = end;
+        this.rows = rows;
+        this.bytes = bytes;
+        this.createdAt = createdAt;
+        this.finishedAt = finishedAt;
+        this.expiresAt = expiresAt;
+        this.errorMessage = errorMessage;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public ExportJobState getState() {
+        return state;
+    }
+
+    public LocalDate getStart() {
+        return start;
+    }
+
+    public LocalDate getEnd() {
+        return end;
+    }
+
+    public long getRows() {
+        return rows;
+    }
+
+    public long getBytes() {
+        return bytes;
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+
+    public Instant getFinishedAt() {
+        return finishedAt;
+    }
+
+    public Instant getExpiresAt() {
+        return expiresAt;
+    }
+
+    public String getErrorMessage() {
+        return errorMessage;
+    }
+
+    @Override
+    public String toString() {
+        return "id=" + id + ", state=" + state + ", rows=" + rows + ", bytes=" + bytes;
+    }
+}
@@ -0,0 +1,40 @@
+package org.turkovaleksey.emailservice.services.dto;
+
+/**
+ * Validator of the full export: changes whenever an email is saved.
+ */
+public class ExportVersion {
+    private final long rowCount;
+    private final long lastModified;
+
+    public ExportVersion(long rowCount, long lastModified) {
+        this.rowCount = rowCount;
+        this.lastModified = lastModified;
+    }
+
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * Returns the time of the last save in epoch milliseconds.
+     */
+    public long getLastModified() {
+        return lastModified;
+    }
+
+    /**
+     * Returns the entity tag of one representation of the export,
+     * built from the row count.
+     *
+     * @param variant The suffix telling the representations of the same version apart, may be empty.
+     */
+    public String getETag(String variant) {
+        return "\"" + rowCount + variant + "\"";
+    }
+
+    @Override
+    public String toString() {
+        return "rowCount=" + rowCount + ", lastModified=" + lastModified;
+    }
+}
@@ -0,0 +1,10 @@
+package org.turkovaleksey.emailservice.services.dto;
+
+/**
+ * Outcome of saving a single email address.
+ */
+public enum SaveStatus {
+    INSERTED,
+    DUPLICATE,
+    INVALID
+}
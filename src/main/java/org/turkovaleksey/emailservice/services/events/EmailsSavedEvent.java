@@ -0,0 +1,37 @@
+package org.turkovaleksey.emailservice.services.events;
+
+import org.turkovaleksey.emailservice.repositories.model.Email;
+
+import java.util.List;
+
+/**
+ * Event published after emails have been inserted into the database.
+ * Only emails that were actually inserted are included: duplicates skipped
+ * by a batch insert are left out.
+ *
+ * <p>
+ * Listeners keeping in-memory state derived from the emails table should use
+ * {@code @TransactionalEventListener(fallbackExecution = true)}, so they only see
+ * emails whose transaction has been committed.
+ * </p>
+ *
+ * @see Email
+ */
+public class EmailsSavedEvent {
+    private final List<Email> emails;
+
+    public EmailsSavedEvent(List<Email> emails) {
+        this.emails = emails;
+    }
+
+    public List<Email> getEmails() {
+        return emails;
+    }
+
+    @Override
+    public String toString() {
+        return "EmailsSavedEvent{" +
+                "emails=" + emails.size() +
+                '}';
+    }
+}
@@ -0,0 +1,35 @@
+package org.turkovaleksey.emailservice.services.exceptions;
+
+/**
+ * Exception indicating that the email being saved is already stored in the database.
+ * This exception is thrown when a repeat signup is detected, either by the duplicate
+ * filter followed by an indexed lookup, or by the UNIQUE constraint on the email column
+ * when two requests race to insert the same address.
+ *
+ * <p>
+ * Example usage:
+ * <pre>
+ * {@code
+ * try {
+ *     // code that may throw EmailAlreadyExistsException
+ *     emailService.save(email);
+ * } catch (EmailAlreadyExistsException ex) {
+ *     // handle the exception
+ *     logger.warn("Email is not saved: " + ex.getMessage());
+ * }
+ * }
+ * </pre>
+ * </p>
+ *
+ * <p>
+ * A repeat signup is an expected client error rather than a server failure,
+ * so this exception is answered with 409 Conflict.
+ * </p>
+ *
+ * @see RuntimeException
+ */
+public class EmailAlreadyExistsException extends RuntimeException {
+    public EmailAlreadyExistsException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,33 @@
+package org.turkovaleksey.emailservice.services.exceptions;
+
+/**
+ * Exception indicating that the requested export job does not exist, has expired or belongs to another user.
+ * Jobs of other users are reported as missing so that job ids can not be probed.
+ *
+ * <p>
+ * Example usage:
+ * <pre>
+ * {@code
+ * try {
+ *     // code that may throw ExportJobNotFoundException
+ *     exportJobService.getFile(id, owner);
+ * } catch (ExportJobNotFoundException ex) {
+ *     // handle the exception
+ *     logger.warn("Export job is not downloaded: " + ex.getMessage());
+ * }
+ * }
+ * </pre>
+ * </p>
+ *
+ * <p>
+ * A missing job is a client error, so this exception is
+ * answered with 404 Not Found.
+ * </p>
+ *
+ * @see RuntimeException
+ */
+public class ExportJobNotFoundException extends RuntimeException {
+    public ExportJobNotFoundException(String message) {
+        super(message);
+    }
+}
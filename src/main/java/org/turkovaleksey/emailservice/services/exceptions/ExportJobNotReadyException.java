@@ -0,0 +1,33 @@
+package org.turkovaleksey.emailservice.services.exceptions;
+
+/**
+ * Exception indicating that the file of an export job was requested before the job finished successfully.
+ * The client is expected to poll the job status until it is {@code DONE}.
+ *
+ * <p>
+ * Example usage:
+ * <pre>
+ * {@code
+ * try {
+ *     // code that may throw ExportJobNotReadyException
+ *     exportJobService.getFile(id, owner);
+ * } catch (ExportJobNotReadyException ex) {
+ *     // handle the exception
+ *     logger.warn("Export job is not downloaded: " + ex.getMessage());
+ * }
+ * }
+ * </pre>
+ * </p>
+ *
+ * <p>
+ * The request conflicts with the current state of the job, so this exception is
+ * answered with 409 Conflict.
+ * </p>
+ *
+ * @see RuntimeException
+ */
+public class ExportJobNotReadyException extends RuntimeException {
+    public ExportJobNotReadyException(String message) {
+        super(message);
+    }
+}
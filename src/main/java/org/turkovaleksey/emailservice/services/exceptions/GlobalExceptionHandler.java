@@ -3,6 +3,7 @@ package org.turkovaleksey.emailservice.services.exceptions;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.dao.DataAccessException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ControllerAdvice;
@@ -81,6 +82,19 @@ public class GlobalExceptionHandler {
         return new ResponseEntity<>(error, HttpStatus.BAD_REQUEST);
     }
 
+    @ExceptionHandler(UnsupportedExportFormatException.class)
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    public ResponseEntity<AppError400> handlerUnsupportedExportFormatException(UnsupportedExportFormatException e) {
+        logger.error("UnsupportedExportFormatException - {}", e.getMessage());
+        Map<String, String> map = new HashMap<>();
+        map.put("errorMessage", e.getMessage());
+        AppError400 error = new AppError400(
+                "UnsupportedExportFormatException",
+                map
+        );
+        return new ResponseEntity<>(error, HttpStatus.BAD_REQUEST);
+    }
+
     @ExceptionHandler(ConvertEmailListToCSVException.class)
     @ResponseStatus(HttpStatus.BAD_REQUEST)
     public ResponseEntity<AppError400> handlerGetObjectIsNullException(ConvertEmailListToCSVException e) {
@@ -94,6 +108,88 @@ public class GlobalExceptionHandler {
         return new ResponseEntity<>(error, HttpStatus.BAD_REQUEST);
     }
 
+    @ExceptionHandler(InvalidEmailException.class)
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    public ResponseEntity<AppError400> handlerInvalidEmailException(InvalidEmailException e) {
+        logger.warn("InvalidEmailException - {}", e.getMessage());
+        Map<String, String> map = new HashMap<>();
+        map.put("errorMessage", e.getMessage());
+        AppError400 error = new AppError400(
+                "InvalidEmailException",
+                map
+        );
+        return new ResponseEntity<>(error, HttpStatus.BAD_REQUEST);
+    }
+
+    @ExceptionHandler(EmailAlreadyExistsException.class)
+    @ResponseStatus(HttpStatus.CONFLICT)
+    public ResponseEntity<AppError400> handlerEmailAlreadyExistsException(EmailAlreadyExistsException e) {
+        logger.warn("EmailAlreadyExistsException - {}", e.getMessage());
+        Map<String, String> map = new HashMap<>();
+        map.put("errorMessage", e.getMessage());
+        AppError400 error = new AppError400(
+                "EmailAlreadyExistsException",
+                map
+        );
+        return new ResponseEntity<>(error, HttpStatus.CONFLICT);
+    }
+
+    @ExceptionHandler(IngestionQueueFullException.class)
+    @ResponseStatus(HttpStatus.TOO_MANY_REQUESTS)
+    public ResponseEntity<AppError400> handlerIngestionQueueFullException(IngestionQueueFullException e) {
+        logger.error("IngestionQueueFullException - {}", e.getMessage());
+        Map<String, String> map = new HashMap<>();
+        map.put("errorMessage", e.getMessage());
+        AppError400 error = new AppError400(
+                "IngestionQueueFullException",
+                map
+        );
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(error);
+    }
+
+    @ExceptionHandler(ExportJobNotFoundException.class)
+    @ResponseStatus(HttpStatus.NOT_FOUND)
+    public ResponseEntity<AppError400> handlerExportJobNotFoundException(ExportJobNotFoundException e) {
+        logger.warn("ExportJobNotFoundException - {}", e.getMessage());
+        Map<String, String> map = new HashMap<>();
+        map.put("errorMessage", e.getMessage());
+        AppError400 error = new AppError400(
+                "ExportJobNotFoundException",
+                map
+        );
+        return new ResponseEntity<>(error, HttpStatus.NOT_FOUND);
+    }
+
+    @ExceptionHandler(ExportJobNotReadyException.class)
+    @ResponseStatus(HttpStatus.CONFLICT)
+    public ResponseEntity<AppError400> handlerExportJobNotReadyException(ExportJobNotReadyException e) {
+        logger.warn("ExportJobNotReadyException - {}", e.getMessage());
+        Map<String, String> map = new HashMap<>();
+        map.put("errorMessage", e.getMessage());
+        AppError400 error = new AppError400(
+                "ExportJobNotReadyException",
+                map
+        );
+        return new ResponseEntity<>(error, HttpStatus.CONFLICT);
+    }
+
+    @ExceptionHandler(TooManyRequestsException.class)
+    @ResponseStatus(HttpStatus.TOO_MANY_REQUESTS)
+    public ResponseEntity<AppError400> handlerTooManyRequestsException(TooManyRequestsException e) {
+        logger.warn("TooManyRequestsException - {}", e.getMessage());
+        Map<String, String> map = new HashMap<>();
+        map.put("errorMessage", e.getMessage());
+        AppError400 error = new AppError400(
+                "TooManyRequestsException",
+                map
+        );
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                .body(error);
+    }
+
     @ExceptionHandler(RuntimeException.class)
     @ResponseStatus(HttpStatus.UNAUTHORIZED)
     public ResponseEntity<Object> handleRuntimeException(RuntimeException e) {
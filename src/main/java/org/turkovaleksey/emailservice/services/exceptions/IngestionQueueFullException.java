@@ -0,0 +1,35 @@
+package org.turkovaleksey.emailservice.services.exceptions;
+
+/**
+ * Exception indicating that an email could not be queued for saving because the ingestion buffer is full.
+ * This exception is thrown when the ingestion buffer works with the REJECT backpressure policy and
+ * the bounded queue of emails waiting for the next batch insert has no free space, or when the
+ * buffer no longer accepts emails because the application is shutting down.
+ *
+ * <p>
+ * Example usage:
+ * <pre>
+ * {@code
+ * try {
+ *     // code that may throw IngestionQueueFullException
+ *     ingestionBuffer.submit(email);
+ * } catch (IngestionQueueFullException ex) {
+ *     // handle the exception
+ *     logger.warn("Email was not queued: " + ex.getMessage());
+ * }
+ * }
+ * </pre>
+ * </p>
+ *
+ * <p>
+ * The client is expected to retry the request later, so this exception is answered
+ * with 429 Too Many Requests.
+ * </p>
+ *
+ * @see RuntimeException
+ */
+public class IngestionQueueFullException extends RuntimeException {
+    public IngestionQueueFullException(String message) {
+        super(message);
+    }
+}
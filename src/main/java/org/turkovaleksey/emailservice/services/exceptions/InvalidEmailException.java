@@ -0,0 +1,34 @@
+package org.turkovaleksey.emailservice.services.exceptions;
+
+/**
+ * Exception indicating that the submitted value is not a valid email address.
+ * This exception is thrown by the syntax check that runs before the duplicate filter and the
+ * database, so malformed input is rejected without a database round trip.
+ *
+ * <p>
+ * Example usage:
+ * <pre>
+ * {@code
+ * try {
+ *     // code that may throw InvalidEmailException
+ *     emailService.save(email);
+ * } catch (InvalidEmailException ex) {
+ *     // handle the exception
+ *     logger.warn("Email is not saved: " + ex.getMessage());
+ * }
+ * }
+ * </pre>
+ * </p>
+ *
+ * <p>
+ * Malformed input is a client error, so this exception is answered with 400 Bad Request.
+ * </p>
+ *
+ * @see org.turkovaleksey.emailservice.services.impl.EmailValidator
+ * @see RuntimeException
+ */
+public class InvalidEmailException extends RuntimeException {
+    public InvalidEmailException(String message) {
+        super(message);
+    }
+}
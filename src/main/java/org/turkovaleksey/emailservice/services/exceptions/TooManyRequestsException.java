@@ -0,0 +1,41 @@
+package org.turkovaleksey.emailservice.services.exceptions;
+
+/**
+ * Exception indicating that a save request was shed before reaching the service, either because
+ * the client or all clients together exceeded their request rate, or because the concurrency limit
+ * of the save endpoints is reached. The time after which a retry may be admitted is carried along.
+ *
+ * <p>
+ * Example usage:
+ * <pre>
+ * {@code
+ * try {
+ *     // code that may throw TooManyRequestsException
+ *     admit(request);
+ * } catch (TooManyRequestsException ex) {
+ *     // handle the exception
+ *     logger.warn("Request is rejected for " + ex.getRetryAfterSeconds() + " s: " + ex.getMessage());
+ * }
+ * }
+ * </pre>
+ * </p>
+ *
+ * <p>
+ * The client is expected to retry the request later, so this exception is answered
+ * with 429 Too Many Requests and a {@code Retry-After} header.
+ * </p>
+ *
+ * @see RuntimeException
+ */
+public class TooManyRequestsException extends RuntimeException {
+    private final long retryAfterSeconds;
+
+    public TooManyRequestsException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
@@ -0,0 +1,30 @@
+package org.turkovaleksey.emailservice.services.exceptions;
+
+/**
+ * Exception indicating that the requested export format is unknown or is not available
+ * for the requested export.
+ * This exception is thrown when the {@code format} parameter of a download does not name
+ * one of the supported formats, or asks for a per-day ZIP archive of the full export.
+ *
+ * <p>
+ * Example usage:
+ * <pre>
+ * {@code
+ * try {
+ *     // code that may throw UnsupportedExportFormatException
+ *     ExportFormat exportFormat = ExportFormat.fromParameter(format);
+ * } catch (UnsupportedExportFormatException ex) {
+ *     // handle the exception
+ *     logger.error("Invalid format: " + ex.getMessage());
+ * }
+ * }
+ * </pre>
+ * </p>
+ *
+ * @see RuntimeException
+ */
+public class UnsupportedExportFormatException extends RuntimeException {
+    public UnsupportedExportFormatException(String message) {
+        super(message);
+    }
+}
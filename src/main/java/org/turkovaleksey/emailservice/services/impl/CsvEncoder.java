@@ -0,0 +1,195 @@
+package org.turkovaleksey.emailservice.services.impl;
+
+import org.turkovaleksey.emailservice.services.exceptions.ConvertEmailListToCSVException;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+
+import static org.turkovaleksey.emailservice.services.api.IMessage.CONVERT_LIST_TO_CSV_EXCEPTION;
+
+/**
+ * UTF-8 CSV encoder for emails rows writing bytes straight into a reusable buffer.
+ * The output is byte-compatible with the OpenCSV {@code CSVWriter} defaults the service used before:
+ * every field is wrapped in double quotes, a double quote inside a value is doubled, a {@code null}
+ * value is written as an empty unquoted field and rows end with {@code \n}.
+ *
+ * <p>
+ * Rows do not allocate: the date field is kept as a cached byte pattern that is only re-encoded
+ * when the date changes, the email is encoded char by char into the buffer, and the escaping path
+ * only runs for values that contain a double quote. The buffer is written to the output stream
+ * when it is full and on {@link #flush()}. The encoder is not thread-safe.
+ * </p>
+ */
+public final class CsvEncoder {
+    private static final byte[] HEADER = "\"Date\",\"Email\"\n".getBytes(StandardCharsets.UTF_8);
+    private static final int DEFAULT_BUFFER_SIZE = 8192;
+    private static final byte QUOTE = '"';
+    private static final byte SEPARATOR = ',';
+    private static final byte LINE_END = '\n';
+    private final OutputStream outputStream;
+    private final byte[] buffer;
+    private int position;
+    private long rowCount;
+    private LocalDate cachedDate;
+    private byte[] cachedDatePattern = new byte[13];
+    private int cachedDatePatternLength;
+
+    public CsvEncoder(OutputStream outputStream) {
+        this(outputStream, DEFAULT_BUFFER_SIZE);
+    }
+
+    public CsvEncoder(OutputStream outputStream, int bufferSize) {
+        this.outputStream = outputStream;
+        this.buffer = new byte[Math.max(bufferSize, 64)];
+    }
+
+    /**
+     * Writes the Date and Email headers.
+     */
+    public void writeHeader() {
+        writeBytes(HEADER, HEADER.length);
+    }
+
+    /**
+     * Writes one row with the date and email fields.
+     *
+     * @param createDate The date of the row, may be {@code null}.
+     * @param email      The email of the row, may be {@code null}.
+     */
+    public void writeRow(LocalDate createDate, String email) {
+        if (createDate == null) {
+            writeByte(SEPARATOR);
+        } else {
+            if (!createDate.equals(cachedDate)) {
+                cacheDatePattern(createDate);
+            }
+            writeBytes(cachedDatePattern, cachedDatePatternLength);
+        }
+        if (email != null) {
+            writeByte(QUOTE);
+            writeValue(email);
+            writeByte(QUOTE);
+        }
+        writeByte(LINE_END);
+        rowCount++;
+    }
+
+    /**
+     * Returns the number of rows written, not counting the header.
+     */
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * Writes the buffered bytes to the output stream and flushes it.
+     *
+     * @throws ConvertEmailListToCSVException If writing to the output stream fails.
+     */
+    public void flush() {
+        flushBuffer();
+        try {
+            outputStream.flush();
+        } catch (IOException e) {
+            throw new ConvertEmailListToCSVException(CONVERT_LIST_TO_CSV_EXCEPTION);
+        }
+    }
+
+    /**
+     * Encodes {@code "yyyy-MM-dd",} for the date, falling back to {@link LocalDate#toString()}
+     * for years outside 0000-9999 where the ISO format adds a sign.
+     */
+    private void cacheDatePattern(LocalDate createDate) {
+        int year = createDate.getYear();
+        if (year < 0 || year > 9999) {
+            byte[] date = createDate.toString().getBytes(StandardCharsets.US_ASCII);
+            cachedDatePattern = new byte[date.length + 3];
+            cachedDatePattern[0] = QUOTE;
+            System.arraycopy(date, 0, cachedDatePattern, 1, date.length);
+            cachedDatePatternLength = date.length + 3;
+        } else {
+            int month = createDate.getMonthValue();
+            int day = createDate.getDayOfMonth();
+            if (cachedDatePattern.length < 13) {
+                cachedDatePattern = new byte[13];
+            }
+            cachedDatePattern[0] = QUOTE;
+            cachedDatePattern[1] = (byte) ('0' + year / 1000);
+            cachedDatePattern[2] = (byte) ('0' + year / 100 % 10);
+            cachedDatePattern[3] = (byte) ('0' + year / 10 % 10);
+            cachedDatePattern[4] = (byte) ('0' + year % 10);
+            cachedDatePattern[5] = '-';
+            cachedDatePattern[6] = (byte) ('0' + month / 10);
+            cachedDatePattern[7] = (byte) ('0' + month % 10);
+            cachedDatePattern[8] = '-';
+            cachedDatePattern[9] = (byte) ('0' + day / 10);
+            cachedDatePattern[10] = (byte) ('0' + day % 10);
+            cachedDatePatternLength = 13;
+        }
+        cachedDatePattern[cachedDatePatternLength - 2] = QUOTE;
+        cachedDatePattern[cachedDatePatternLength - 1] = SEPARATOR;
+        cachedDate = createDate;
+    }
+
+    private void writeValue(String value) {
+        boolean needsEscaping = value.indexOf(QUOTE) >= 0;
+        int length = value.length();
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (position + 4 > buffer.length) {
+                flushBuffer();
+            }
+            if (c < 0x80) {
+                if (needsEscaping && c == QUOTE) {
+                    buffer[position++] = QUOTE;
+                }
+                buffer[position++] = (byte) c;
+            } else if (c < 0x800) {
+                buffer[position++] = (byte) (0xC0 | (c >> 6));
+                buffer[position++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                buffer[position++] = (byte) (0xF0 | (codePoint >> 18));
+                buffer[position++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                buffer[position++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                buffer[position++] = (byte) (0x80 | (codePoint & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                buffer[position++] = '?';
+            } else {
+                buffer[position++] = (byte) (0xE0 | (c >> 12));
+                buffer[position++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                buffer[position++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+    }
+
+    private void writeByte(byte b) {
+        if (position == buffer.length) {
+            flushBuffer();
+        }
+        buffer[position++] = b;
+    }
+
+    private void writeBytes(byte[] bytes, int length) {
+        if (position + length > buffer.length) {
+            flushBuffer();
+        }
+        System.arraycopy(bytes, 0, buffer, position, length);
+        position += length;
+    }
+
+    private void flushBuffer() {
+        if (position == 0) {
+            return;
+        }
+        try {
+            outputStream.write(buffer, 0, position);
+        } catch (IOException e) {
+            throw new ConvertEmailListToCSVException(CONVERT_LIST_TO_CSV_EXCEPTION);
+        } finally {
+            position = 0;
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package org.turkovaleksey.emailservice.services.impl;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.turkovaleksey.emailservice.repositories.api.IEmailRepository;
+import org.turkovaleksey.emailservice.repositories.model.Email;
+import org.turkovaleksey.emailservice.services.events.EmailsSavedEvent;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bloom filter of the email addresses stored in the database.
+ * The filter is warmed from the emails table at startup and updated after every successful save.
+ * {@link #mightContain(String)} never returns {@code false} for a stored email, so a negative answer
+ * lets a new email go straight to the INSERT, while a positive answer only means the email has to be
+ * confirmed with an indexed lookup.
+ *
+ * <p>
+ * The bit array is sized from {@code expected-insertions} and {@code false-positive-rate}. When the table
+ * grows beyond the expected number of emails the filter stays correct, only the share of lookups grows.
+ * If warming fails the filter answers {@code true} for every email, which falls back to a lookup per save.
+ * </p>
+ *
+ * @see EmailServiceImpl#save(String)
+ */
+@Component
+public class EmailBloomFilter {
+    private static final Logger logger = LoggerFactory.getLogger(EmailBloomFilter.class);
+    private final IEmailRepository emailRepository;
+    private final AtomicLongArray bits;
+    private final long bitCount;
+    private final int hashCount;
+    private volatile boolean warmedUp;
+
+    /**
+     * Instantiates a new Email bloom filter.
+     *
+     * @param emailRepository    the email repository
+     * @param expectedInsertions the number of emails the filter is sized for
+     * @param falsePositiveRate  the share of new emails reported as possibly stored at the expected size
+     */
+    @Autowired
+    public EmailBloomFilter(IEmailRepository emailRepository,
+                            @Value("${email-service.duplicate-filter.expected-insertions:1000000}") long expectedInsertions,
+                            @Value("${email-service.duplicate-filter.false-positive-rate:0.01}") double falsePositiveRate) {
+        this.emailRepository = emailRepository;
+        long bitsNeeded = (long) Math.ceil(-expectedInsertions * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        this.bits = new AtomicLongArray((int) Math.max(1, (bitsNeeded + 63) / 64));
+        this.bitCount = (long) bits.length() * 64;
+        this.hashCount = Math.max(1, (int) Math.round((double) bitCount / expectedInsertions * Math.log(2)));
+    }
+
+    /**
+     * Loads every stored email into the filter.
+     */
+    @PostConstruct
+    public void warmUp() {
+        logger.debug("warmUp() bitCount = {}, hashCount = {}", bitCount, hashCount);
+        try {
+            emailRepository.streamAll((id, createDate, email) -> put(email));
+            warmedUp = true;
+            logger.debug("warmUp() done");
+        } catch (RuntimeException e) {
+            logger.error("warmUp() failed, every save will be checked in db - {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Adds the inserted emails to the filter once their transaction has committed.
+     *
+     * @param event The event carrying the inserted emails.
+     * @see EmailsSavedEvent
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onEmailsSaved(EmailsSavedEvent event) {
+        for (Email email : event.getEmails()) {
+            put(email.getEmail());
+        }
+    }
+
+    /**
+     * Adds the email to the filter.
+     *
+     * @param email The email address to be added.
+     */
+    public void put(String email) {
+        long hash = hash(email);
+        int hash1 = (int) hash;
+        int hash2 = (int) (hash >>> 32);
+        for (int i = 1; i <= hashCount; i++) {
+            long bit = ((hash1 + (long) i * hash2) & Long.MAX_VALUE) % bitCount;
+            int index = (int) (bit >>> 6);
+            long mask = 1L << bit;
+            long word = bits.get(index);
+            while ((word & mask) == 0 && !bits.compareAndSet(index, word, word | mask)) {
+                word = bits.get(index);
+            }
+        }
+    }
+
+    /**
+     * Checks whether the email may be stored in the database.
+     *
+     * @param email The email address to be checked.
+     * @return {@code false} if the email is definitely not stored, {@code true} if it may be stored.
+     */
+    public boolean mightContain(String email) {
+        if (!warmedUp) {
+            return true;
+        }
+        long hash = hash(email);
+        int hash1 = (int) hash;
+        int hash2 = (int) (hash >>> 32);
+        for (int i = 1; i <= hashCount; i++) {
+            long bit = ((hash1 + (long) i * hash2) & Long.MAX_VALUE) % bitCount;
+            if ((bits.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 64-bit FNV-1a over the UTF-16 chars followed by the MurmurHash3 finalizer,
+     * split into two 32-bit hashes for double hashing.
+     */
+    private static long hash(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            hash ^= value.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -0,0 +1,143 @@
+package org.turkovaleksey.emailservice.services.impl;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.turkovaleksey.emailservice.repositories.api.IEmailRepository;
+import org.turkovaleksey.emailservice.repositories.model.Email;
+import org.turkovaleksey.emailservice.services.dto.EmailDailyStats;
+import org.turkovaleksey.emailservice.services.dto.MailCreatePeriod;
+import org.turkovaleksey.emailservice.services.events.EmailsSavedEvent;
+
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Number of emails per creation date kept in memory, so the statistics of a period are answered
+ * without touching the table. The counters are keyed by epoch day and built at startup with one
+ * aggregate query; afterwards every saved email increments the counter of its date. Counters are
+ * {@link LongAdder}s in a {@link ConcurrentHashMap}, so concurrent saves of the same day do not contend.
+ *
+ * <p>
+ * The counters only see saves made through this instance. If the query fails at startup the counters
+ * are built on the first statistics request instead; saves committed while they are built may be missed.
+ * </p>
+ *
+ * @see EmailDailyStats
+ */
+@Component
+public class EmailDailyCounts {
+    private static final Logger logger = LoggerFactory.getLogger(EmailDailyCounts.class);
+    private final IEmailRepository emailRepository;
+    private final ReentrantLock buildLock = new ReentrantLock();
+    private volatile ConcurrentHashMap<Long, LongAdder> counts;
+
+    /**
+     * Instantiates a new Email daily counts.
+     *
+     * @param emailRepository the email repository
+     */
+    @Autowired
+    public EmailDailyCounts(IEmailRepository emailRepository) {
+        this.emailRepository = emailRepository;
+    }
+
+    /**
+     * Builds the counters from the table.
+     */
+    @PostConstruct
+    public void warmUp() {
+        logger.debug("warmUp() do work");
+        try {
+            build();
+        } catch (RuntimeException e) {
+            logger.error("warmUp() failed, counters are built on the first request - {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Counts the inserted emails once their transaction has committed.
+     *
+     * @param event The event carrying the inserted emails.
+     * @see EmailsSavedEvent
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onEmailsSaved(EmailsSavedEvent event) {
+        ConcurrentHashMap<Long, LongAdder> current = counts;
+        if (current == null) {
+            return;
+        }
+        for (Email email : event.getEmails()) {
+            if (email.getCreateDate() != null) {
+                current.computeIfAbsent(email.getCreateDate().toEpochDay(), day -> new LongAdder()).increment();
+            }
+        }
+    }
+
+    /**
+     * Returns the number of emails of every day of the period and their total.
+     *
+     * @param mailCreatePeriod The period, both bounds included.
+     * @return The EmailDailyStats of the period.
+     */
+    public EmailDailyStats getStats(MailCreatePeriod mailCreatePeriod) {
+        ConcurrentHashMap<Long, LongAdder> current = counts;
+        if (current == null) {
+            current = build();
+        }
+        long first = mailCreatePeriod.getStart().toEpochDay();
+        long last = mailCreatePeriod.getEnd().toEpochDay();
+        Map<LocalDate, Long> days = new TreeMap<>();
+        long total = 0;
+        if (last - first < current.size()) {
+            for (long day = first; day <= last; day++) {
+                LongAdder count = current.get(day);
+                if (count != null) {
+                    total += add(days, day, count);
+                }
+            }
+        } else {
+            for (Map.Entry<Long, LongAdder> entry : current.entrySet()) {
+                if (entry.getKey() >= first && entry.getKey() <= last) {
+                    total += add(days, entry.getKey(), entry.getValue());
+                }
+            }
+        }
+        return new EmailDailyStats(mailCreatePeriod.getStart(), mailCreatePeriod.getEnd(), total, days);
+    }
+
+    private static long add(Map<LocalDate, Long> days, long day, LongAdder count) {
+        long value = count.sum();
+        if (value > 0) {
+            days.put(LocalDate.ofEpochDay(day), value);
+        }
+        return value;
+    }
+
+    private ConcurrentHashMap<Long, LongAdder> build() {
+        buildLock.lock();
+        try {
+            if (counts != null) {
+                return counts;
+            }
+            ConcurrentHashMap<Long, LongAdder> built = new ConcurrentHashMap<>();
+            for (Map.Entry<LocalDate, Long> entry : emailRepository.countByCreateDate().entrySet()) {
+                LongAdder count = new LongAdder();
+                count.add(entry.getValue());
+                built.put(entry.getKey().toEpochDay(), count);
+            }
+            counts = built;
+            logger.debug("build() counted emails of {} days", built.size());
+            return built;
+        } finally {
+            buildLock.unlock();
+        }
+    }
+}
@@ -0,0 +1,318 @@
+package org.turkovaleksey.emailservice.services.impl;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+import org.turkovaleksey.emailservice.repositories.api.IEmailRepository;
+import org.turkovaleksey.emailservice.repositories.model.Email;
+import org.turkovaleksey.emailservice.services.events.EmailsSavedEvent;
+import org.turkovaleksey.emailservice.services.exceptions.IngestionQueueFullException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.turkovaleksey.emailservice.services.api.IMessage.INGESTION_QUEUE_FULL_EXCEPTION;
+
+/**
+ * Write-coalescing buffer for single email saves.
+ * When enabled, {@link #submit(Email)} puts the email into a bounded in-memory queue and returns
+ * immediately. A background flusher drains the queue and inserts the emails with one batch insert
+ * as soon as {@code batch-size} emails are waiting or {@code flush-interval-ms} has passed since
+ * the first one arrived. What happens when the queue is full is defined by the {@link Backpressure}
+ * policy. On graceful shutdown the buffer stops accepting emails and flushes everything still queued.
+ *
+ * <p>
+ * Emails that already exist are skipped by the batch insert, so in this mode a duplicate
+ * is not reported back to the caller.
+ * </p>
+ *
+ * <p>
+ * The callers have been answered before their emails are inserted, so a failed batch insert is retried
+ * up to {@code max-retries} times with an exponential backoff starting at {@code retry-backoff-ms}; if it
+ * still fails, the emails are inserted one at a time, so one bad email does not cost the whole batch.
+ * Emails that can not be saved at all, and emails dropped by the {@link Backpressure#DROP} policy, are
+ * counted in {@code email.ingest.dropped}.
+ * </p>
+ *
+ * @see IEmailRepository#saveAll(List)
+ */
+@Component
+public class EmailIngestionBuffer implements SmartLifecycle, MeterBinder {
+    private static final Logger logger = LoggerFactory.getLogger(EmailIngestionBuffer.class);
+    private final IEmailRepository emailRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final boolean enabled;
+    private final int batchSize;
+    private final long flushIntervalNanos;
+    private final Backpressure backpressure;
+    private final int maxRetries;
+    private final long retryBackoffMillis;
+    private final BlockingQueue<Email> queue;
+    private final LongAdder droppedQueueFull = new LongAdder();
+    private final LongAdder droppedSaveFailed = new LongAdder();
+    private volatile boolean running;
+    private Thread flusher;
+
+    /**
+     * Policy applied when an email is submitted while the queue is full.
+     */
+    public enum Backpressure {
+        /**
+         * Wait until the flusher frees space in the queue.
+         */
+        BLOCK,
+        /**
+         * Fail with {@link IngestionQueueFullException}, answered with 429 Too Many Requests.
+         */
+        REJECT,
+        /**
+         * Discard the email, counted in {@code email.ingest.dropped}.
+         */
+        DROP
+    }
+
+    /**
+     * Instantiates a new Email ingestion buffer.
+     *
+     * @param emailRepository the email repository
+     * @param eventPublisher  the publisher of saved emails events
+     * @param enabled         whether single saves go through the buffer
+     * @param queueCapacity   the maximum number of queued emails
+     * @param batchSize       the maximum number of emails inserted at once
+     * @param flushIntervalMs the maximum time an email waits for its batch to fill up
+     * @param backpressure    the policy applied when the queue is full
+     * @param maxRetries      the number of times a failed batch insert is retried
+     * @param retryBackoffMs  the wait before the first retry, doubled for every further retry
+     */
+    @Autowired
+    public EmailIngestionBuffer(IEmailRepository emailRepository,
+                                ApplicationEventPublisher eventPublisher,
+                                @Value("${email-service.ingest.enabled:false}") boolean enabled,
+                                @Value("${email-service.ingest.queue-capacity:10000}") int queueCapacity,
+                                @Value("${email-service.ingest.batch-size:500}") int batchSize,
+                                @Value("${email-service.ingest.flush-interval-ms:50}") long flushIntervalMs,
+                                @Value("${email-service.ingest.backpressure:REJECT}") Backpressure backpressure,
+                                @Value("${email-service.ingest.max-retries:3}") int maxRetries,
+                                @Value("${email-service.ingest.retry-backoff-ms:100}") long retryBackoffMs) {
+        this.emailRepository = emailRepository;
+        this.eventPublisher = eventPublisher;
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(flushIntervalMs);
+        this.backpressure = backpressure;
+        this.maxRetries = Math.max(maxRetries, 0);
+        this.retryBackoffMillis = Math.max(retryBackoffMs, 1);
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Queues the email for the next batch insert, applying the backpressure policy if the queue is full.
+     *
+     * @param email The Email to be saved.
+     * @throws IngestionQueueFullException If the email can not be queued.
+     * @see Backpressure
+     */
+    public void submit(Email email) {
+        logger.debug("submit() with Email = {}", email);
+        if (!running) {
+            logger.error("submit() buffer is not running, " + INGESTION_QUEUE_FULL_EXCEPTION);
+            throw new IngestionQueueFullException(INGESTION_QUEUE_FULL_EXCEPTION);
+        }
+        if (queue.offer(email)) {
+            return;
+        }
+        switch (backpressure) {
+            case BLOCK -> {
+                try {
+                    queue.put(email);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IngestionQueueFullException(INGESTION_QUEUE_FULL_EXCEPTION);
+                }
+            }
+            case REJECT -> {
+                logger.warn("submit() " + INGESTION_QUEUE_FULL_EXCEPTION);
+                throw new IngestionQueueFullException(INGESTION_QUEUE_FULL_EXCEPTION);
+            }
+            case DROP -> {
+                droppedQueueFull.increment();
+                logger.warn("submit() queue is full, Email = {} is dropped", email);
+            }
+        }
+    }
+
+    /**
+     * Publishes the number of dropped emails by reason.
+     *
+     * @param registry The registry the counters are registered with.
+     */
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("email.ingest.dropped", droppedQueueFull, LongAdder::sum)
+                .description("Emails accepted for ingestion that were never saved")
+                .tag("reason", "queue-full")
+                .register(registry);
+        FunctionCounter.builder("email.ingest.dropped", droppedSaveFailed, LongAdder::sum)
+                .description("Emails accepted for ingestion that were never saved")
+                .tag("reason", "save-failed")
+                .register(registry);
+    }
+
+    public long getDropped() {
+        return droppedQueueFull.sum() + droppedSaveFailed.sum();
+    }
+
+    /**
+     * Starts the background flusher if the buffer is enabled.
+     */
+    @Override
+    public void start() {
+        if (!enabled || running) {
+            return;
+        }
+        logger.debug("start() batchSize = {}, backpressure = {}", batchSize, backpressure);
+        running = true;
+        flusher = new Thread(this::flushLoop, "email-ingestion-flusher");
+        flusher.start();
+    }
+
+    /**
+     * Stops accepting emails and waits until the flusher has saved everything still queued.
+     */
+    @Override
+    public void stop() {
+        if (!running) {
+            return;
+        }
+        logger.debug("stop() draining {} queued emails", queue.size());
+        running = false;
+        try {
+            flusher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Stops after the web server, so requests still in flight can be queued and flushed.
+     */
+    @Override
+    public int getPhase() {
+        return SmartLifecycle.DEFAULT_PHASE - 4096;
+    }
+
+    private void flushLoop() {
+        List<Email> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                Email first = queue.poll(flushIntervalNanos, TimeUnit.NANOSECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + flushIntervalNanos;
+                while (batch.size() < batchSize) {
+                    queue.drainTo(batch, batchSize - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() >= batchSize || remaining <= 0 || !running) {
+                        break;
+                    }
+                    Email next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                flush(batch);
+            } catch (InterruptedException e) {
+                logger.warn("flushLoop() interrupted with {} queued emails", queue.size());
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private void flush(List<Email> batch) {
+        logger.debug("flush() call saveAll() with {} emails", batch.size());
+        try {
+            List<Email> inserted = saveWithRetries(batch);
+            if (inserted == null) {
+                inserted = saveOneByOne(batch);
+            }
+            eventPublisher.publishEvent(new EmailsSavedEvent(inserted));
+        } catch (RuntimeException e) {
+            logger.error("flush() failed to publish {} saved emails - {}", batch.size(), e.getMessage());
+        } finally {
+            batch.clear();
+        }
+    }
+
+    /**
+     * Inserts the batch, retrying with backoff, and returns the inserted emails or {@code null} if every attempt failed.
+     */
+    private List<Email> saveWithRetries(List<Email> batch) {
+        for (int attempt = 0; ; attempt++) {
+            try {
+                int[] updateCounts = emailRepository.saveAll(batch);
+                List<Email> inserted = new ArrayList<>(batch.size());
+                for (int i = 0; i < updateCounts.length; i++) {
+                    if (updateCounts[i] != 0) {
+                        inserted.add(batch.get(i));
+                    }
+                }
+                return inserted;
+            } catch (RuntimeException e) {
+                if (attempt >= maxRetries) {
+                    logger.error("saveWithRetries() failed to save {} emails after {} retries, saving them one at a time - {}",
+                            batch.size(), maxRetries, e.getMessage());
+                    return null;
+                }
+                long backoffMillis = retryBackoffMillis << Math.min(attempt, 16);
+                logger.warn("saveWithRetries() failed to save {} emails, retrying in {} ms - {}",
+                        batch.size(), backoffMillis, e.getMessage());
+                try {
+                    Thread.sleep(backoffMillis);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    return null;
+                }
+            }
+        }
+    }
+
+    private List<Email> saveOneByOne(List<Email> batch) {
+        List<Email> inserted = new ArrayList<>(batch.size());
+        for (Email email : batch) {
+            try {
+                int[] updateCounts = emailRepository.saveAll(List.of(email));
+                if (updateCounts.length > 0 && updateCounts[0] != 0) {
+                    inserted.add(email);
+                }
+            } catch (RuntimeException e) {
+                droppedSaveFailed.increment();
+                logger.error("saveOneByOne() dropped Email = {} - {}", email, e.getMessage());
+            }
+        }
+        return inserted;
+    }
+}
@@ -0,0 +1,240 @@
+package org.turkovaleksey.emailservice.services.impl;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.turkovaleksey.emailservice.repositories.api.IEmailRowCallback;
+import org.turkovaleksey.emailservice.services.dto.SaveStatus;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDate;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Micrometer instrumentation of the save and export operations, published on {@code /actuator/prometheus}.
+ *
+ * <p>
+ * {@code email.stage} is a latency histogram tagged with the {@code operation} and the {@code stage}:
+ * </p>
+ * <ul>
+ *     <li>{@code db.query} - executing the export query and fetching rows from the cursor,</li>
+ *     <li>{@code row.mapping} - reading the column values of the rows,</li>
+ *     <li>{@code csv.encoding} - encoding the rows, the time of the row callback minus the writes made from it,</li>
+ *     <li>{@code response.write} - writing to the response stream, including gzip compression when negotiated,</li>
+ *     <li>{@code duplicate.check} and {@code db.insert} - the two stages of a save.</li>
+ * </ul>
+ * <p>
+ * An export records every stage once per request, summed over its rows; the row stages and the writes are
+ * timed on a sample and scaled, so instrumenting an export costs few clock reads. {@code email.export.rows} and
+ * {@code email.export.bytes} count the rows and the bytes of every export before gzip content encoding,
+ * and {@code email.saves} counts saved emails by {@link SaveStatus}. Connection-pool wait time is published
+ * by the pool itself as {@code hikaricp.connections.acquire}.
+ * </p>
+ */
+@Component
+public class EmailMetrics {
+    public static final String SAVE = "save";
+    public static final String SAVE_ALL = "save-all";
+    public static final String DOWNLOAD = "download";
+    public static final String DOWNLOAD_PERIOD = "download-period";
+    public static final String DOWNLOAD_SINCE = "download-since";
+    public static final String DUPLICATE_CHECK_STAGE = "duplicate.check";
+    public static final String DB_INSERT_STAGE = "db.insert";
+    private static final String DB_QUERY_STAGE = "db.query";
+    private static final String ROW_MAPPING_STAGE = "row.mapping";
+    private static final String CSV_ENCODING_STAGE = "csv.encoding";
+    private static final String RESPONSE_WRITE_STAGE = "response.write";
+    private static final int WRITE_SAMPLE_INTERVAL = 8;
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * Instantiates a new Email metrics.
+     *
+     * @param meterRegistry the registry the meters are published to
+     */
+    @Autowired
+    public EmailMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Records the time spent on one stage of an operation.
+     *
+     * @param operation The operation, one of the constants of this class.
+     * @param stage     The stage of the operation.
+     * @param nanos     The time spent in nanoseconds.
+     */
+    public void recordStage(String operation, String stage, long nanos) {
+        Timer.builder("email.stage")
+                .description("Time spent on one stage of a request")
+                .tag("operation", operation)
+                .tag("stage", stage)
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(Math.max(nanos, 0), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Counts saved emails by outcome.
+     *
+     * @param status The outcome of the save.
+     * @param count  The number of emails with this outcome.
+     */
+    public void countSaves(SaveStatus status, long count) {
+        if (count <= 0) {
+            return;
+        }
+        Counter.builder("email.saves")
+                .description("Emails submitted for saving by outcome")
+                .tag("status", status.name().toLowerCase(Locale.ROOT))
+                .register(meterRegistry)
+                .increment(count);
+    }
+
+    /**
+     * Starts measuring an export written to the output stream.
+     *
+     * @param operation    The export operation, one of the constants of this class.
+     * @param outputStream The response stream.
+     * @return An Export to write the export to instead of the response stream.
+     */
+    public Export startExport(String operation, OutputStream outputStream) {
+        return new Export(operation, outputStream);
+    }
+
+    /**
+     * Output stream measuring the writes to the response and collecting the stages of one export.
+     * Rows streamed through {@link #timed(IEmailRowCallback)} report their database, mapping and
+     * encoding time; {@link #finish(long)} publishes everything measured. Only every
+     * {@value #WRITE_SAMPLE_INTERVAL}th write and flush is timed and the write time is scaled to all of them,
+     * so the clock is not read twice per write. Not thread-safe.
+     */
+    public final class Export extends OutputStream {
+        private final String operation;
+        private final OutputStream outputStream;
+        private long bytes;
+        private long writes;
+        private long sampledWrites;
+        private long sampledWriteNanos;
+        private long queryNanos;
+        private long mappingNanos;
+        private long encodingNanos;
+        private boolean streamed;
+
+        private Export(String operation, OutputStream outputStream) {
+            this.operation = operation;
+            this.outputStream = outputStream;
+        }
+
+        /**
+         * Wraps the row callback so that the repository measures the stream.
+         *
+         * @param callback The callback encoding the rows into this stream.
+         * @return A timed callback delegating to the given one.
+         */
+        public IEmailRowCallback timed(IEmailRowCallback callback) {
+            long writeNanosBefore = writeNanos();
+            return new IEmailRowCallback() {
+                @Override
+                public void processRow(long id, LocalDate createDate, String email) {
+                    callback.processRow(id, createDate, email);
+                }
+
+                @Override
+                public boolean isTimed() {
+                    return true;
+                }
+
+                @Override
+                public void streamTimings(long query, long mapping, long callbackNanos) {
+                    streamed = true;
+                    queryNanos += query;
+                    mappingNanos += mapping;
+                    encodingNanos += Math.max(callbackNanos - (writeNanos() - writeNanosBefore), 0);
+                }
+            };
+        }
+
+        /**
+         * Publishes the stages, rows and bytes of the export.
+         *
+         * @param rows The number of exported rows, negative if it is not known.
+         */
+        public void finish(long rows) {
+            if (streamed) {
+                recordStage(operation, DB_QUERY_STAGE, queryNanos);
+                recordStage(operation, ROW_MAPPING_STAGE, mappingNanos);
+                recordStage(operation, CSV_ENCODING_STAGE, encodingNanos);
+            }
+            recordStage(operation, RESPONSE_WRITE_STAGE, writeNanos());
+            if (rows >= 0) {
+                DistributionSummary.builder("email.export.rows")
+                        .description("Rows exported per request")
+                        .baseUnit("rows")
+                        .tag("operation", operation)
+                        .publishPercentileHistogram()
+                        .register(meterRegistry)
+                        .record(rows);
+            }
+            DistributionSummary.builder("email.export.bytes")
+                    .description("Bytes exported per request before content encoding")
+                    .baseUnit("bytes")
+                    .tag("operation", operation)
+                    .publishPercentileHistogram()
+                    .register(meterRegistry)
+                    .record(bytes);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            if (writes++ % WRITE_SAMPLE_INTERVAL != 0) {
+                outputStream.write(b);
+            } else {
+                long start = System.nanoTime();
+                outputStream.write(b);
+                sampled(start);
+            }
+            bytes++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (writes++ % WRITE_SAMPLE_INTERVAL != 0) {
+                outputStream.write(b, off, len);
+            } else {
+                long start = System.nanoTime();
+                outputStream.write(b, off, len);
+                sampled(start);
+            }
+            bytes += len;
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (writes++ % WRITE_SAMPLE_INTERVAL != 0) {
+                outputStream.flush();
+            } else {
+                long start = System.nanoTime();
+                outputStream.flush();
+                sampled(start);
+            }
+        }
+
+        private void sampled(long start) {
+            sampledWriteNanos += System.nanoTime() - start;
+            sampledWrites++;
+        }
+
+        /**
+         * Returns the time spent writing so far, scaled from the timed writes to all of them.
+         */
+        private long writeNanos() {
+            return sampledWrites == 0 ? 0 : (long) ((double) sampledWriteNanos * writes / sampledWrites);
+        }
+    }
+}
@@ -1,23 +1,46 @@
 package org.turkovaleksey.emailservice.services.impl;
 
-import com.opencsv.CSVWriter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.turkovaleksey.emailservice.repositories.api.IEmailRepository;
+import org.turkovaleksey.emailservice.repositories.api.IEmailRowCallback;
 import org.turkovaleksey.emailservice.repositories.model.Email;
 import org.turkovaleksey.emailservice.services.api.IEmailService;
+import org.turkovaleksey.emailservice.services.dto.BulkSaveResult;
+import org.turkovaleksey.emailservice.services.dto.EmailDailyStats;
+import org.turkovaleksey.emailservice.services.dto.EmailPage;
+import org.turkovaleksey.emailservice.services.dto.ExportCacheStats;
+import org.turkovaleksey.emailservice.services.dto.ExportVersion;
 import org.turkovaleksey.emailservice.services.dto.MailCreatePeriod;
+import org.turkovaleksey.emailservice.services.dto.SaveStatus;
+import org.turkovaleksey.emailservice.services.events.EmailsSavedEvent;
 import org.turkovaleksey.emailservice.services.exceptions.ConvertEmailListToCSVException;
+import org.turkovaleksey.emailservice.services.exceptions.EmailAlreadyExistsException;
 import org.turkovaleksey.emailservice.services.exceptions.IncorrectPeriodException;
+import org.turkovaleksey.emailservice.services.exceptions.InvalidEmailException;
 
-import java.io.StringWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
 
 import static org.turkovaleksey.emailservice.services.api.IMessage.CONVERT_LIST_TO_CSV_EXCEPTION;
+import static org.turkovaleksey.emailservice.services.api.IMessage.EMAIL_ALREADY_EXISTS_EXCEPTION;
 import static org.turkovaleksey.emailservice.services.api.IMessage.INCORRECT_DATE_EXCEPTION;
+import static org.turkovaleksey.emailservice.services.api.IMessage.INVALID_EMAIL_EXCEPTION;
 
 /**
  * Service implementation for handling email-related operations.
@@ -43,15 +66,55 @@ import static org.turkovaleksey.emailservice.services.api.IMessage.INCORRECT_DAT
 public class EmailServiceImpl implements IEmailService {
     private static final Logger logger = LoggerFactory.getLogger(EmailServiceImpl.class);
     private final IEmailRepository emailRepository;
+    private final EmailIngestionBuffer ingestionBuffer;
+    private final EmailBloomFilter duplicateFilter;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ExportCache exportCache;
+    private final ExportVersionTracker exportVersionTracker;
+    private final ExportSegmentStore exportSegmentStore;
+    private final ParallelPeriodExporter parallelPeriodExporter;
+    private final EmailDailyCounts dailyCounts;
+    private final ExportSnapshotStore exportSnapshotStore;
+    private final EmailMetrics emailMetrics;
+    private final HighWaterMarkTracker highWaterMarkTracker;
+    @Value("${email-service.page.max-limit:1000}")
+    private int maxPageLimit = 1000;
 
     /**
      * Instantiates a new Email service.
      *
-     * @param emailRepository the email repository
+     * @param emailRepository        the email repository
+     * @param ingestionBuffer        the buffer used for single saves when ingestion mode is enabled
+     * @param duplicateFilter        the filter of emails already stored in the database
+     * @param eventPublisher         the publisher of saved emails events
+     * @param exportCache            the cache of exports for closed periods
+     * @param exportVersionTracker   the tracker of the version of the full export
+     * @param exportSegmentStore     the store of per-day CSV segments for period exports
+     * @param parallelPeriodExporter the exporter reading long periods in parallel sub-ranges
+     * @param dailyCounts            the in-memory number of emails per day
+     * @param exportSnapshotStore    the store of materialized full exports for range requests
+     * @param emailMetrics           the instrumentation of saves and exports
+     * @param highWaterMarkTracker   the tracker of the safe high-water mark of incremental exports
      */
     @Autowired
-    public EmailServiceImpl(IEmailRepository emailRepository) {
+    public EmailServiceImpl(IEmailRepository emailRepository, EmailIngestionBuffer ingestionBuffer,
+                            EmailBloomFilter duplicateFilter, ApplicationEventPublisher eventPublisher,
+                            ExportCache exportCache, ExportVersionTracker exportVersionTracker,
+                            ExportSegmentStore exportSegmentStore, ParallelPeriodExporter parallelPeriodExporter,
+                            EmailDailyCounts dailyCounts, ExportSnapshotStore exportSnapshotStore,
+                            EmailMetrics emailMetrics, HighWaterMarkTracker highWaterMarkTracker) {
         this.emailRepository = emailRepository;
+        this.ingestionBuffer = ingestionBuffer;
+        this.duplicateFilter = duplicateFilter;
+        this.eventPublisher = eventPublisher;
+        this.exportCache = exportCache;
+        this.exportVersionTracker = exportVersionTracker;
+        this.exportSegmentStore = exportSegmentStore;
+        this.parallelPeriodExporter = parallelPeriodExporter;
+        this.dailyCounts = dailyCounts;
+        this.exportSnapshotStore = exportSnapshotStore;
+        this.emailMetrics = emailMetrics;
+        this.highWaterMarkTracker = highWaterMarkTracker;
     }
 
     /**
@@ -70,6 +133,7 @@ public class EmailServiceImpl implements IEmailService {
 
     /**
      * Retrieves emails for the specified period and returns them in CSV format.
+     * The CSV of a period that ended before today is served from the export cache when possible.
      *
      * @param mailCreatePeriod The period for which emails need to be retrieved.
      * @return A CSV-formatted string representing emails for the specified period.
@@ -81,25 +145,378 @@ public class EmailServiceImpl implements IEmailService {
         logger.debug("getEmailsByPeriodAsCsv() with MailCreatePeriod = {}", mailCreatePeriod);
         logger.debug("getEmailsByPeriodAsCsv() call getEmailsByPeriodAsCsv()");
         checkDateOnValid(mailCreatePeriod);
+        boolean cacheable = exportCache.isCacheable(mailCreatePeriod);
+        if (cacheable) {
+            byte[] export = exportCache.get(mailCreatePeriod);
+            if (export != null) {
+                logger.debug("getEmailsByPeriodAsCsv() export cache hit for MailCreatePeriod = {}", mailCreatePeriod);
+                return new String(export, StandardCharsets.UTF_8);
+            }
+        }
+        long generation = exportCache.getGeneration();
         logger.debug("getEmailsByPeriodAsCsv() call findAllByPeriod() with MailCreatePeriod = {}", mailCreatePeriod);
         List<Email> emails = emailRepository.findAllByPeriod(mailCreatePeriod);
-        return convertListAsCsv(emails);
+        String csv = convertListAsCsv(emails);
+        if (cacheable) {
+            exportCache.put(mailCreatePeriod, csv.getBytes(StandardCharsets.UTF_8), generation);
+        }
+        return csv;
+    }
+
+    /**
+     * Streams all emails from the repository to the output stream in CSV format.
+     * Rows are read through a forward-only cursor and encoded straight into UTF-8 bytes,
+     * so the whole table is never held in memory.
+     *
+     * @param outputStream The stream the CSV content is written to.
+     * @throws ConvertEmailListToCSVException If writing to the output stream fails.
+     * @see Email
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public void writeEmailsAsCsv(OutputStream outputStream) {
+        logger.debug("writeEmailsAsCsv() do work");
+        EmailMetrics.Export recording = emailMetrics.startExport(EmailMetrics.DOWNLOAD, outputStream);
+        CsvEncoder csvEncoder = new CsvEncoder(recording);
+        csvEncoder.writeHeader();
+        logger.debug("writeEmailsAsCsv() call streamAll()");
+        emailRepository.streamAll(recording.timed((id, createDate, email) -> csvEncoder.writeRow(createDate, email)));
+        csvEncoder.flush();
+        recording.finish(csvEncoder.getRowCount());
+    }
+
+    /**
+     * Returns the version of the full export, kept in memory and updated on every save.
+     *
+     * @return The ExportVersion, or {@code null} if it is not known.
+     * @see ExportVersionTracker
+     */
+    @Override
+    public ExportVersion getExportVersion() {
+        return exportVersionTracker.getVersion();
+    }
+
+    /**
+     * Streams all emails to the output stream in CSV format, as {@link #writeEmailsAsCsv(OutputStream)},
+     * and records the bytes as the snapshot of the version, so a byte range of this download can be
+     * sent later. If the client goes away the export is still read to the end into the snapshot.
+     *
+     * @param exportVersion The version sent with the download.
+     * @param outputStream  The stream the CSV content is written to.
+     * @throws ConvertEmailListToCSVException If writing to the output stream fails.
+     * @see ExportSnapshotStore
+     */
+    @Override
+    public void writeEmailsAsCsv(ExportVersion exportVersion, OutputStream outputStream) {
+        logger.debug("writeEmailsAsCsv() with ExportVersion = {}", exportVersion);
+        ExportSnapshotStore.Recorder recorder = exportSnapshotStore.record(snapshotKey(exportVersion), outputStream);
+        if (recorder == null) {
+            writeEmailsAsCsv(outputStream);
+            return;
+        }
+        try (recorder) {
+            writeEmailsAsCsv(recorder);
+            recorder.publish();
+        } catch (IOException e) {
+            logger.error("writeEmailsAsCsv() " + CONVERT_LIST_TO_CSV_EXCEPTION);
+            throw new ConvertEmailListToCSVException(CONVERT_LIST_TO_CSV_EXCEPTION);
+        }
+    }
+
+    /**
+     * Returns the file holding the full export of the version, recorded by an earlier download of it.
+     *
+     * @param exportVersion The version the client requests a byte range of.
+     * @return The path of the snapshot, or {@code null} if snapshots are disabled or there is none.
+     * @see ExportSnapshotStore
+     */
+    @Override
+    public Path getExportSnapshot(ExportVersion exportVersion) {
+        logger.debug("getExportSnapshot() with ExportVersion = {}", exportVersion);
+        if (!exportSnapshotStore.isEnabled()) {
+            return null;
+        }
+        return exportSnapshotStore.find(snapshotKey(exportVersion));
+    }
+
+    private static String snapshotKey(ExportVersion exportVersion) {
+        return String.valueOf(exportVersion.getRowCount());
+    }
+
+    /**
+     * Streams emails for the specified period to the output stream in CSV format.
+     * The export of a period that ended before today is cached while it is streamed
+     * and written from the export cache on the next request, without a database round trip.
+     * Otherwise the closed days are copied from the per-day segment store when it is enabled,
+     * and a long period is read from the table in parallel sub-ranges when it is not.
+     *
+     * @param mailCreatePeriod The period for which emails need to be written.
+     * @param outputStream     The stream the CSV content is written to.
+     * @throws IncorrectPeriodException       If the provided period is not valid.
+     * @throws ConvertEmailListToCSVException If writing to the output stream fails.
+     * @see #writeEmailsAsCsv(OutputStream)
+     * @see MailCreatePeriod
+     * @see ExportCache
+     * @see ExportSegmentStore
+     * @see ParallelPeriodExporter
+     */
+    @Override
+    public void writeEmailsByPeriodAsCsv(MailCreatePeriod mailCreatePeriod, OutputStream outputStream) {
+        logger.debug("writeEmailsByPeriodAsCsv() with MailCreatePeriod = {}", mailCreatePeriod);
+        checkDateOnValid(mailCreatePeriod);
+        EmailMetrics.Export recording = emailMetrics.startExport(EmailMetrics.DOWNLOAD_PERIOD, outputStream);
+        if (!exportCache.isCacheable(mailCreatePeriod)) {
+            recording.finish(streamEmailsByPeriodAsCsv(mailCreatePeriod, recording, recording));
+            return;
+        }
+        byte[] export = exportCache.get(mailCreatePeriod);
+        if (export != null) {
+            logger.debug("writeEmailsByPeriodAsCsv() export cache hit for MailCreatePeriod = {}", mailCreatePeriod);
+            try {
+                recording.write(export);
+                recording.flush();
+            } catch (IOException e) {
+                logger.error("writeEmailsByPeriodAsCsv() " + CONVERT_LIST_TO_CSV_EXCEPTION);
+                throw new ConvertEmailListToCSVException(CONVERT_LIST_TO_CSV_EXCEPTION);
+            }
+            recording.finish(-1);
+            return;
+        }
+        long generation = exportCache.getGeneration();
+        ExportCache.Capture capture = exportCache.capture(recording);
+        long rows = streamEmailsByPeriodAsCsv(mailCreatePeriod, capture, recording);
+        byte[] captured = capture.toByteArray();
+        if (captured != null) {
+            exportCache.put(mailCreatePeriod, captured, generation);
+        }
+        recording.finish(rows);
+    }
+
+    /**
+     * Streams emails for the specified period to the output stream as a ZIP archive
+     * with one CSV entry per day, named {@code emails_yyyy-MM-dd.csv}.
+     * Entries are compressed while the rows are read, days without emails get no entry.
+     *
+     * @param mailCreatePeriod The period for which emails need to be written.
+     * @param outputStream     The stream the ZIP archive is written to.
+     * @throws IncorrectPeriodException       If the provided period is not valid.
+     * @throws ConvertEmailListToCSVException If writing to the output stream fails.
+     * @see #writeEmailsByPeriodAsCsv(MailCreatePeriod, OutputStream)
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public void writeEmailsByPeriodAsZip(MailCreatePeriod mailCreatePeriod, OutputStream outputStream) {
+        logger.debug("writeEmailsByPeriodAsZip() with MailCreatePeriod = {}", mailCreatePeriod);
+        checkDateOnValid(mailCreatePeriod);
+        EmailMetrics.Export recording = emailMetrics.startExport(EmailMetrics.DOWNLOAD_PERIOD, outputStream);
+        DailyZipWriter zipWriter = new DailyZipWriter(recording);
+        logger.debug("writeEmailsByPeriodAsZip() call streamAllByPeriod() with MailCreatePeriod = {}", mailCreatePeriod);
+        emailRepository.streamAllByPeriod(mailCreatePeriod, recording.timed(zipWriter));
+        zipWriter.finish();
+        recording.finish(zipWriter.getRowCount());
+    }
+
+    /**
+     * Returns the high-water mark of an incremental export: the greatest id below which no email can
+     * still be committed. It lags behind the greatest stored id by the safety lag of the tracker.
+     *
+     * @return The safe high-water mark, or 0 if none is known yet.
+     * @see HighWaterMarkTracker
+     * @see #writeEmailsSinceAsCsv(long, long, OutputStream)
+     */
+    @Override
+    public long getHighWaterMark() {
+        logger.debug("getHighWaterMark() call getHighWaterMark() in tracker");
+        return highWaterMarkTracker.getHighWaterMark();
+    }
+
+    /**
+     * Streams the emails added after the previous high-water mark up to the current one in CSV format,
+     * ordered by id. The caller stores {@code highWaterMark} and passes it as {@code afterId} next time.
+     *
+     * <p>
+     * Every email is written by exactly one delta as long as no insert transaction runs longer than the
+     * safety lag of {@link HighWaterMarkTracker}; emails newer than the mark come with a later delta.
+     * </p>
+     *
+     * @param afterId       The high-water mark of the previous export, 0 for everything.
+     * @param highWaterMark The greatest id to be written, read with {@link #getHighWaterMark()}.
+     * @param outputStream  The stream the CSV content is written to.
+     * @throws ConvertEmailListToCSVException If writing to the output stream fails.
+     */
+    @Override
+    public void writeEmailsSinceAsCsv(long afterId, long highWaterMark, OutputStream outputStream) {
+        logger.debug("writeEmailsSinceAsCsv() with afterId = {}, highWaterMark = {}", afterId, highWaterMark);
+        EmailMetrics.Export recording = emailMetrics.startExport(EmailMetrics.DOWNLOAD_SINCE, outputStream);
+        CsvEncoder csvEncoder = new CsvEncoder(recording);
+        csvEncoder.writeHeader();
+        if (afterId < highWaterMark) {
+            logger.debug("writeEmailsSinceAsCsv() call streamByIdRange()");
+            emailRepository.streamByIdRange(afterId, highWaterMark,
+                    recording.timed((id, createDate, email) -> csvEncoder.writeRow(createDate, email)));
+        }
+        csvEncoder.flush();
+        recording.finish(csvEncoder.getRowCount());
     }
 
     /**
      * Saves the specified email by creating a new Email object and persisting it.
+     * The email is validated and canonicalized first, the canonical form is what is checked for duplicates and stored.
+     * When ingestion mode is enabled the email is queued and inserted with the next batch instead.
+     * Emails the duplicate filter reports as possibly stored are confirmed with an indexed lookup first.
      *
-     * @param email The email address to be saved.
+     * @param submittedEmail The email address to be saved.
+     * @throws InvalidEmailException       If the email is not a valid address.
+     * @throws EmailAlreadyExistsException If the email is already stored in the database.
+     * @see EmailValidator
+     * @see EmailIngestionBuffer
+     * @see EmailBloomFilter
      */
     @Override
-    public void save(String email) {
-        logger.debug("save() with email = {}", email);
+    public void save(String submittedEmail) {
+        logger.debug("save() with email = {}", submittedEmail);
+        String email = EmailValidator.canonicalize(submittedEmail);
+        if (email == null) {
+            logger.warn("save() " + INVALID_EMAIL_EXCEPTION + ", email = {}", submittedEmail);
+            emailMetrics.countSaves(SaveStatus.INVALID, 1);
+            throw new InvalidEmailException(INVALID_EMAIL_EXCEPTION);
+        }
         logger.debug("save() create Email");
         Email newEmail = new Email();
         newEmail.setCreateDate(LocalDate.now());
         newEmail.setEmail(email);
+        long start = System.nanoTime();
+        boolean duplicate = duplicateFilter.mightContain(email) && emailRepository.existsByEmail(email);
+        emailMetrics.recordStage(EmailMetrics.SAVE, EmailMetrics.DUPLICATE_CHECK_STAGE, System.nanoTime() - start);
+        if (duplicate) {
+            logger.warn("save() " + EMAIL_ALREADY_EXISTS_EXCEPTION + ", email = {}", email);
+            emailMetrics.countSaves(SaveStatus.DUPLICATE, 1);
+            throw new EmailAlreadyExistsException(EMAIL_ALREADY_EXISTS_EXCEPTION);
+        }
+        if (ingestionBuffer.isEnabled()) {
+            logger.debug("save() call submit() in ingestion buffer with Email = {}", newEmail);
+            ingestionBuffer.submit(newEmail);
+            return;
+        }
         logger.debug("save() call save() in repository with Email = {}", newEmail);
-        emailRepository.save(newEmail);
+        long insertStart = System.nanoTime();
+        try {
+            emailRepository.save(newEmail);
+        } catch (DuplicateKeyException e) {
+            logger.warn("save() " + EMAIL_ALREADY_EXISTS_EXCEPTION + ", email = {}", email);
+            emailMetrics.countSaves(SaveStatus.DUPLICATE, 1);
+            throw new EmailAlreadyExistsException(EMAIL_ALREADY_EXISTS_EXCEPTION);
+        } finally {
+            emailMetrics.recordStage(EmailMetrics.SAVE, EmailMetrics.DB_INSERT_STAGE, System.nanoTime() - insertStart);
+        }
+        emailMetrics.countSaves(SaveStatus.INSERTED, 1);
+        eventPublisher.publishEvent(new EmailsSavedEvent(List.of(newEmail)));
+    }
+
+    /**
+     * Saves the specified emails in batches and reports the outcome for every email.
+     * The emails are stored in their canonical form, results are reported for the submitted values.
+     * Invalid addresses and addresses that already exist are reported instead of failing
+     * the whole request.
+     *
+     * @param emails The email addresses to be saved.
+     * @return A BulkSaveResult with the status of every email in request order.
+     * @see BulkSaveResult
+     * @see SaveStatus
+     */
+    @Override
+    @Transactional
+    public BulkSaveResult saveAll(List<String> emails) {
+        logger.debug("saveAll() with {} emails", emails.size());
+        LocalDate createDate = LocalDate.now();
+        boolean[] valid = new boolean[emails.size()];
+        List<Email> newEmails = new ArrayList<>(emails.size());
+        for (int i = 0; i < emails.size(); i++) {
+            String email = EmailValidator.canonicalize(emails.get(i));
+            valid[i] = email != null;
+            if (valid[i]) {
+                newEmails.add(new Email(createDate, email));
+            }
+        }
+        logger.debug("saveAll() call saveAll() in repository with {} valid emails", newEmails.size());
+        long insertStart = System.nanoTime();
+        int[] updateCounts = newEmails.isEmpty() ? new int[0] : emailRepository.saveAll(newEmails);
+        emailMetrics.recordStage(EmailMetrics.SAVE_ALL, EmailMetrics.DB_INSERT_STAGE, System.nanoTime() - insertStart);
+        BulkSaveResult result = new BulkSaveResult();
+        List<Email> inserted = new ArrayList<>(newEmails.size());
+        int saved = 0;
+        for (int i = 0; i < emails.size(); i++) {
+            if (!valid[i]) {
+                result.add(emails.get(i), SaveStatus.INVALID);
+            } else if (updateCounts[saved] == 0) {
+                result.add(emails.get(i), SaveStatus.DUPLICATE);
+                saved++;
+            } else {
+                result.add(emails.get(i), SaveStatus.INSERTED);
+                inserted.add(newEmails.get(saved++));
+            }
+        }
+        eventPublisher.publishEvent(new EmailsSavedEvent(inserted));
+        emailMetrics.countSaves(SaveStatus.INSERTED, inserted.size());
+        emailMetrics.countSaves(SaveStatus.DUPLICATE, newEmails.size() - inserted.size());
+        emailMetrics.countSaves(SaveStatus.INVALID, emails.size() - newEmails.size());
+        logger.debug("saveAll() finished with {}", result);
+        return result;
+    }
+
+    /**
+     * Retrieves the page of emails following {@code afterId}, ordered by id.
+     * The limit is clamped to 1..{@code email-service.page.max-limit}. One extra row is read
+     * to find out whether another page follows, in which case its cursor is returned.
+     *
+     * @param afterId          The cursor returned with the previous page, 0 for the first page.
+     * @param limit            The requested number of emails.
+     * @param mailCreatePeriod The optional period filter, either bound may be {@code null}.
+     * @return An EmailPage with the emails and the cursor of the next page.
+     * @throws IncorrectPeriodException If both bounds are given and the start date is later than the end date.
+     * @see EmailPage
+     */
+    @Override
+    public EmailPage getPage(long afterId, int limit, MailCreatePeriod mailCreatePeriod) {
+        logger.debug("getPage() with afterId = {}, limit = {}, MailCreatePeriod = {}", afterId, limit, mailCreatePeriod);
+        if (mailCreatePeriod != null && mailCreatePeriod.getStart() != null && mailCreatePeriod.getEnd() != null) {
+            checkDateOnValid(mailCreatePeriod);
+        }
+        int pageSize = Math.max(1, Math.min(limit, maxPageLimit));
+        logger.debug("getPage() call findPage() with pageSize = {}", pageSize);
+        List<Email> emails = emailRepository.findPage(Math.max(afterId, 0), pageSize + 1, mailCreatePeriod);
+        if (emails.size() <= pageSize) {
+            return new EmailPage(emails, null);
+        }
+        List<Email> page = emails.subList(0, pageSize);
+        return new EmailPage(page, page.get(pageSize - 1).getId());
+    }
+
+    /**
+     * Returns the hit and miss counters and the size of the export cache.
+     *
+     * @return The ExportCacheStats of the export cache.
+     * @see ExportCache
+     */
+    @Override
+    public ExportCacheStats getExportCacheStats() {
+        logger.debug("getExportCacheStats() do work");
+        return exportCache.getStats();
+    }
+
+    /**
+     * Returns the number of emails of every day of the period and their total from the in-memory counters.
+     *
+     * @param mailCreatePeriod The period for which emails need to be counted.
+     * @return The EmailDailyStats of the period.
+     * @throws IncorrectPeriodException If the provided period is not valid.
+     * @see EmailDailyCounts
+     */
+    @Override
+    public EmailDailyStats getDailyStats(MailCreatePeriod mailCreatePeriod) {
+        logger.debug("getDailyStats() with MailCreatePeriod = {}", mailCreatePeriod);
+        checkDateOnValid(mailCreatePeriod);
+        return dailyCounts.getStats(mailCreatePeriod);
     }
 
     /**
@@ -112,6 +529,7 @@ public class EmailServiceImpl implements IEmailService {
      * @see MailCreatePeriod
      * @see IncorrectPeriodException
      */
+    @Override
     public void checkDateOnValid(MailCreatePeriod mailCreatePeriod) {
         logger.debug("checkDateOnValid() with MailCreatePeriod = {}", mailCreatePeriod);
         if (mailCreatePeriod.getStart().isAfter(mailCreatePeriod.getEnd())) {
@@ -130,23 +548,97 @@ public class EmailServiceImpl implements IEmailService {
      * @see ConvertEmailListToCSVException
      */
     public String convertListAsCsv(List<Email> emails) {
-        logger.debug("convertListAsCsv() with List Emails (hashcode) = {}", emails.hashCode());
-        StringWriter writer = new StringWriter();
-        try (CSVWriter csvWriter = new CSVWriter(writer)) {
-            String[] headers = {"Date", "Email"};
-            csvWriter.writeNext(headers);
-            for (Email email : emails) {
-                String[] data = {
-                        email.getCreateDate().toString(),
-                        email.getEmail()
-                };
-                csvWriter.writeNext(data);
+        if (logger.isDebugEnabled()) {
+            logger.debug("convertListAsCsv() with List Emails (hashcode) = {}", emails.hashCode());
+        }
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        CsvEncoder csvEncoder = new CsvEncoder(outputStream);
+        csvEncoder.writeHeader();
+        for (Email email : emails) {
+            csvEncoder.writeRow(email.getCreateDate(), email.getEmail());
+        }
+        csvEncoder.flush();
+        return outputStream.toString(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Streams the period from the segment store, the parallel exporter or the database and returns the number of rows,
+     * -1 when the rows are copied from segments without being counted.
+     */
+    private long streamEmailsByPeriodAsCsv(MailCreatePeriod mailCreatePeriod, OutputStream outputStream,
+                                           EmailMetrics.Export recording) {
+        if (exportSegmentStore.isEnabled()) {
+            logger.debug("streamEmailsByPeriodAsCsv() call writeTo() in segment store");
+            exportSegmentStore.writeTo(mailCreatePeriod, outputStream);
+            return -1;
+        }
+        if (parallelPeriodExporter.isPartitioned(mailCreatePeriod)) {
+            logger.debug("streamEmailsByPeriodAsCsv() call writeTo() in parallel period exporter");
+            return parallelPeriodExporter.writeTo(mailCreatePeriod, outputStream);
+        }
+        CsvEncoder csvEncoder = new CsvEncoder(outputStream);
+        csvEncoder.writeHeader();
+        logger.debug("streamEmailsByPeriodAsCsv() call streamAllByPeriod() with MailCreatePeriod = {}", mailCreatePeriod);
+        emailRepository.streamAllByPeriod(mailCreatePeriod,
+                recording.timed((id, createDate, email) -> csvEncoder.writeRow(createDate, email)));
+        csvEncoder.flush();
+        return csvEncoder.getRowCount();
+    }
+
+    /**
+     * Writes rows ordered by date into a ZIP archive, starting a new CSV entry whenever the date changes.
+     */
+    private static final class DailyZipWriter implements IEmailRowCallback {
+        private final ZipOutputStream zipOutputStream;
+        private final CsvEncoder csvEncoder;
+        private LocalDate entryDate;
+        private boolean entryOpen;
+
+        private DailyZipWriter(OutputStream outputStream) {
+            this.zipOutputStream = new ZipOutputStream(outputStream, StandardCharsets.UTF_8);
+            this.csvEncoder = new CsvEncoder(zipOutputStream);
+        }
+
+        @Override
+        public void processRow(long id, LocalDate createDate, String email) {
+            if (!entryOpen || !Objects.equals(createDate, entryDate)) {
+                nextEntry(createDate);
+            }
+            csvEncoder.writeRow(createDate, email);
+        }
+
+        private void nextEntry(LocalDate createDate) {
+            try {
+                if (entryOpen) {
+                    csvEncoder.flush();
+                    zipOutputStream.closeEntry();
+                }
+                zipOutputStream.putNextEntry(new ZipEntry("emails_" + createDate + ".csv"));
+            } catch (IOException e) {
+                logger.error("nextEntry() " + CONVERT_LIST_TO_CSV_EXCEPTION);
+                throw new ConvertEmailListToCSVException(CONVERT_LIST_TO_CSV_EXCEPTION);
+            }
+            entryOpen = true;
+            entryDate = createDate;
+            csvEncoder.writeHeader();
+        }
+
+        private long getRowCount() {
+            return csvEncoder.getRowCount();
+        }
+
+        private void finish() {
+            try {
+                if (entryOpen) {
+                    csvEncoder.flush();
+                    zipOutputStream.closeEntry();
+                }
+                zipOutputStream.finish();
+                zipOutputStream.flush();
+            } catch (IOException e) {
+                logger.error("finish() " + CONVERT_LIST_TO_CSV_EXCEPTION);
+                throw new ConvertEmailListToCSVException(CONVERT_LIST_TO_CSV_EXCEPTION);
             }
-            csvWriter.flush();
-        } catch (Exception e) {
-            logger.error("convertListAsCsv() " + CONVERT_LIST_TO_CSV_EXCEPTION);
-            throw new ConvertEmailListToCSVException(CONVERT_LIST_TO_CSV_EXCEPTION);
         }
-        return writer.toString();
     }
 }
@@ -0,0 +1,121 @@
+package org.turkovaleksey.emailservice.services.impl;
+
+/**
+ * Syntax check and canonicalization of submitted email addresses, run before any database access.
+ *
+ * <p>
+ * Surrounding whitespace and one pair of surrounding double quotes, as sent by clients posting
+ * a JSON string, are removed. The remaining address must be at most 100 characters, the size of the
+ * email column, and consist of an unquoted local part of RFC 5322 atom characters and dots of at most
+ * 64 characters, an {@code @} and a domain of at least two dot separated labels of letters, digits and
+ * inner hyphens of at most 63 characters each. Only ASCII addresses are accepted.
+ * </p>
+ *
+ * <p>
+ * The domain is case-insensitive and is lowercased; the local part is kept as submitted. The check is
+ * a single pass over the characters without regular expressions, and an address that is already
+ * canonical is returned as the same instance without allocating.
+ * </p>
+ */
+public final class EmailValidator {
+    public static final int MAX_LENGTH = 100;
+    private static final int MAX_LOCAL_PART_LENGTH = 64;
+    private static final int MAX_LABEL_LENGTH = 63;
+
+    private EmailValidator() {
+    }
+
+    /**
+     * Returns the canonical form of the address, or {@code null} if it is not a valid address.
+     *
+     * @param email The submitted address, may be {@code null}.
+     * @return The trimmed address with the domain lowercased, or {@code null} if it is invalid.
+     */
+    public static String canonicalize(String email) {
+        if (email == null) {
+            return null;
+        }
+        int start = 0;
+        int end = email.length();
+        while (start < end && email.charAt(start) <= ' ') {
+            start++;
+        }
+        while (end > start && email.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        if (end - start >= 2 && email.charAt(start) == '"' && email.charAt(end - 1) == '"') {
+            start++;
+            end--;
+        }
+        if (end - start > MAX_LENGTH) {
+            return null;
+        }
+        int at = localPartEnd(email, start, end);
+        if (at < 0) {
+            return null;
+        }
+        boolean hasUpperCase = false;
+        int labels = 0;
+        int labelStart = at + 1;
+        for (int i = at + 1; i <= end; i++) {
+            char c = i < end ? email.charAt(i) : '.';
+            if (c == '.') {
+                int labelLength = i - labelStart;
+                if (labelLength == 0 || labelLength > MAX_LABEL_LENGTH
+                        || email.charAt(labelStart) == '-' || email.charAt(i - 1) == '-') {
+                    return null;
+                }
+                labels++;
+                labelStart = i + 1;
+            } else if (c >= 'A' && c <= 'Z') {
+                hasUpperCase = true;
+            } else if (!(c >= 'a' && c <= 'z' || c >= '0' && c <= '9' || c == '-')) {
+                return null;
+            }
+        }
+        if (labels < 2) {
+            return null;
+        }
+        if (!hasUpperCase) {
+            return start == 0 && end == email.length() ? email : email.substring(start, end);
+        }
+        char[] chars = new char[end - start];
+        email.getChars(start, end, chars, 0);
+        for (int i = at + 1 - start; i < chars.length; i++) {
+            if (chars[i] >= 'A' && chars[i] <= 'Z') {
+                chars[i] += 'a' - 'A';
+            }
+        }
+        return new String(chars);
+    }
+
+    /**
+     * Checks the local part and returns the index of the {@code @} following it, or -1 if it is invalid.
+     */
+    private static int localPartEnd(String email, int start, int end) {
+        char previous = '.';
+        for (int i = start; i < end; i++) {
+            char c = email.charAt(i);
+            if (c == '@') {
+                return i == start || previous == '.' || i - start > MAX_LOCAL_PART_LENGTH ? -1 : i;
+            }
+            if (c == '.' ? previous == '.' : !isAtomChar(c)) {
+                return -1;
+            }
+            previous = c;
+        }
+        return -1;
+    }
+
+    private static boolean isAtomChar(char c) {
+        if (c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z' || c >= '0' && c <= '9') {
+            return true;
+        }
+        switch (c) {
+            case '!', '#', '$', '%', '&', '\'', '*', '+', '-', '/', '=', '?', '^', '_', '`', '{', '|', '}', '~':
+                return true;
+            default:
+                return false;
+        }
+    }
+}
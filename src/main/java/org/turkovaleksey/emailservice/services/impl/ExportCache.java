@@ -0,0 +1,236 @@
+package org.turkovaleksey.emailservice.services.impl;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.turkovaleksey.emailservice.repositories.model.Email;
+import org.turkovaleksey.emailservice.services.dto.ExportCacheStats;
+import org.turkovaleksey.emailservice.services.dto.MailCreatePeriod;
+import org.turkovaleksey.emailservice.services.events.EmailsSavedEvent;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDate;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Cache of encoded CSV exports for closed periods.
+ * Saves always stamp the current date, so the emails of a period that ended before today
+ * do not change any more and its export can be served from memory for as long as it stays cached.
+ * Periods that include today are never cached.
+ *
+ * <p>
+ * The cache is bounded by the total size of the cached exports and evicts the least recently
+ * used export first. Exports larger than {@code max-entry-bytes} are not cached. Should an email
+ * still be saved with a date inside a cached period, for example by an ingestion batch flushed
+ * just after midnight, every cached export covering that date is evicted. Such a save also moves the
+ * generation of the cache, so an export that was read before the save but is put after the eviction
+ * is not cached with the stale rows.
+ * </p>
+ *
+ * @see EmailServiceImpl#writeEmailsByPeriodAsCsv(MailCreatePeriod, OutputStream)
+ */
+@Component
+public class ExportCache {
+    private static final Logger logger = LoggerFactory.getLogger(ExportCache.class);
+    private final long maxBytes;
+    private final long maxEntryBytes;
+    private final LinkedHashMap<MailCreatePeriod, byte[]> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private long bytes;
+    private volatile long generation;
+
+    /**
+     * Instantiates a new Export cache.
+     *
+     * @param maxBytes      the maximum total size of the cached exports, 0 disables the cache
+     * @param maxEntryBytes the maximum size of a single cached export
+     */
+    @Autowired
+    public ExportCache(@Value("${email-service.export.cache.max-bytes:67108864}") long maxBytes,
+                       @Value("${email-service.export.cache.max-entry-bytes:16777216}") long maxEntryBytes) {
+        this.maxBytes = maxBytes;
+        this.maxEntryBytes = Math.min(maxEntryBytes, maxBytes);
+    }
+
+    /**
+     * Checks whether the export of the period may be cached: the period must have ended before today.
+     *
+     * @param mailCreatePeriod The period of the export.
+     * @return {@code true} if the export of the period can not change any more.
+     */
+    public boolean isCacheable(MailCreatePeriod mailCreatePeriod) {
+        return maxBytes > 0 && mailCreatePeriod.getEnd().isBefore(LocalDate.now());
+    }
+
+    /**
+     * Returns the cached export of the period and counts a hit or a miss.
+     *
+     * @param mailCreatePeriod The period of the export.
+     * @return The encoded export, or {@code null} if it is not cached.
+     */
+    public byte[] get(MailCreatePeriod mailCreatePeriod) {
+        byte[] export;
+        synchronized (entries) {
+            export = entries.get(mailCreatePeriod);
+        }
+        if (export == null) {
+            misses.increment();
+        } else {
+            hits.increment();
+        }
+        return export;
+    }
+
+    /**
+     * Returns the generation of the cache, taken before an export is read and passed to
+     * {@link #put(MailCreatePeriod, byte[], long)}.
+     *
+     * @return The number of saves so far that evicted closed days.
+     */
+    public long getGeneration() {
+        return generation;
+    }
+
+    /**
+     * Caches the export of the period, evicting the least recently used exports until it fits.
+     * The export is not cached if an email of a closed day has been saved since it started to be read.
+     *
+     * @param mailCreatePeriod The period of the export.
+     * @param export           The encoded export.
+     * @param generation       The {@link #getGeneration()} taken before the export was read.
+     */
+    public void put(MailCreatePeriod mailCreatePeriod, byte[] export, long generation) {
+        if (!isCacheable(mailCreatePeriod) || export.length > maxEntryBytes) {
+            return;
+        }
+        synchronized (entries) {
+            if (generation != this.generation) {
+                logger.debug("put() skipped period = {}, emails were saved while it was read", mailCreatePeriod);
+                return;
+            }
+            byte[] previous = entries.put(mailCreatePeriod, export);
+            bytes += export.length - (previous == null ? 0 : previous.length);
+            Iterator<byte[]> iterator = entries.values().iterator();
+            while (bytes > maxBytes && iterator.hasNext()) {
+                bytes -= iterator.next().length;
+                iterator.remove();
+            }
+            logger.debug("put() cached period = {}, {} bytes, {} entries", mailCreatePeriod, bytes, entries.size());
+        }
+    }
+
+    /**
+     * Wraps the output stream so that everything written to it is also captured for the cache,
+     * as long as it does not exceed the maximum size of a cached export.
+     *
+     * @param outputStream The stream the export is written to.
+     * @return A Capture writing through to the output stream.
+     */
+    public Capture capture(OutputStream outputStream) {
+        return new Capture(outputStream, maxEntryBytes);
+    }
+
+    /**
+     * Evicts every cached export whose period covers the date of a saved email and moves the generation.
+     * Emails saved with today's date can not be part of a cached period and are ignored.
+     *
+     * @param event The event carrying the inserted emails.
+     * @see EmailsSavedEvent
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onEmailsSaved(EmailsSavedEvent event) {
+        LocalDate today = LocalDate.now();
+        Set<LocalDate> dates = new HashSet<>();
+        for (Email email : event.getEmails()) {
+            if (email.getCreateDate().isBefore(today)) {
+                dates.add(email.getCreateDate());
+            }
+        }
+        if (dates.isEmpty()) {
+            return;
+        }
+        synchronized (entries) {
+            generation++;
+            Iterator<Map.Entry<MailCreatePeriod, byte[]>> iterator = entries.entrySet().iterator();
+            while (iterator.hasNext()) {
+                Map.Entry<MailCreatePeriod, byte[]> entry = iterator.next();
+                for (LocalDate date : dates) {
+                    if (!date.isBefore(entry.getKey().getStart()) && !date.isAfter(entry.getKey().getEnd())) {
+                        logger.debug("onEmailsSaved() evict period = {}", entry.getKey());
+                        bytes -= entry.getValue().length;
+                        iterator.remove();
+                        break;
+                    }
+                }
+            }
+        }
+    }
+
+    public ExportCacheStats getStats() {
+        synchronized (entries) {
+            return new ExportCacheStats(hits.sum(), misses.sum(), entries.size(), bytes, maxBytes);
+        }
+    }
+
+    /**
+     * Output stream writing through to the response while keeping a copy of the export.
+     * The copy is dropped as soon as it grows beyond the maximum size of a cached export.
+     */
+    public static final class Capture extends OutputStream {
+        private final OutputStream outputStream;
+        private final long maxBytes;
+        private ByteArrayOutputStream copy = new ByteArrayOutputStream();
+
+        private Capture(OutputStream outputStream, long maxBytes) {
+            this.outputStream = outputStream;
+            this.maxBytes = maxBytes;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            outputStream.write(b);
+            if (copy != null) {
+                copy.write(b);
+                checkSize();
+            }
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            outputStream.write(b, off, len);
+            if (copy != null) {
+                copy.write(b, off, len);
+                checkSize();
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            outputStream.flush();
+        }
+
+        /**
+         * Returns the captured export, or {@code null} if it was too large to be kept.
+         */
+        public byte[] toByteArray() {
+            return copy == null ? null : copy.toByteArray();
+        }
+
+        private void checkSize() {
+            if (copy.size() > maxBytes) {
+                copy = null;
+            }
+        }
+    }
+}
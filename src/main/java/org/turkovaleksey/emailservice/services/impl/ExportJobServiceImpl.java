@@ -0,0 +1,346 @@
+package org.turkovaleksey.emailservice.services.impl;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.turkovaleksey.emailservice.services.api.IEmailService;
+import org.turkovaleksey.emailservice.services.api.IExportJobService;
+import org.turkovaleksey.emailservice.services.dto.ExportJobState;
+import org.turkovaleksey.emailservice.services.dto.ExportJobStatus;
+import org.turkovaleksey.emailservice.services.dto.MailCreatePeriod;
+import org.turkovaleksey.emailservice.services.exceptions.ExportJobNotFoundException;
+import org.turkovaleksey.emailservice.services.exceptions.ExportJobNotReadyException;
+import org.turkovaleksey.emailservice.services.exceptions.IncorrectPeriodException;
+import org.turkovaleksey.emailservice.services.exceptions.TooManyRequestsException;
+
+import java.io.BufferedOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Iterator;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static org.turkovaleksey.emailservice.services.api.IMessage.CONVERT_LIST_TO_CSV_EXCEPTION;
+import static org.turkovaleksey.emailservice.services.api.IMessage.EXPORT_JOBS_LIMIT_EXCEPTION;
+import static org.turkovaleksey.emailservice.services.api.IMessage.EXPORT_JOB_NOT_FOUND_EXCEPTION;
+import static org.turkovaleksey.emailservice.services.api.IMessage.EXPORT_JOB_NOT_READY_EXCEPTION;
+
+/**
+ * Asynchronous period exports for periods too long to be downloaded within one request.
+ * A submitted job is queued for a fixed pool of {@code workers} threads, each writing the CSV export of
+ * {@link IEmailService#writeEmailsByPeriodAsCsv(MailCreatePeriod, OutputStream)} into a temporary file
+ * that is moved into place once it is complete. While it runs the job reports the rows and bytes written.
+ *
+ * <p>
+ * At most {@code queue-capacity} jobs wait for a worker and at most {@code max-jobs} jobs are kept in total;
+ * further submissions are rejected with {@link TooManyRequestsException}. Finished jobs, and their files,
+ * are deleted {@code ttl-minutes} after they finished. Jobs are kept in memory only, so files left over
+ * from a previous run are deleted at startup. A job is only visible to the user who submitted it.
+ * </p>
+ */
+@Service
+public class ExportJobServiceImpl implements IExportJobService {
+    private static final Logger logger = LoggerFactory.getLogger(ExportJobServiceImpl.class);
+    private static final String FILE_SUFFIX = ".csv";
+    private static final String PART_SUFFIX = ".csv.part";
+    private final IEmailService emailService;
+    private final Path directory;
+    private final int maxJobs;
+    private final Duration ttl;
+    private final ThreadPoolExecutor executor;
+    private final ConcurrentHashMap<String, ExportJob> jobs = new ConcurrentHashMap<>();
+
+    /**
+     * Instantiates a new Export job service.
+     *
+     * @param emailService  the email service writing the exports
+     * @param workers       the number of exports written at the same time
+     * @param queueCapacity the maximum number of jobs waiting for a worker
+     * @param maxJobs       the maximum number of jobs kept, including finished ones
+     * @param ttlMinutes    the time a finished job and its file are kept
+     * @param directory     the directory the export files are written to
+     */
+    @Autowired
+    public ExportJobServiceImpl(IEmailService emailService,
+                                @Value("${email-service.export.jobs.workers:2}") int workers,
+                                @Value("${email-service.export.jobs.queue-capacity:16}") int queueCapacity,
+                                @Value("${email-service.export.jobs.max-jobs:100}") int maxJobs,
+                                @Value("${email-service.export.jobs.ttl-minutes:60}") long ttlMinutes,
+                                @Value("${email-service.export.jobs.directory:${java.io.tmpdir}/email-service/jobs}") String directory) {
+        this.emailService = emailService;
+        this.directory = Paths.get(directory);
+        this.maxJobs = maxJobs;
+        this.ttl = Duration.ofMinutes(ttlMinutes);
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(workers, workers, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(queueCapacity, 1)),
+                runnable -> new Thread(runnable, "email-export-job-" + threadNumber.incrementAndGet()));
+    }
+
+    /**
+     * Creates the export directory and deletes the files of jobs of a previous run.
+     * If the directory can not be created the jobs fail and report the error.
+     */
+    @PostConstruct
+    public void init() {
+        try {
+            Files.createDirectories(directory);
+            try (Stream<Path> files = Files.list(directory)) {
+                files.filter(file -> file.getFileName().toString().endsWith(FILE_SUFFIX)
+                                || file.getFileName().toString().endsWith(PART_SUFFIX))
+                        .forEach(this::deleteFile);
+            }
+            logger.debug("init() export jobs are written to {}", directory);
+        } catch (IOException e) {
+            logger.error("init() failed to prepare {} - {}", directory, e.getMessage());
+        }
+    }
+
+    /**
+     * Stops the workers, interrupting the exports in progress.
+     */
+    @PreDestroy
+    public void shutdown() {
+        logger.debug("shutdown() with {} queued export jobs", executor.getQueue().size());
+        executor.shutdownNow();
+    }
+
+    /**
+     * Queues the export of the period.
+     *
+     * @param mailCreatePeriod The period to be exported.
+     * @param owner            The user submitting the job.
+     * @return The ExportJobStatus of the queued job.
+     * @throws IncorrectPeriodException If the start date is later than the end date.
+     * @throws TooManyRequestsException If the queue or the number of kept jobs is exhausted.
+     */
+    @Override
+    public ExportJobStatus submit(MailCreatePeriod mailCreatePeriod, String owner) {
+        logger.debug("submit() with MailCreatePeriod = {}, owner = {}", mailCreatePeriod, owner);
+        emailService.checkDateOnValid(mailCreatePeriod);
+        if (jobs.size() >= maxJobs) {
+            removeExpired();
+            if (jobs.size() >= maxJobs) {
+                logger.warn("submit() " + EXPORT_JOBS_LIMIT_EXCEPTION + ", jobs = {}", jobs.size());
+                throw new TooManyRequestsException(EXPORT_JOBS_LIMIT_EXCEPTION, 60);
+            }
+        }
+        ExportJob job = new ExportJob(UUID.randomUUID().toString(), owner, mailCreatePeriod);
+        jobs.put(job.id, job);
+        try {
+            job.future = executor.submit(() -> run(job));
+        } catch (RejectedExecutionException e) {
+            jobs.remove(job.id);
+            logger.warn("submit() " + EXPORT_JOBS_LIMIT_EXCEPTION + ", queued = {}", executor.getQueue().size());
+            throw new TooManyRequestsException(EXPORT_JOBS_LIMIT_EXCEPTION, 10);
+        }
+        return job.toStatus();
+    }
+
+    /**
+     * Returns the state and progress of the job.
+     *
+     * @param id    The id of the job.
+     * @param owner The user asking for the job.
+     * @return The ExportJobStatus of the job.
+     * @throws ExportJobNotFoundException If there is no such job of the user.
+     */
+    @Override
+    public ExportJobStatus getStatus(String id, String owner) {
+        logger.debug("getStatus() with id = {}", id);
+        return find(id, owner).toStatus();
+    }
+
+    /**
+     * Returns the file of a finished job.
+     *
+     * @param id    The id of the job.
+     * @param owner The user asking for the job.
+     * @return The path of the CSV file.
+     * @throws ExportJobNotFoundException If there is no such job of the user.
+     * @throws ExportJobNotReadyException If the job has not finished successfully.
+     */
+    @Override
+    public Path getFile(String id, String owner) {
+        logger.debug("getFile() with id = {}", id);
+        ExportJob job = find(id, owner);
+        if (job.state != ExportJobState.DONE) {
+            logger.warn("getFile() " + EXPORT_JOB_NOT_READY_EXCEPTION + ", id = {}, state = {}", id, job.state);
+            throw new ExportJobNotReadyException(EXPORT_JOB_NOT_READY_EXCEPTION);
+        }
+        return job.file;
+    }
+
+    /**
+     * Cancels the job if it has not finished and deletes it with its file.
+     *
+     * @param id    The id of the job.
+     * @param owner The user asking for the job.
+     * @throws ExportJobNotFoundException If there is no such job of the user.
+     */
+    @Override
+    public void delete(String id, String owner) {
+        logger.debug("delete() with id = {}", id);
+        ExportJob job = find(id, owner);
+        remove(job);
+    }
+
+    /**
+     * Deletes the finished jobs whose time to live has passed.
+     */
+    @Scheduled(fixedDelayString = "${email-service.export.jobs.cleanup-interval-ms:60000}")
+    public void removeExpired() {
+        Instant now = Instant.now();
+        Iterator<ExportJob> iterator = jobs.values().iterator();
+        while (iterator.hasNext()) {
+            ExportJob job = iterator.next();
+            if (job.expiresAt != null && !now.isBefore(job.expiresAt)) {
+                logger.debug("removeExpired() job id = {}", job.id);
+                remove(job);
+            }
+        }
+    }
+
+    private ExportJob find(String id, String owner) {
+        ExportJob job = jobs.get(id);
+        if (job == null || !job.owner.equals(owner)) {
+            logger.warn("find() " + EXPORT_JOB_NOT_FOUND_EXCEPTION + ", id = {}", id);
+            throw new ExportJobNotFoundException(EXPORT_JOB_NOT_FOUND_EXCEPTION);
+        }
+        return job;
+    }
+
+    private void remove(ExportJob job) {
+        if (!jobs.remove(job.id, job)) {
+            return;
+        }
+        if (job.future != null) {
+            job.future.cancel(true);
+        }
+        if (job.file != null) {
+            deleteFile(job.file);
+        }
+    }
+
+    private void run(ExportJob job) {
+        logger.debug("run() job id = {}, MailCreatePeriod = {}", job.id, job.mailCreatePeriod);
+        job.state = ExportJobState.RUNNING;
+        Path part = directory.resolve(job.id + PART_SUFFIX);
+        Path file = directory.resolve(job.id + FILE_SUFFIX);
+        try {
+            try (OutputStream outputStream = new ProgressOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(part)), job)) {
+                emailService.writeEmailsByPeriodAsCsv(job.mailCreatePeriod, outputStream);
+            }
+            Files.move(part, file, StandardCopyOption.ATOMIC_MOVE);
+            job.file = file;
+            job.state = ExportJobState.DONE;
+            logger.debug("run() job id = {} finished with {} rows", job.id, job.getRows());
+        } catch (Exception e) {
+            logger.error("run() job id = {} failed", job.id, e);
+            job.errorMessage = CONVERT_LIST_TO_CSV_EXCEPTION;
+            job.state = ExportJobState.FAILED;
+            deleteFile(part);
+        } finally {
+            job.finishedAt = Instant.now();
+            job.expiresAt = job.finishedAt.plus(ttl);
+        }
+        if (jobs.get(job.id) != job) {
+            deleteFile(file);
+        }
+    }
+
+    private void deleteFile(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            logger.error("deleteFile() failed to delete {} - {}", file, e.getMessage());
+        }
+    }
+
+    /**
+     * Job state. The worker is the only writer of the progress and the result.
+     */
+    private static final class ExportJob {
+        private final String id;
+        private final String owner;
+        private final MailCreatePeriod mailCreatePeriod;
+        private final Instant createdAt = Instant.now();
+        private volatile ExportJobState state = ExportJobState.QUEUED;
+        private volatile long bytes;
+        private volatile long lines;
+        private volatile Future<?> future;
+        private volatile Path file;
+        private volatile String errorMessage;
+        private volatile Instant finishedAt;
+        private volatile Instant expiresAt;
+
+        private ExportJob(String id, String owner, MailCreatePeriod mailCreatePeriod) {
+            this.id = id;
+            this.owner = owner;
+            this.mailCreatePeriod = mailCreatePeriod;
+        }
+
+        private long getRows() {
+            return Math.max(lines - 1, 0);
+        }
+
+        private ExportJobStatus toStatus() {
+            return new ExportJobStatus(id, state, mailCreatePeriod.getStart(), mailCreatePeriod.getEnd(),
+                    getRows(), bytes, createdAt, finishedAt, expiresAt, errorMessage);
+        }
+    }
+
+    /**
+     * Counts the bytes and lines written by the export, the lines after the header being the rows.
+     */
+    private static final class ProgressOutputStream extends FilterOutputStream {
+        private final ExportJob job;
+
+        private ProgressOutputStream(OutputStream outputStream, ExportJob job) {
+            super(outputStream);
+            this.job = job;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            job.bytes++;
+            if (b == '\n') {
+                job.lines++;
+            }
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            int lines = 0;
+            for (int i = off; i < off + len; i++) {
+                if (b[i] == '\n') {
+                    lines++;
+                }
+            }
+            job.bytes += len;
+            job.lines += lines;
+        }
+    }
+}
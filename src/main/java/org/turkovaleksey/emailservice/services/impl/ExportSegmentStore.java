@@ -0,0 +1,344 @@
+package org.turkovaleksey.emailservice.services.impl;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.turkovaleksey.emailservice.repositories.api.IEmailRepository;
+import org.turkovaleksey.emailservice.repositories.api.IEmailRowCallback;
+import org.turkovaleksey.emailservice.repositories.model.Email;
+import org.turkovaleksey.emailservice.services.dto.MailCreatePeriod;
+import org.turkovaleksey.emailservice.services.events.EmailsSavedEvent;
+import org.turkovaleksey.emailservice.services.exceptions.ConvertEmailListToCSVException;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+import static org.turkovaleksey.emailservice.services.api.IMessage.CONVERT_LIST_TO_CSV_EXCEPTION;
+
+/**
+ * Store of precomputed per-day CSV segments for period exports.
+ * The rows of every closed day are encoded once into an immutable file {@code emails_yyyy-MM-dd.csv}
+ * without a header. A period export writes the header, copies the segments of its closed days
+ * to the response with {@link FileChannel#transferTo(long, long, WritableByteChannel)} and encodes
+ * only today live, so a long period costs sequential file reads instead of a table scan.
+ *
+ * <p>
+ * Missing segments are built with one query ordered by date over the range from the first to the last
+ * missing day; days without emails get an empty segment so they are not queried again. Segments are
+ * written to a temporary file and moved into place atomically. Should an email still be saved with the
+ * date of an existing segment, for example by an ingestion batch flushed just after midnight, the segment
+ * is deleted and built again on the next export. A day invalidated while its segment is being built may
+ * be missing from the rows the build read, so such a segment is deleted again right after it is moved
+ * into place.
+ * </p>
+ *
+ * <p>
+ * Only the days from the first day with emails, read from the table, up to yesterday get
+ * segments, so a period starting long before the first email does not create a file for every day of it.
+ * Segments of a previous run may belong to another database and are deleted at startup.
+ * </p>
+ *
+ * <p>
+ * If the segment directory can not be created the store disables itself and exports are read from the table.
+ * </p>
+ *
+ * @see EmailServiceImpl#writeEmailsByPeriodAsCsv(MailCreatePeriod, OutputStream)
+ */
+@Component
+public class ExportSegmentStore {
+    private static final Logger logger = LoggerFactory.getLogger(ExportSegmentStore.class);
+    private static final String PREFIX = "emails_";
+    private final IEmailRepository emailRepository;
+    private final Path directory;
+    private final ReentrantLock buildLock = new ReentrantLock();
+    private final Set<LocalDate> invalidatedDays = ConcurrentHashMap.newKeySet();
+    private volatile boolean enabled;
+
+    /**
+     * Instantiates a new Export segment store.
+     *
+     * @param emailRepository the email repository
+     * @param enabled         whether period exports are assembled from segments
+     * @param directory       the directory the segments are stored in
+     */
+    @Autowired
+    public ExportSegmentStore(IEmailRepository emailRepository,
+                              @Value("${email-service.export.segments.enabled:true}") boolean enabled,
+                              @Value("${email-service.export.segments.directory:${java.io.tmpdir}/email-service/segments}") String directory) {
+        this.emailRepository = emailRepository;
+        this.enabled = enabled;
+        this.directory = Paths.get(directory);
+    }
+
+    /**
+     * Creates the segment directory and deletes the segments of a previous run.
+     */
+    @PostConstruct
+    public void init() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            Files.createDirectories(directory);
+            deleteSegments();
+            logger.debug("init() segments are stored in {}", directory);
+        } catch (IOException e) {
+            enabled = false;
+            logger.error("init() failed to create {}, period exports are read from db - {}", directory, e.getMessage());
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Writes the CSV export of the period: the header, the segments of the closed days and the rows of today.
+     *
+     * @param mailCreatePeriod The period for which emails need to be written.
+     * @param outputStream     The stream the CSV content is written to.
+     * @throws ConvertEmailListToCSVException If a segment can not be built or written to the output stream.
+     */
+    public void writeTo(MailCreatePeriod mailCreatePeriod, OutputStream outputStream) {
+        logger.debug("writeTo() with MailCreatePeriod = {}", mailCreatePeriod);
+        LocalDate today = LocalDate.now();
+        LocalDate lastClosedDay = mailCreatePeriod.getEnd().isBefore(today) ? mailCreatePeriod.getEnd() : today.minusDays(1);
+        CsvEncoder csvEncoder = new CsvEncoder(outputStream);
+        csvEncoder.writeHeader();
+        csvEncoder.flush();
+        LocalDate firstDay = mailCreatePeriod.getStart().isAfter(lastClosedDay) ? null : emailRepository.findMinCreateDate();
+        if (firstDay != null) {
+            LocalDate from = firstDay.isAfter(mailCreatePeriod.getStart()) ? firstDay : mailCreatePeriod.getStart();
+            if (!from.isAfter(lastClosedDay)) {
+                ensureSegments(from, lastClosedDay);
+                WritableByteChannel target = Channels.newChannel(outputStream);
+                for (LocalDate day = from; !day.isAfter(lastClosedDay); day = day.plusDays(1)) {
+                    transferSegment(day, target);
+                }
+            }
+        }
+        if (!mailCreatePeriod.getEnd().isBefore(today)) {
+            LocalDate liveStart = mailCreatePeriod.getStart().isAfter(today) ? mailCreatePeriod.getStart() : today;
+            logger.debug("writeTo() call streamAllByPeriod() for the live days from {}", liveStart);
+            emailRepository.streamAllByPeriod(new MailCreatePeriod(liveStart, mailCreatePeriod.getEnd()),
+                    (id, createDate, email) -> csvEncoder.writeRow(createDate, email));
+        }
+        csvEncoder.flush();
+    }
+
+    /**
+     * Deletes the segments of the days emails have been saved for once their transaction has committed.
+     *
+     * @param event The event carrying the inserted emails.
+     * @see EmailsSavedEvent
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onEmailsSaved(EmailsSavedEvent event) {
+        if (!enabled) {
+            return;
+        }
+        LocalDate today = LocalDate.now();
+        for (Email email : event.getEmails()) {
+            if (email.getCreateDate().isBefore(today)) {
+                invalidatedDays.add(email.getCreateDate());
+                try {
+                    if (Files.deleteIfExists(segmentPath(email.getCreateDate()))) {
+                        logger.debug("onEmailsSaved() deleted segment of {}", email.getCreateDate());
+                    }
+                } catch (IOException e) {
+                    logger.error("onEmailsSaved() failed to delete segment of {} - {}", email.getCreateDate(), e.getMessage());
+                }
+            }
+        }
+    }
+
+    private void transferSegment(LocalDate day, WritableByteChannel target) {
+        try {
+            try (FileChannel segment = FileChannel.open(segmentPath(day), StandardOpenOption.READ)) {
+                transfer(segment, target);
+            } catch (NoSuchFileException e) {
+                logger.debug("transferSegment() segment of {} was deleted, building it again", day);
+                ensureSegments(day, day);
+                try (FileChannel segment = FileChannel.open(segmentPath(day), StandardOpenOption.READ)) {
+                    transfer(segment, target);
+                }
+            }
+        } catch (IOException e) {
+            logger.error("transferSegment() " + CONVERT_LIST_TO_CSV_EXCEPTION);
+            throw new ConvertEmailListToCSVException(CONVERT_LIST_TO_CSV_EXCEPTION);
+        }
+    }
+
+    private static void transfer(FileChannel segment, WritableByteChannel target) throws IOException {
+        long size = segment.size();
+        long position = 0;
+        while (position < size) {
+            position += segment.transferTo(position, size - position, target);
+        }
+    }
+
+    /**
+     * Builds the missing segments between the two days with one query over the range of missing days.
+     */
+    private void ensureSegments(LocalDate from, LocalDate to) {
+        buildLock.lock();
+        try {
+            LocalDate firstMissing = null;
+            LocalDate lastMissing = null;
+            for (LocalDate day = from; !day.isAfter(to); day = day.plusDays(1)) {
+                if (!Files.exists(segmentPath(day))) {
+                    if (firstMissing == null) {
+                        firstMissing = day;
+                    }
+                    lastMissing = day;
+                }
+            }
+            if (firstMissing == null) {
+                return;
+            }
+            logger.debug("ensureSegments() building segments from {} to {}", firstMissing, lastMissing);
+            invalidatedDays.clear();
+            SegmentWriter segmentWriter = new SegmentWriter();
+            try {
+                emailRepository.streamAllByPeriod(new MailCreatePeriod(firstMissing, lastMissing), segmentWriter);
+                segmentWriter.close();
+            } catch (RuntimeException e) {
+                segmentWriter.abort();
+                throw e;
+            }
+            for (LocalDate day = firstMissing; !day.isAfter(lastMissing); day = day.plusDays(1)) {
+                if (!Files.exists(segmentPath(day))) {
+                    publish(Files.createTempFile(directory, PREFIX + day, ".tmp"), day);
+                }
+            }
+        } catch (IOException e) {
+            logger.error("ensureSegments() " + CONVERT_LIST_TO_CSV_EXCEPTION);
+            throw new ConvertEmailListToCSVException(CONVERT_LIST_TO_CSV_EXCEPTION);
+        } finally {
+            buildLock.unlock();
+        }
+    }
+
+    /**
+     * Moves a built segment into place. If an email of its day has been saved since the build started the
+     * segment may lack it, so it is deleted again; the check follows the move, so a save racing with it
+     * either sees the segment and deletes it itself or is seen here.
+     */
+    private void publish(Path temp, LocalDate day) throws IOException {
+        Path segment = segmentPath(day);
+        Files.move(temp, segment, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        if (invalidatedDays.contains(day)) {
+            logger.debug("publish() segment of {} was invalidated while building, deleting it", day);
+            Files.deleteIfExists(segment);
+        }
+    }
+
+    /**
+     * Deletes every segment and temporary file in the segment directory.
+     */
+    private void deleteSegments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            files.filter(file -> file.getFileName().toString().startsWith(PREFIX))
+                    .forEach(file -> {
+                        try {
+                            Files.deleteIfExists(file);
+                        } catch (IOException e) {
+                            logger.error("deleteSegments() failed to delete {} - {}", file, e.getMessage());
+                        }
+                    });
+        }
+    }
+
+    private Path segmentPath(LocalDate day) {
+        return directory.resolve(PREFIX + day + ".csv");
+    }
+
+    /**
+     * Writes rows ordered by date into one segment per day, skipping the days whose segment already exists.
+     */
+    private final class SegmentWriter implements IEmailRowCallback {
+        private LocalDate day;
+        private boolean skipping;
+        private Path temp;
+        private OutputStream outputStream;
+        private CsvEncoder csvEncoder;
+
+        @Override
+        public void processRow(long id, LocalDate createDate, String email) {
+            if (!createDate.equals(day)) {
+                close();
+                open(createDate);
+            }
+            if (!skipping) {
+                csvEncoder.writeRow(createDate, email);
+            }
+        }
+
+        private void open(LocalDate createDate) {
+            day = createDate;
+            skipping = Files.exists(segmentPath(createDate));
+            if (skipping) {
+                return;
+            }
+            try {
+                temp = Files.createTempFile(directory, PREFIX + createDate, ".tmp");
+                outputStream = Files.newOutputStream(temp);
+            } catch (IOException e) {
+                logger.error("open() " + CONVERT_LIST_TO_CSV_EXCEPTION);
+                throw new ConvertEmailListToCSVException(CONVERT_LIST_TO_CSV_EXCEPTION);
+            }
+            csvEncoder = new CsvEncoder(outputStream);
+        }
+
+        private void close() {
+            if (outputStream == null) {
+                return;
+            }
+            try {
+                csvEncoder.flush();
+                outputStream.close();
+                publish(temp, day);
+            } catch (IOException e) {
+                logger.error("close() " + CONVERT_LIST_TO_CSV_EXCEPTION);
+                throw new ConvertEmailListToCSVException(CONVERT_LIST_TO_CSV_EXCEPTION);
+            } finally {
+                outputStream = null;
+            }
+        }
+
+        /**
+         * Discards the segment being written when building fails.
+         */
+        private void abort() {
+            if (outputStream == null) {
+                return;
+            }
+            try {
+                outputStream.close();
+                Files.deleteIfExists(temp);
+            } catch (IOException e) {
+                logger.error("abort() failed to delete {} - {}", temp, e.getMessage());
+            } finally {
+                outputStream = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,293 @@
+package org.turkovaleksey.emailservice.services.impl;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Store of materialized full CSV exports, so that a byte range of one version of the export can be sent
+ * again after an interrupted download. A snapshot holds the exact bytes of a full download that was sent
+ * with the version, in the immutable file {@code emails_<key>.csv}, where the key identifies the version.
+ *
+ * <p>
+ * Snapshots are recorded while the full export is streamed: the bytes go to a temporary file as well as to
+ * the client, and once the export is complete the file is moved into place atomically. If the client goes
+ * away the export is still read to the end into the file, so the download can be resumed. The first
+ * recording of a version is kept; two downloads of one version running at the same time may differ if
+ * emails are saved meanwhile, and only the first one can be resumed.
+ * </p>
+ *
+ * <p>
+ * A snapshot is kept for {@code ttl-minutes} after it was recorded, and at most {@code max-snapshots} are
+ * kept; both are enforced whenever a snapshot is recorded. Readers open the file before it may be deleted,
+ * and an open file stays readable after deletion. Snapshots left over from a previous run are deleted at
+ * startup. If the snapshot directory can not be created the store disables itself and range requests are
+ * answered with the full export.
+ * </p>
+ *
+ * @see EmailServiceImpl#writeEmailsAsCsv(org.turkovaleksey.emailservice.services.dto.ExportVersion, OutputStream)
+ * @see EmailServiceImpl#getExportSnapshot(org.turkovaleksey.emailservice.services.dto.ExportVersion)
+ */
+@Component
+public class ExportSnapshotStore {
+    private static final Logger logger = LoggerFactory.getLogger(ExportSnapshotStore.class);
+    private static final String PREFIX = "emails_";
+    private static final String SUFFIX = ".csv";
+    private final Path directory;
+    private final long ttlMillis;
+    private final int maxSnapshots;
+    private final ReentrantLock publishLock = new ReentrantLock();
+    private volatile boolean enabled;
+
+    /**
+     * Instantiates a new Export snapshot store.
+     *
+     * @param enabled      whether range requests are served from snapshots
+     * @param directory    the directory the snapshots are stored in
+     * @param ttlMinutes   the time a snapshot is kept after it was recorded
+     * @param maxSnapshots the greatest number of snapshots kept
+     */
+    @Autowired
+    public ExportSnapshotStore(@Value("${email-service.export.snapshots.enabled:true}") boolean enabled,
+                               @Value("${email-service.export.snapshots.directory:${java.io.tmpdir}/email-service/snapshots}") String directory,
+                               @Value("${email-service.export.snapshots.ttl-minutes:60}") long ttlMinutes,
+                               @Value("${email-service.export.snapshots.max-snapshots:4}") int maxSnapshots) {
+        this.enabled = enabled;
+        this.directory = Paths.get(directory);
+        this.ttlMillis = TimeUnit.MINUTES.toMillis(ttlMinutes);
+        this.maxSnapshots = Math.max(maxSnapshots, 1);
+    }
+
+    /**
+     * Creates the snapshot directory and deletes the snapshots of a previous run.
+     */
+    @PostConstruct
+    public void init() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            Files.createDirectories(directory);
+            for (Path file : list(file -> true)) {
+                delete(file);
+            }
+            logger.debug("init() snapshots are stored in {}", directory);
+        } catch (IOException e) {
+            enabled = false;
+            logger.error("init() failed to create {}, range requests get the full export - {}", directory, e.getMessage());
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Returns the snapshot of the version if it has been recorded and not expired yet.
+     *
+     * @param key The key of the version of the export.
+     * @return The path of the snapshot, or {@code null} if there is none.
+     */
+    public Path find(String key) {
+        Path snapshot = snapshotPath(key);
+        return Files.exists(snapshot) && lastModified(snapshot) >= System.currentTimeMillis() - ttlMillis ? snapshot : null;
+    }
+
+    /**
+     * Starts recording the snapshot of the version from the bytes written to the client,
+     * unless it has been recorded already.
+     *
+     * @param key          The key of the version of the export.
+     * @param outputStream The stream of the client.
+     * @return The stream to write the export to, or {@code null} if nothing is to be recorded.
+     */
+    public Recorder record(String key, OutputStream outputStream) {
+        if (!enabled || Files.exists(snapshotPath(key))) {
+            return null;
+        }
+        try {
+            Path temp = Files.createTempFile(directory, PREFIX + key, ".tmp");
+            logger.debug("record() recording snapshot {} to {}", key, temp);
+            return new Recorder(key, temp, outputStream);
+        } catch (IOException e) {
+            logger.error("record() failed to create a file for snapshot {} - {}", key, e.getMessage());
+            return null;
+        }
+    }
+
+    private void publish(String key, Path temp) throws IOException {
+        Path snapshot = snapshotPath(key);
+        publishLock.lock();
+        try {
+            if (Files.exists(snapshot)) {
+                logger.debug("publish() snapshot {} has been recorded meanwhile", key);
+                return;
+            }
+            Files.move(temp, snapshot, StandardCopyOption.ATOMIC_MOVE);
+            Files.setLastModifiedTime(snapshot, FileTime.fromMillis(System.currentTimeMillis()));
+            logger.debug("publish() recorded snapshot {}", key);
+            deleteExpired(snapshot);
+        } finally {
+            publishLock.unlock();
+        }
+    }
+
+    private Path snapshotPath(String key) {
+        return directory.resolve(PREFIX + key + SUFFIX);
+    }
+
+    /**
+     * Deletes the snapshots older than the time to live and the oldest ones beyond the greatest number kept,
+     * except the given snapshot. Temporary files of recordings in progress are left alone.
+     */
+    private void deleteExpired(Path keep) throws IOException {
+        long expiredBefore = System.currentTimeMillis() - ttlMillis;
+        List<Path> snapshots = list(file -> file.getFileName().toString().endsWith(SUFFIX));
+        snapshots.sort(Comparator.comparingLong(ExportSnapshotStore::lastModified).reversed());
+        for (int i = 0; i < snapshots.size(); i++) {
+            Path snapshot = snapshots.get(i);
+            if (!snapshot.equals(keep) && (i >= maxSnapshots || lastModified(snapshot) < expiredBefore)) {
+                delete(snapshot);
+            }
+        }
+    }
+
+    private List<Path> list(Predicate<Path> filter) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.getFileName().toString().startsWith(PREFIX))
+                    .filter(filter)
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private static long lastModified(Path file) {
+        try {
+            return Files.getLastModifiedTime(file).toMillis();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private static void delete(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            logger.error("delete() failed to delete {} - {}", file, e.getMessage());
+        }
+    }
+
+    /**
+     * Stream writing the export to the client and to the snapshot file. A failure of the client is kept
+     * until {@link #publish()}, so the rest of the export still reaches the file; a failure of the file
+     * only stops the recording. Closing the recorder does not close the stream of the client and deletes
+     * the file unless it has been published.
+     */
+    public final class Recorder extends OutputStream {
+        private final String key;
+        private final Path temp;
+        private final OutputStream file;
+        private final OutputStream outputStream;
+        private IOException clientFailure;
+        private boolean fileFailed;
+
+        private Recorder(String key, Path temp, OutputStream outputStream) throws IOException {
+            this.key = key;
+            this.temp = temp;
+            this.file = Files.newOutputStream(temp);
+            this.outputStream = outputStream;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (!fileFailed) {
+                try {
+                    file.write(b, off, len);
+                } catch (IOException e) {
+                    fileFailed(e);
+                }
+            }
+            if (clientFailure == null) {
+                try {
+                    outputStream.write(b, off, len);
+                } catch (IOException e) {
+                    clientFailure = e;
+                    logger.debug("write() client gone, recording snapshot {} to the end", key);
+                }
+            }
+            if (clientFailure != null && fileFailed) {
+                throw clientFailure;
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (clientFailure == null) {
+                try {
+                    outputStream.flush();
+                } catch (IOException e) {
+                    clientFailure = e;
+                }
+            }
+            if (clientFailure != null && fileFailed) {
+                throw clientFailure;
+            }
+        }
+
+        /**
+         * Publishes the snapshot once the whole export has been written.
+         *
+         * @throws IOException If writing to the client failed.
+         */
+        public void publish() throws IOException {
+            if (!fileFailed) {
+                try {
+                    file.close();
+                    ExportSnapshotStore.this.publish(key, temp);
+                } catch (IOException e) {
+                    fileFailed(e);
+                }
+            }
+            if (clientFailure != null) {
+                throw clientFailure;
+            }
+        }
+
+        @Override
+        public void close() {
+            try {
+                file.close();
+            } catch (IOException e) {
+                logger.debug("close() failed to close {} - {}", temp, e.getMessage());
+            }
+            delete(temp);
+        }
+
+        private void fileFailed(IOException e) {
+            fileFailed = true;
+            logger.error("fileFailed() failed to record snapshot {} - {}", key, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package org.turkovaleksey.emailservice.services.impl;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.turkovaleksey.emailservice.repositories.api.IEmailRepository;
+import org.turkovaleksey.emailservice.services.dto.ExportVersion;
+import org.turkovaleksey.emailservice.services.events.EmailsSavedEvent;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Keeps the version of the emails table in memory, so conditional requests for the full export
+ * can be answered without touching the table.
+ * The row count is read once at startup; afterwards the row count grows with every
+ * saved email and the last modified time moves to the time of the save. Emails are never deleted,
+ * so a new row count always means a new version.
+ *
+ * <p>
+ * The version only sees saves made through this instance. If reading the table state fails at startup
+ * no version is available and every export is sent in full.
+ * </p>
+ *
+ * @see ExportVersion
+ */
+@Component
+public class ExportVersionTracker {
+    private static final Logger logger = LoggerFactory.getLogger(ExportVersionTracker.class);
+    private final IEmailRepository emailRepository;
+    private final AtomicReference<ExportVersion> version = new AtomicReference<>();
+
+    /**
+     * Instantiates a new Export version tracker.
+     *
+     * @param emailRepository the email repository
+     */
+    @Autowired
+    public ExportVersionTracker(IEmailRepository emailRepository) {
+        this.emailRepository = emailRepository;
+    }
+
+    /**
+     * Reads the row count of the emails table.
+     */
+    @PostConstruct
+    public void warmUp() {
+        logger.debug("warmUp() do work");
+        try {
+            long rowCount = emailRepository.count();
+            version.set(new ExportVersion(rowCount, currentTimeSeconds()));
+            logger.debug("warmUp() done with {}", version.get());
+        } catch (RuntimeException e) {
+            logger.error("warmUp() failed, exports are sent without validators - {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Moves the version forward once the transaction of the inserted emails has committed.
+     *
+     * @param event The event carrying the inserted emails.
+     * @see EmailsSavedEvent
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onEmailsSaved(EmailsSavedEvent event) {
+        int inserted = event.getEmails().size();
+        if (inserted == 0) {
+            return;
+        }
+        long lastModified = currentTimeSeconds();
+        version.updateAndGet(current -> current == null ? null
+                : new ExportVersion(current.getRowCount() + inserted,
+                Math.max(lastModified, current.getLastModified())));
+    }
+
+    /**
+     * Returns the current version of the emails table.
+     *
+     * @return The ExportVersion, or {@code null} if the table state could not be read at startup.
+     */
+    public ExportVersion getVersion() {
+        return version.get();
+    }
+
+    /**
+     * HTTP dates have a resolution of one second.
+     */
+    private static long currentTimeSeconds() {
+        return System.currentTimeMillis() / 1000 * 1000;
+    }
+}
@@ -0,0 +1,95 @@
+package org.turkovaleksey.emailservice.services.impl;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.turkovaleksey.emailservice.repositories.api.IEmailRepository;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Safe high-water mark of the incremental export. Ids are taken from a sequence when the row is inserted,
+ * so while a transaction is in flight a greater id of a later transaction may already be committed and
+ * {@code MAX(id)} alone would let the smaller one be skipped by every delta.
+ *
+ * <p>
+ * Every call samples {@code MAX(id)} with the time it was first seen. All ids up to a sampled value had been
+ * taken when it was sampled, so once {@code safety-lag-ms} has passed every insert holding one of them has
+ * committed or rolled back, provided no insert transaction runs longer than the lag. The mark is the greatest
+ * sample at least that old; newer emails are delivered by a later delta, at most one lag late.
+ * </p>
+ *
+ * <p>
+ * Samples are kept in memory by this instance only, so after a restart the mark starts from 0 and does not move
+ * until the first sample is old enough; callers keep their own mark meanwhile.
+ * </p>
+ *
+ * @see EmailServiceImpl#writeEmailsSinceAsCsv(long, long, java.io.OutputStream)
+ */
+@Component
+public class HighWaterMarkTracker {
+    private static final Logger logger = LoggerFactory.getLogger(HighWaterMarkTracker.class);
+    private static final int MAX_SAMPLES = 4096;
+    private final IEmailRepository emailRepository;
+    private final long safetyLagNanos;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final ArrayDeque<long[]> samples = new ArrayDeque<>();
+    private long safeMark;
+
+    /**
+     * Instantiates a new High water mark tracker.
+     *
+     * @param emailRepository the email repository
+     * @param safetyLagMs     the time after which an insert transaction is assumed to have finished
+     */
+    @Autowired
+    public HighWaterMarkTracker(IEmailRepository emailRepository,
+                                @Value("${email-service.export.since.safety-lag-ms:30000}") long safetyLagMs) {
+        this.emailRepository = emailRepository;
+        this.safetyLagNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(safetyLagMs, 0));
+    }
+
+    /**
+     * Returns the greatest id below which no email can still be committed.
+     *
+     * @return The safe high-water mark, or 0 if no sample is old enough yet.
+     */
+    public long getHighWaterMark() {
+        return getHighWaterMark(System.nanoTime());
+    }
+
+    /**
+     * Samples the greatest id at the given time and returns the safe high-water mark.
+     *
+     * @param nowNanos The current time as of {@link System#nanoTime()}.
+     * @return The safe high-water mark, or 0 if no sample is old enough yet.
+     */
+    public long getHighWaterMark(long nowNanos) {
+        long maxId = emailRepository.findMaxId();
+        lock.lock();
+        try {
+            long[] newest = samples.peekLast();
+            if (newest == null || maxId > newest[1]) {
+                if (samples.size() == MAX_SAMPLES) {
+                    samples.pollFirst();
+                }
+                samples.addLast(new long[]{nowNanos, maxId});
+            }
+            while (!samples.isEmpty() && nowNanos - samples.peekFirst()[0] >= safetyLagNanos) {
+                safeMark = Math.max(safeMark, samples.peekFirst()[1]);
+                if (samples.size() == 1) {
+                    break;
+                }
+                samples.pollFirst();
+            }
+            logger.debug("getHighWaterMark() max id = {}, safe mark = {}", maxId, safeMark);
+            return safeMark;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
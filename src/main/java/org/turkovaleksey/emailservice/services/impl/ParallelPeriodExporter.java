@@ -0,0 +1,363 @@
+package org.turkovaleksey.emailservice.services.impl;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.turkovaleksey.emailservice.repositories.api.IEmailRepository;
+import org.turkovaleksey.emailservice.services.dto.MailCreatePeriod;
+import org.turkovaleksey.emailservice.services.exceptions.ConvertEmailListToCSVException;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static org.turkovaleksey.emailservice.services.api.IMessage.CONVERT_LIST_TO_CSV_EXCEPTION;
+
+/**
+ * Period export reading a long period as consecutive sub-ranges of {@code partition-days} days in parallel.
+ * Every sub-range is queried on its own connection by a dedicated pool of {@code threads} threads and
+ * encoded into a chunk, while the calling thread writes the header and then the chunks to the response
+ * in date order as soon as the next one is complete. The output is the same as that of a single query
+ * ordered by date.
+ *
+ * <p>
+ * A chunk is kept in memory up to {@code spill-threshold-bytes} and then continues in a temporary file in
+ * {@code spill-directory}, which is deleted once the chunk is written, so a sub-range of any size costs
+ * bounded heap. If the directory can not be created the exporter disables itself.
+ * </p>
+ *
+ * <p>
+ * One export keeps at most {@code parallelism} sub-ranges in progress, so it holds at most that many
+ * connections and chunks, and the pool should stay smaller than the connection pool. When every thread is
+ * busy and {@code queue-capacity} sub-ranges are waiting, the calling thread reads the sub-range itself.
+ * Sub-ranges are read in separate transactions; since emails are saved with the current date, only the
+ * last sub-range can see rows saved while the export is running.
+ * </p>
+ *
+ * <p>
+ * Interrupting a thread does not stop a JDBC fetch, so once the export fails or the client goes away the
+ * sub-ranges still being read stop at their next row and delete what they have written.
+ * </p>
+ *
+ * @see EmailServiceImpl#writeEmailsByPeriodAsCsv(MailCreatePeriod, OutputStream)
+ */
+@Component
+public class ParallelPeriodExporter {
+    private static final Logger logger = LoggerFactory.getLogger(ParallelPeriodExporter.class);
+    private static final String PREFIX = "partition_";
+    private final IEmailRepository emailRepository;
+    private final int partitionDays;
+    private final int parallelism;
+    private final int spillThresholdBytes;
+    private final Path spillDirectory;
+    private final ThreadPoolExecutor executor;
+    private volatile boolean enabled;
+
+    /**
+     * Instantiates a new Parallel period exporter.
+     *
+     * @param emailRepository the email repository
+     * @param enabled         whether long periods are read in parallel
+     * @param partitionDays   the number of days of one sub-range
+     * @param parallelism     the maximum number of sub-ranges of one export in progress
+     * @param threads         the number of threads reading sub-ranges of all exports
+     * @param queueCapacity   the maximum number of sub-ranges waiting for a thread
+     * @param spillThreshold  the number of bytes of a chunk kept in memory
+     * @param spillDirectory  the directory larger chunks are written to
+     */
+    @Autowired
+    public ParallelPeriodExporter(IEmailRepository emailRepository,
+                                  @Value("${email-service.export.parallel.enabled:true}") boolean enabled,
+                                  @Value("${email-service.export.parallel.partition-days:31}") int partitionDays,
+                                  @Value("${email-service.export.parallel.parallelism:4}") int parallelism,
+                                  @Value("${email-service.export.parallel.threads:4}") int threads,
+                                  @Value("${email-service.export.parallel.queue-capacity:64}") int queueCapacity,
+                                  @Value("${email-service.export.parallel.spill-threshold-bytes:8388608}") int spillThreshold,
+                                  @Value("${email-service.export.parallel.spill-directory:${java.io.tmpdir}/email-service/partitions}") String spillDirectory) {
+        this.emailRepository = emailRepository;
+        this.enabled = enabled;
+        this.partitionDays = Math.max(partitionDays, 1);
+        this.parallelism = Math.max(parallelism, 1);
+        this.spillThresholdBytes = Math.max(spillThreshold, 0);
+        this.spillDirectory = Paths.get(spillDirectory);
+        int poolSize = Math.max(threads, 1);
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(queueCapacity, 1)),
+                runnable -> new Thread(runnable, "email-export-partition-" + threadNumber.incrementAndGet()),
+                (runnable, pool) -> {
+                    if (pool.isShutdown()) {
+                        throw new RejectedExecutionException("Export partition pool is shut down");
+                    }
+                    runnable.run();
+                });
+    }
+
+    /**
+     * Creates the spill directory and deletes the chunks of a previous run.
+     */
+    @PostConstruct
+    public void init() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            Files.createDirectories(spillDirectory);
+            try (Stream<Path> files = Files.list(spillDirectory)) {
+                files.filter(file -> file.getFileName().toString().startsWith(PREFIX)).forEach(ParallelPeriodExporter::delete);
+            }
+            logger.debug("init() chunks are spilled to {}", spillDirectory);
+        } catch (IOException e) {
+            enabled = false;
+            logger.error("init() failed to create {}, periods are read with one query - {}", spillDirectory, e.getMessage());
+        }
+    }
+
+    /**
+     * Stops the threads, interrupting the sub-ranges in progress.
+     */
+    @PreDestroy
+    public void shutdown() {
+        logger.debug("shutdown() with {} queued sub-ranges", executor.getQueue().size());
+        executor.shutdownNow();
+    }
+
+    /**
+     * Checks whether the period is long enough to be split into more than one sub-range.
+     *
+     * @param mailCreatePeriod The period to be exported.
+     * @return {@code true} if the period should be written with {@link #writeTo(MailCreatePeriod, OutputStream)}.
+     */
+    public boolean isPartitioned(MailCreatePeriod mailCreatePeriod) {
+        return enabled && ChronoUnit.DAYS.between(mailCreatePeriod.getStart(), mailCreatePeriod.getEnd()) >= partitionDays;
+    }
+
+    /**
+     * Writes the CSV export of the period, reading its sub-ranges in parallel.
+     *
+     * @param mailCreatePeriod The period for which emails need to be written.
+     * @param outputStream     The stream the CSV content is written to.
+     * @return The number of rows written.
+     * @throws ConvertEmailListToCSVException If a sub-range can not be read or written to the output stream.
+     */
+    public long writeTo(MailCreatePeriod mailCreatePeriod, OutputStream outputStream) {
+        List<MailCreatePeriod> partitions = partition(mailCreatePeriod);
+        logger.debug("writeTo() with MailCreatePeriod = {} in {} sub-ranges", mailCreatePeriod, partitions.size());
+        CsvEncoder csvEncoder = new CsvEncoder(outputStream);
+        csvEncoder.writeHeader();
+        csvEncoder.flush();
+        Export export = new Export();
+        Deque<Future<Chunk>> inProgress = new ArrayDeque<>(parallelism);
+        int next = 0;
+        long rows = 0;
+        try {
+            while (next < partitions.size() && inProgress.size() < parallelism) {
+                inProgress.add(submit(export, partitions.get(next++)));
+            }
+            while (!inProgress.isEmpty()) {
+                Chunk chunk = await(inProgress.poll());
+                if (next < partitions.size()) {
+                    inProgress.add(submit(export, partitions.get(next++)));
+                }
+                try {
+                    chunk.transferTo(outputStream);
+                } finally {
+                    export.release(chunk);
+                }
+                rows += chunk.rows;
+            }
+            outputStream.flush();
+        } catch (IOException e) {
+            logger.error("writeTo() " + CONVERT_LIST_TO_CSV_EXCEPTION);
+            throw new ConvertEmailListToCSVException(CONVERT_LIST_TO_CSV_EXCEPTION);
+        } finally {
+            export.close();
+            for (Future<Chunk> future : inProgress) {
+                future.cancel(false);
+            }
+        }
+        return rows;
+    }
+
+    private List<MailCreatePeriod> partition(MailCreatePeriod mailCreatePeriod) {
+        List<MailCreatePeriod> partitions = new ArrayList<>();
+        LocalDate end = mailCreatePeriod.getEnd();
+        for (LocalDate start = mailCreatePeriod.getStart(); !start.isAfter(end); start = start.plusDays(partitionDays)) {
+            LocalDate partitionEnd = start.plusDays(partitionDays - 1);
+            partitions.add(new MailCreatePeriod(start, partitionEnd.isAfter(end) ? end : partitionEnd));
+        }
+        return partitions;
+    }
+
+    private Future<Chunk> submit(Export export, MailCreatePeriod partition) {
+        try {
+            return executor.submit(() -> read(export, partition));
+        } catch (RejectedExecutionException e) {
+            logger.error("submit() " + CONVERT_LIST_TO_CSV_EXCEPTION + " - {}", e.getMessage());
+            throw new ConvertEmailListToCSVException(CONVERT_LIST_TO_CSV_EXCEPTION);
+        }
+    }
+
+    private Chunk read(Export export, MailCreatePeriod partition) throws IOException {
+        export.checkOpen();
+        logger.debug("read() call streamAllByPeriod() with MailCreatePeriod = {}", partition);
+        Chunk chunk = export.newChunk();
+        try {
+            CsvEncoder csvEncoder = new CsvEncoder(chunk);
+            emailRepository.streamAllByPeriod(partition, (id, createDate, email) -> {
+                export.checkOpen();
+                csvEncoder.writeRow(createDate, email);
+            });
+            csvEncoder.flush();
+            chunk.close();
+            export.checkOpen();
+            chunk.rows = csvEncoder.getRowCount();
+            return chunk;
+        } catch (IOException | RuntimeException e) {
+            logger.debug("read() sub-range {} is discarded - {}", partition, e.getMessage());
+            chunk.close();
+            export.release(chunk);
+            throw e;
+        }
+    }
+
+    private static void delete(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            logger.error("delete() failed to delete {} - {}", file, e.getMessage());
+        }
+    }
+
+    private static Chunk await(Future<Chunk> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.error("await() interrupted while waiting for a sub-range");
+            throw new ConvertEmailListToCSVException(CONVERT_LIST_TO_CSV_EXCEPTION);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            logger.error("await() " + CONVERT_LIST_TO_CSV_EXCEPTION + " - {}", e.getCause().getMessage());
+            throw new ConvertEmailListToCSVException(CONVERT_LIST_TO_CSV_EXCEPTION);
+        }
+    }
+
+    /**
+     * State of one export shared with the threads reading its sub-ranges.
+     */
+    private final class Export {
+        private final ConcurrentLinkedQueue<Chunk> chunks = new ConcurrentLinkedQueue<>();
+        private volatile boolean closed;
+
+        private Chunk newChunk() {
+            Chunk chunk = new Chunk();
+            chunks.add(chunk);
+            return chunk;
+        }
+
+        private void release(Chunk chunk) {
+            chunks.remove(chunk);
+            chunk.delete();
+        }
+
+        /**
+         * Stops the sub-ranges still being read and deletes the chunks that have not been written.
+         * A sub-range spilling after this point sees the export closed on its next check and deletes its own file.
+         */
+        private void close() {
+            closed = true;
+            for (Chunk chunk : chunks) {
+                chunk.delete();
+            }
+        }
+
+        private void checkOpen() {
+            if (closed) {
+                throw new CancellationException("Export is closed");
+            }
+        }
+    }
+
+    /**
+     * Encoded rows of one sub-range, kept in memory up to the spill threshold and in a temporary file beyond it.
+     */
+    private final class Chunk extends OutputStream {
+        private ByteArrayOutputStream memory = new ByteArrayOutputStream();
+        private OutputStream fileStream;
+        private volatile Path file;
+        private long rows;
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            if (fileStream == null && memory.size() + length > spillThresholdBytes) {
+                spill();
+            }
+            if (fileStream != null) {
+                fileStream.write(bytes, offset, length);
+            } else {
+                memory.write(bytes, offset, length);
+            }
+        }
+
+        private void spill() throws IOException {
+            file = Files.createTempFile(spillDirectory, PREFIX, ".tmp");
+            fileStream = new BufferedOutputStream(Files.newOutputStream(file));
+            memory.writeTo(fileStream);
+            memory = null;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (fileStream != null) {
+                fileStream.close();
+            }
+        }
+
+        private void transferTo(OutputStream outputStream) throws IOException {
+            if (file == null) {
+                memory.writeTo(outputStream);
+            } else {
+                Files.copy(file, outputStream);
+            }
+        }
+
+        private void delete() {
+            Path spilled = file;
+            if (spilled != null) {
+                ParallelPeriodExporter.delete(spilled);
+            }
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package org.turkovaleksey.emailservice.services.impl;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.stereotype.Service;
+import org.turkovaleksey.emailservice.repositories.api.IReactiveEmailRepository;
+import org.turkovaleksey.emailservice.repositories.model.Email;
+import org.turkovaleksey.emailservice.services.api.IReactiveEmailService;
+import org.turkovaleksey.emailservice.services.dto.MailCreatePeriod;
+import org.turkovaleksey.emailservice.services.events.EmailsSavedEvent;
+import org.turkovaleksey.emailservice.services.exceptions.ConvertEmailListToCSVException;
+import org.turkovaleksey.emailservice.services.exceptions.EmailAlreadyExistsException;
+import org.turkovaleksey.emailservice.services.exceptions.IncorrectPeriodException;
+import org.turkovaleksey.emailservice.services.exceptions.InvalidEmailException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.turkovaleksey.emailservice.services.api.IMessage.CONVERT_LIST_TO_CSV_EXCEPTION;
+import static org.turkovaleksey.emailservice.services.api.IMessage.EMAIL_ALREADY_EXISTS_EXCEPTION;
+import static org.turkovaleksey.emailservice.services.api.IMessage.INCORRECT_DATE_EXCEPTION;
+import static org.turkovaleksey.emailservice.services.api.IMessage.INVALID_EMAIL_EXCEPTION;
+
+/**
+ * Non-blocking variant of the email service used by the reactive endpoints.
+ * Exports are a {@link Flux} of CSV chunks: rows requested from the repository are grouped by
+ * {@code rows-per-buffer} and every group is encoded with {@link CsvEncoder} into one {@link DataBuffer}.
+ * The web server requests the next chunk only when the previous one has been written to the socket,
+ * and that demand travels up to the database cursor, so a slow client holds neither a thread nor
+ * more than a few chunks of memory.
+ *
+ * <p>
+ * Saves go through the same {@link EmailBloomFilter} and publish the same {@link EmailsSavedEvent}
+ * as {@link EmailServiceImpl}, so the export cache, version and segments stay consistent whichever
+ * stack stored the email. The listeners write files and may block, so the event is published on the
+ * bounded elastic scheduler rather than on the event loop; the save completes once they have run.
+ * </p>
+ *
+ * @see EmailServiceImpl
+ */
+@Service
+@ConditionalOnProperty(prefix = "email-service.reactive", name = "enabled", havingValue = "true")
+public class ReactiveEmailServiceImpl implements IReactiveEmailService {
+    private static final Logger logger = LoggerFactory.getLogger(ReactiveEmailServiceImpl.class);
+    private static final int ESTIMATED_ROW_BYTES = 48;
+    private final IReactiveEmailRepository emailRepository;
+    private final EmailBloomFilter duplicateFilter;
+    private final ApplicationEventPublisher eventPublisher;
+    private final DataBufferFactory bufferFactory = DefaultDataBufferFactory.sharedInstance;
+    private final int rowsPerBuffer;
+
+    /**
+     * Instantiates a new Reactive email service.
+     *
+     * @param emailRepository the reactive email repository
+     * @param duplicateFilter the filter of emails already stored in the database
+     * @param eventPublisher  the publisher of saved emails events
+     * @param rowsPerBuffer   the number of rows encoded into one chunk of the response
+     */
+    @Autowired
+    public ReactiveEmailServiceImpl(IReactiveEmailRepository emailRepository, EmailBloomFilter duplicateFilter,
+                                    ApplicationEventPublisher eventPublisher,
+                                    @Value("${email-service.reactive.rows-per-buffer:256}") int rowsPerBuffer) {
+        this.emailRepository = emailRepository;
+        this.duplicateFilter = duplicateFilter;
+        this.eventPublisher = eventPublisher;
+        this.rowsPerBuffer = Math.max(1, rowsPerBuffer);
+    }
+
+    /**
+     * Exports all emails as CSV chunks, ordered by id.
+     *
+     * @return A Flux of DataBuffers with the headers followed by the rows.
+     */
+    @Override
+    public Flux<DataBuffer> exportEmailsAsCsv() {
+        logger.debug("exportEmailsAsCsv() call streamAll()");
+        return encode(emailRepository.streamAll());
+    }
+
+    /**
+     * Exports the emails within the specified MailCreatePeriod as CSV chunks, ordered by date and id.
+     * The period is checked before the Flux is returned, so an incorrect period fails the call itself.
+     *
+     * @param mailCreatePeriod The MailCreatePeriod defining the period for which emails are to be exported.
+     * @return A Flux of DataBuffers with the headers followed by the rows.
+     * @throws IncorrectPeriodException If the start date is later than the end date.
+     */
+    @Override
+    public Flux<DataBuffer> exportEmailsByPeriodAsCsv(MailCreatePeriod mailCreatePeriod) {
+        logger.debug("exportEmailsByPeriodAsCsv() with MailCreatePeriod = {}", mailCreatePeriod);
+        if (mailCreatePeriod.getStart().isAfter(mailCreatePeriod.getEnd())) {
+            logger.error("exportEmailsByPeriodAsCsv() " + INCORRECT_DATE_EXCEPTION);
+            throw new IncorrectPeriodException(INCORRECT_DATE_EXCEPTION);
+        }
+        return encode(emailRepository.streamAllByPeriod(mailCreatePeriod));
+    }
+
+    /**
+     * Saves the canonical form of the specified email unless it is already stored.
+     *
+     * @param submittedEmail The email address to be saved.
+     * @return A Mono completing when the email is stored, or failing with InvalidEmailException
+     * or EmailAlreadyExistsException.
+     * @see EmailServiceImpl#save(String)
+     * @see EmailValidator
+     */
+    @Override
+    public Mono<Void> save(String submittedEmail) {
+        logger.debug("save() with email = {}", submittedEmail);
+        String email = EmailValidator.canonicalize(submittedEmail);
+        if (email == null) {
+            logger.warn("save() " + INVALID_EMAIL_EXCEPTION + ", email = {}", submittedEmail);
+            return Mono.error(new InvalidEmailException(INVALID_EMAIL_EXCEPTION));
+        }
+        Email newEmail = new Email(LocalDate.now(), email);
+        return Mono.defer(() -> duplicateFilter.mightContain(email) ? emailRepository.existsByEmail(email) : Mono.just(false))
+                .flatMap(exists -> exists ? Mono.just(0L) : emailRepository.save(newEmail))
+                .flatMap(inserted -> {
+                    if (inserted == 0) {
+                        logger.warn("save() " + EMAIL_ALREADY_EXISTS_EXCEPTION + ", email = {}", email);
+                        return Mono.error(new EmailAlreadyExistsException(EMAIL_ALREADY_EXISTS_EXCEPTION));
+                    }
+                    return Mono.<Void>fromRunnable(() -> eventPublisher.publishEvent(new EmailsSavedEvent(List.of(newEmail))))
+                            .subscribeOn(Schedulers.boundedElastic());
+                });
+    }
+
+    /**
+     * Prepends the headers and encodes the rows into chunks. Chunks dropped on cancellation are released.
+     */
+    private Flux<DataBuffer> encode(Flux<Email> emails) {
+        return Flux.concat(
+                        Mono.fromSupplier(() -> encodeRows(List.of(), true)),
+                        emails.buffer(rowsPerBuffer).map(rows -> encodeRows(rows, false)))
+                .doOnDiscard(DataBuffer.class, DataBufferUtils::release);
+    }
+
+    private DataBuffer encodeRows(List<Email> emails, boolean header) {
+        DataBuffer dataBuffer = bufferFactory.allocateBuffer(Math.max(64, emails.size() * ESTIMATED_ROW_BYTES));
+        boolean encoded = false;
+        try (OutputStream outputStream = dataBuffer.asOutputStream()) {
+            CsvEncoder csvEncoder = new CsvEncoder(outputStream);
+            if (header) {
+                csvEncoder.writeHeader();
+            }
+            for (Email email : emails) {
+                csvEncoder.writeRow(email.getCreateDate(), email.getEmail());
+            }
+            csvEncoder.flush();
+            encoded = true;
+            return dataBuffer;
+        } catch (IOException e) {
+            throw new ConvertEmailListToCSVException(CONVERT_LIST_TO_CSV_EXCEPTION);
+        } finally {
+            if (!encoded) {
+                DataBufferUtils.release(dataBuffer);
+            }
+        }
+    }
+}
@@ -0,0 +1,5 @@
+CREATE TABLE IF NOT EXISTS emails (
+    id SERIAL PRIMARY KEY,
+    create_date DATE,
+    email VARCHAR(100) UNIQUE
+);
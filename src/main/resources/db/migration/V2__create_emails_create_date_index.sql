@@ -0,0 +1,4 @@
+-- Period exports filter on create_date and read id and email in (create_date, id) order.
+-- Including email lets PostgreSQL answer them with an index-only scan.
+-- CONCURRENTLY keeps inserts running while the index is built on a large table.
+CREATE INDEX CONCURRENTLY IF NOT EXISTS emails_create_date_id_idx ON emails (create_date, id) INCLUDE (email);
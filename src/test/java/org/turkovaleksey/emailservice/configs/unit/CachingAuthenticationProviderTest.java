@@ -0,0 +1,98 @@
+package org.turkovaleksey.emailservice.configs.unit;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.authentication.AuthenticationProvider;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.turkovaleksey.emailservice.configs.CachingAuthenticationProvider;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class CachingAuthenticationProviderTest {
+    @Mock
+    private AuthenticationProvider delegate;
+
+    @Test
+    void authenticateVerifiesRepeatedCredentialsOnce() {
+        when(delegate.authenticate(any())).thenAnswer(invocation -> authenticated(invocation.getArgument(0)));
+        CachingAuthenticationProvider provider = new CachingAuthenticationProvider(delegate, 10, Duration.ofMinutes(5));
+        provider.authenticate(credentials("user", "secret"));
+        Authentication result = provider.authenticate(credentials("user", "secret"));
+        assertTrue(result.isAuthenticated());
+        assertEquals("user", result.getName());
+        assertEquals(AuthorityUtils.createAuthorityList("ROLE_USER"), result.getAuthorities());
+        verify(delegate, times(1)).authenticate(any());
+    }
+
+    @Test
+    void authenticateDoesNotCacheFailures() {
+        when(delegate.authenticate(any()))
+                .thenThrow(new BadCredentialsException("Bad credentials"))
+                .thenAnswer(invocation -> authenticated(invocation.getArgument(0)));
+        CachingAuthenticationProvider provider = new CachingAuthenticationProvider(delegate, 10, Duration.ofMinutes(5));
+        assertThrows(BadCredentialsException.class, () -> provider.authenticate(credentials("user", "wrong")));
+        provider.authenticate(credentials("user", "wrong"));
+        provider.authenticate(credentials("user", "secret"));
+        verify(delegate, times(3)).authenticate(any());
+    }
+
+    @Test
+    void authenticateExpiresAndEvictsEntries() {
+        when(delegate.authenticate(any())).thenAnswer(invocation -> authenticated(invocation.getArgument(0)));
+        MutableClock clock = new MutableClock();
+        CachingAuthenticationProvider provider = new CachingAuthenticationProvider(delegate, 1, Duration.ofSeconds(60), clock);
+        provider.authenticate(credentials("user", "secret"));
+        clock.now = clock.now.plusSeconds(60);
+        provider.authenticate(credentials("user", "secret"));
+        provider.authenticate(credentials("other", "secret"));
+        provider.authenticate(credentials("user", "secret"));
+        assertEquals(1, provider.size());
+        verify(delegate, times(4)).authenticate(any());
+    }
+
+    private static UsernamePasswordAuthenticationToken credentials(String username, String password) {
+        return UsernamePasswordAuthenticationToken.unauthenticated(username, password);
+    }
+
+    private static Authentication authenticated(Authentication authentication) {
+        return UsernamePasswordAuthenticationToken.authenticated(authentication.getName(), null,
+                AuthorityUtils.createAuthorityList("ROLE_USER"));
+    }
+
+    private static final class MutableClock extends Clock {
+        private Instant now = Instant.parse("2024-01-01T00:00:00Z");
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
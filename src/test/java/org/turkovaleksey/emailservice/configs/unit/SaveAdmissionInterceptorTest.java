@@ -0,0 +1,92 @@
+package org.turkovaleksey.emailservice.configs.unit;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.turkovaleksey.emailservice.configs.AdaptiveConcurrencyLimiter;
+import org.turkovaleksey.emailservice.configs.SaveAdmissionInterceptor;
+import org.turkovaleksey.emailservice.services.exceptions.TooManyRequestsException;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SaveAdmissionInterceptorTest {
+    private final MockHttpServletResponse response = new MockHttpServletResponse();
+
+    @Test
+    void preHandleLimitsEachClient() {
+        SaveAdmissionInterceptor interceptor = new SaveAdmissionInterceptor(1000, 100, 0.1, 1, 100,
+                Map.of("/api/email/save", new AdaptiveConcurrencyLimiter(10, 1, 10, 2.0)));
+        assertTrue(interceptor.preHandle(request("10.0.0.1"), response, null));
+        TooManyRequestsException e = assertThrows(TooManyRequestsException.class,
+                () -> interceptor.preHandle(request("10.0.0.1"), response, null));
+        assertTrue(e.getRetryAfterSeconds() >= 9);
+        assertTrue(interceptor.preHandle(request("10.0.0.2"), response, null));
+        MockHttpServletRequest authenticated = request("10.0.0.1");
+        authenticated.setUserPrincipal(new UsernamePasswordAuthenticationToken("user", null));
+        assertTrue(interceptor.preHandle(authenticated, response, null));
+        assertEquals(1, interceptor.getClientRateRejected());
+    }
+
+    @Test
+    void preHandleLimitsConcurrencyUntilCompletion() {
+        AdaptiveConcurrencyLimiter saveLimiter = new AdaptiveConcurrencyLimiter(1, 1, 1, 2.0);
+        SaveAdmissionInterceptor interceptor = new SaveAdmissionInterceptor(1000, 100, 1000, 100, 100,
+                Map.of("/api/email/save", saveLimiter,
+                        "/api/email/save-all", new AdaptiveConcurrencyLimiter(1, 1, 1, 2.0)));
+        MockHttpServletRequest admitted = request("10.0.0.1");
+        assertTrue(interceptor.preHandle(admitted, response, null));
+        assertThrows(TooManyRequestsException.class, () -> interceptor.preHandle(request("10.0.0.2"), response, null));
+        assertTrue(interceptor.preHandle(request("/api/email/save-all", "10.0.0.2"), response, null));
+        interceptor.afterCompletion(admitted, response, null, null);
+        interceptor.afterCompletion(admitted, response, null, null);
+        assertEquals(0, saveLimiter.getInFlight());
+        assertEquals(1, interceptor.getConcurrencyRejected());
+        assertTrue(interceptor.preHandle(request("10.0.0.2"), response, null));
+    }
+
+    @Test
+    void preHandleGivesBackClientTokenWhenRejected() {
+        SaveAdmissionInterceptor interceptor = new SaveAdmissionInterceptor(1000, 100, 0.1, 1, 100,
+                Map.of("/api/email/save", new AdaptiveConcurrencyLimiter(1, 1, 1, 2.0)));
+        MockHttpServletRequest admitted = request("10.0.0.1");
+        assertTrue(interceptor.preHandle(admitted, response, null));
+        assertThrows(TooManyRequestsException.class, () -> interceptor.preHandle(request("10.0.0.2"), response, null));
+        interceptor.afterCompletion(admitted, response, null, null);
+        assertTrue(interceptor.preHandle(request("10.0.0.2"), response, null));
+        assertEquals(0, interceptor.getClientRateRejected());
+    }
+
+    @Test
+    void afterCompletionAdaptsLimitOnlyOnSuccess() {
+        AdaptiveConcurrencyLimiter saveLimiter = new AdaptiveConcurrencyLimiter(1, 1, 10, 2.0);
+        SaveAdmissionInterceptor interceptor = new SaveAdmissionInterceptor(1000, 100, 1000, 100, 100,
+                Map.of("/api/email/save", saveLimiter));
+        MockHttpServletRequest failed = request("10.0.0.1");
+        MockHttpServletResponse conflict = new MockHttpServletResponse();
+        conflict.setStatus(HttpStatus.CONFLICT.value());
+        assertTrue(interceptor.preHandle(failed, conflict, null));
+        interceptor.afterCompletion(failed, conflict, null, null);
+        assertEquals(1, saveLimiter.getLimit());
+        assertEquals(0, saveLimiter.getInFlight());
+        MockHttpServletRequest succeeded = request("10.0.0.1");
+        assertTrue(interceptor.preHandle(succeeded, response, null));
+        interceptor.afterCompletion(succeeded, response, null, null);
+        assertEquals(2, saveLimiter.getLimit());
+    }
+
+    private static MockHttpServletRequest request(String remoteAddress) {
+        return request("/api/email/save", remoteAddress);
+    }
+
+    private static MockHttpServletRequest request(String path, String remoteAddress) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", path);
+        request.setRemoteAddr(remoteAddress);
+        return request;
+    }
+}
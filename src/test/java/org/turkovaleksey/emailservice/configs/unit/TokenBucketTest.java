@@ -0,0 +1,52 @@
+package org.turkovaleksey.emailservice.configs.unit;
+
+import org.junit.jupiter.api.Test;
+import org.turkovaleksey.emailservice.configs.TokenBucket;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TokenBucketTest {
+    private static final long MILLISECOND = TimeUnit.MILLISECONDS.toNanos(1);
+
+    @Test
+    void tryAcquireAdmitsBurstThenRate() {
+        long now = 1_000_000_000L;
+        TokenBucket bucket = new TokenBucket(10, 3, now);
+        assertEquals(0, bucket.tryAcquire(now));
+        assertEquals(0, bucket.tryAcquire(now));
+        assertEquals(0, bucket.tryAcquire(now));
+        assertEquals(100 * MILLISECOND, bucket.tryAcquire(now));
+        assertEquals(0, bucket.tryAcquire(now + 100 * MILLISECOND));
+        assertEquals(100 * MILLISECOND, bucket.tryAcquire(now + 100 * MILLISECOND));
+    }
+
+    @Test
+    void isFullOnceTokensAreRefilled() {
+        long now = -5_000_000_000L;
+        TokenBucket bucket = new TokenBucket(10, 2, now);
+        assertTrue(bucket.isFull(now));
+        bucket.tryAcquire(now);
+        bucket.tryAcquire(now);
+        assertFalse(bucket.isFull(now + 100 * MILLISECOND));
+        assertTrue(bucket.isFull(now + 200 * MILLISECOND));
+        assertEquals(0, bucket.tryAcquire(now + 10_000 * MILLISECOND));
+        assertEquals(0, bucket.tryAcquire(now + 10_000 * MILLISECOND));
+        assertEquals(100 * MILLISECOND, bucket.tryAcquire(now + 10_000 * MILLISECOND));
+    }
+
+    @Test
+    void releaseGivesBackTokenUpToBurst() {
+        long now = 1_000_000_000L;
+        TokenBucket bucket = new TokenBucket(10, 1, now);
+        assertEquals(0, bucket.tryAcquire(now));
+        bucket.release(now);
+        assertTrue(bucket.isFull(now));
+        bucket.release(now);
+        assertEquals(0, bucket.tryAcquire(now));
+        assertEquals(100 * MILLISECOND, bucket.tryAcquire(now));
+    }
+}
@@ -41,13 +41,17 @@ class TestEmailController {
     }
 
     @Test
-    void testSaveEmail_ThrowDaoException() throws Exception {
-        String email = "email1@example.com";
+    void testSaveEmail_ThrowEmailAlreadyExistsException() throws Exception {
+        String email = "test@" + Math.random() + ".com";
         assertThat(emailController).isNotNull();
         mockMvc.perform(MockMvcRequestBuilders.post("/api/email/save")
                         .contentType(MediaType.APPLICATION_JSON)
                         .content(objectMapper.writeValueAsString(email)))
-                .andExpect(MockMvcResultMatchers.status().isInternalServerError());
+                .andExpect(MockMvcResultMatchers.status().isOk());
+        mockMvc.perform(MockMvcRequestBuilders.post("/api/email/save")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(email)))
+                .andExpect(MockMvcResultMatchers.status().isConflict());
     }
 
     @Test
@@ -2,17 +2,45 @@ package org.turkovaleksey.emailservice.controllers.unit;
 
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.turkovaleksey.emailservice.controllers.EmailController;
 import org.turkovaleksey.emailservice.services.api.IEmailService;
+import org.turkovaleksey.emailservice.services.dto.ExportVersion;
+import org.turkovaleksey.emailservice.services.exceptions.UnsupportedExportFormatException;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
 class EmailControllerTest {
+    private static final String CSV = "\"Date\",\"Email\"\n\"2023-01-01\",\"test1@example.com\"\n";
 
     @Mock
     private IEmailService emailService;
@@ -37,4 +65,154 @@ class EmailControllerTest {
     @Test
     void testDownloadEmailsCsv() {
     }
-}
\ No newline at end of file
+
+    @Test
+    void downloadEmailsCsvWithGzipEncoding() throws IOException {
+        mockWriteEmailsAsCsv();
+        ResponseEntity<StreamingResponseBody> response = emailController.downloadEmailsCsv(null, "deflate, gzip;q=0.8", webRequest());
+        assertEquals("gzip", response.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+        assertEquals(CSV, gunzip(writeBody(response)));
+    }
+
+    @Test
+    void downloadEmailsCsvWhenGzipNotAccepted() throws IOException {
+        mockWriteEmailsAsCsv();
+        ResponseEntity<StreamingResponseBody> response = emailController.downloadEmailsCsv(null, "gzip;q=0, br", webRequest());
+        assertNull(response.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+        assertEquals(CSV, new String(writeBody(response), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void downloadEmailsCsvWithGzipFormat() throws IOException {
+        mockWriteEmailsAsCsv();
+        ResponseEntity<StreamingResponseBody> response = emailController.downloadEmailsCsv("GZIP", null, webRequest());
+        assertNull(response.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+        assertEquals("application/gzip", String.valueOf(response.getHeaders().getContentType()));
+        assertEquals("emails.csv.gz", response.getHeaders().getContentDisposition().getFilename());
+        assertEquals(CSV, gunzip(writeBody(response)));
+    }
+
+    @Test
+    void downloadEmailsCsvWithZipFormat() {
+        assertThrows(UnsupportedExportFormatException.class, () -> emailController.downloadEmailsCsv("zip", null, webRequest()));
+    }
+
+    @Test
+    void downloadEmailsCsvNotModified() {
+        when(emailService.getExportVersion()).thenReturn(new ExportVersion(5, 1_700_000_000_000L));
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/email/download");
+        request.addHeader(HttpHeaders.IF_NONE_MATCH, "\"5\"");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        assertNull(emailController.downloadEmailsCsv(null, null, new ServletWebRequest(request, response)));
+        assertEquals(304, response.getStatus());
+        verify(emailService, never()).writeEmailsAsCsv(any());
+    }
+
+    @Test
+    void downloadEmailsCsvModified() {
+        when(emailService.getExportVersion()).thenReturn(new ExportVersion(6, 1_700_000_000_000L));
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/email/download");
+        request.addHeader(HttpHeaders.IF_NONE_MATCH, "\"5\"");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        assertNotNull(emailController.downloadEmailsCsv(null, null, new ServletWebRequest(request, response)));
+        assertEquals("\"6\"", response.getHeader(HttpHeaders.ETAG));
+    }
+
+    @Test
+    void downloadEmailsCsvRange(@TempDir Path directory) throws IOException {
+        ExportVersion exportVersion = new ExportVersion(5, 1_700_000_000_000L);
+        Path snapshot = Files.writeString(directory.resolve("emails_5.csv"), CSV);
+        when(emailService.getExportVersion()).thenReturn(exportVersion);
+        when(emailService.getExportSnapshot(exportVersion)).thenReturn(snapshot);
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/email/download");
+        request.addHeader(HttpHeaders.RANGE, "bytes=16-");
+        request.addHeader(HttpHeaders.IF_RANGE, "\"5\"");
+        ResponseEntity<StreamingResponseBody> response = emailController.downloadEmailsCsv(null, null,
+                new ServletWebRequest(request, new MockHttpServletResponse()));
+        assertEquals(206, response.getStatusCode().value());
+        assertEquals("bytes 16-" + (CSV.length() - 1) + "/" + CSV.length(), response.getHeaders().getFirst(HttpHeaders.CONTENT_RANGE));
+        assertEquals(CSV.substring(16), new String(writeBody(response), StandardCharsets.UTF_8));
+        verify(emailService, never()).writeEmailsAsCsv(any());
+    }
+
+    @Test
+    void downloadEmailsCsvRangeWithGzip(@TempDir Path directory) throws IOException {
+        ExportVersion exportVersion = new ExportVersion(5, 1_700_000_000_500L);
+        Path snapshot = Files.writeString(directory.resolve("emails_5.csv"), CSV);
+        when(emailService.getExportVersion()).thenReturn(exportVersion);
+        when(emailService.getExportSnapshot(exportVersion)).thenReturn(snapshot);
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/email/download");
+        request.addHeader(HttpHeaders.RANGE, "bytes=16-");
+        ResponseEntity<StreamingResponseBody> response = emailController.downloadEmailsCsv(null, "gzip",
+                new ServletWebRequest(request, new MockHttpServletResponse()));
+        assertEquals(206, response.getStatusCode().value());
+        assertNull(response.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+        assertEquals(CSV.substring(16), new String(writeBody(response), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void downloadEmailsCsvRangeWhenIfRangeIsDate() {
+        ExportVersion exportVersion = new ExportVersion(5, 1_700_000_000_000L);
+        when(emailService.getExportVersion()).thenReturn(exportVersion);
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/email/download");
+        request.addHeader(HttpHeaders.RANGE, "bytes=16-");
+        request.addHeader(HttpHeaders.IF_RANGE, "Tue, 14 Nov 2023 22:13:20 GMT");
+        ResponseEntity<StreamingResponseBody> response = emailController.downloadEmailsCsv(null, null,
+                new ServletWebRequest(request, new MockHttpServletResponse()));
+        assertEquals(200, response.getStatusCode().value());
+        verify(emailService, never()).getExportSnapshot(any());
+    }
+
+    @Test
+    void downloadEmailsCsvRangeWhenIfRangeChanged() throws IOException {
+        ExportVersion exportVersion = new ExportVersion(6, 1_700_000_000_000L);
+        doAnswer(invocation -> {
+            OutputStream outputStream = invocation.getArgument(1);
+            outputStream.write(CSV.getBytes(StandardCharsets.UTF_8));
+            return null;
+        }).when(emailService).writeEmailsAsCsv(eq(exportVersion), any());
+        when(emailService.getExportVersion()).thenReturn(exportVersion);
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/email/download");
+        request.addHeader(HttpHeaders.RANGE, "bytes=16-");
+        request.addHeader(HttpHeaders.IF_RANGE, "\"5\"");
+        ResponseEntity<StreamingResponseBody> response = emailController.downloadEmailsCsv(null, null,
+                new ServletWebRequest(request, new MockHttpServletResponse()));
+        assertEquals(200, response.getStatusCode().value());
+        assertEquals("bytes", response.getHeaders().getFirst(HttpHeaders.ACCEPT_RANGES));
+        assertEquals(CSV, new String(writeBody(response), StandardCharsets.UTF_8));
+        verify(emailService, never()).getExportSnapshot(any());
+    }
+
+    @Test
+    void downloadEmailsCsvSince() throws IOException {
+        when(emailService.getHighWaterMark()).thenReturn(42L);
+        ResponseEntity<StreamingResponseBody> response = emailController.downloadEmailsCsvSince(10, null, null);
+        assertEquals("42", response.getHeaders().getFirst("X-High-Water-Mark"));
+        writeBody(response);
+        verify(emailService).writeEmailsSinceAsCsv(eq(10L), eq(42L), any());
+    }
+
+    private static ServletWebRequest webRequest() {
+        return new ServletWebRequest(new MockHttpServletRequest("GET", "/api/email/download"), new MockHttpServletResponse());
+    }
+
+    private void mockWriteEmailsAsCsv() {
+        doAnswer(invocation -> {
+            OutputStream outputStream = invocation.getArgument(0);
+            outputStream.write(CSV.getBytes(StandardCharsets.UTF_8));
+            return null;
+        }).when(emailService).writeEmailsAsCsv(any());
+    }
+
+    private static byte[] writeBody(ResponseEntity<StreamingResponseBody> response) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        response.getBody().writeTo(outputStream);
+        return outputStream.toByteArray();
+    }
+
+    private static String gunzip(byte[] bytes) throws IOException {
+        try (GZIPInputStream inputStream = new GZIPInputStream(new ByteArrayInputStream(bytes))) {
+            return new String(inputStream.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -5,19 +5,30 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.springframework.jdbc.core.BeanPropertyRowMapper;
+import org.springframework.jdbc.core.JdbcOperations;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.turkovaleksey.emailservice.repositories.api.IEmailRowCallback;
 import org.turkovaleksey.emailservice.repositories.impl.EmailRepositoryImpl;
+import org.turkovaleksey.emailservice.repositories.impl.EmailRowMapper;
 import org.turkovaleksey.emailservice.repositories.model.Email;
 import org.turkovaleksey.emailservice.services.dto.MailCreatePeriod;
 
+import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -27,6 +38,9 @@ class EmailRepositoryImplTest {
     @Mock
     private NamedParameterJdbcTemplate jdbcTemplate;
 
+    @Mock
+    private JdbcOperations jdbcOperations;
+
     @InjectMocks
     private EmailRepositoryImpl emailRepository;
 
@@ -35,10 +49,10 @@ class EmailRepositoryImplTest {
         List<Email> mockEmails = new ArrayList<>();
         mockEmails.add(new Email(LocalDate.of(2023, 1, 1), "test1@example.com"));
         mockEmails.add(new Email(LocalDate.of(2023, 1, 2), "test2@example.com"));
-        when(jdbcTemplate.query(anyString(), any(BeanPropertyRowMapper.class))).thenReturn(mockEmails);
+        when(jdbcTemplate.query(anyString(), any(EmailRowMapper.class))).thenReturn(mockEmails);
         List<Email> actualEmails = emailRepository.findAll();
-        verify(jdbcTemplate).query(eq("SELECT id, create_date, email FROM emails"),
-                any(BeanPropertyRowMapper.class));
+        verify(jdbcTemplate).query(eq("SELECT id, create_date, email FROM emails ORDER BY id"),
+                eq(EmailRowMapper.INSTANCE));
         assertEquals(mockEmails, actualEmails);
     }
 
@@ -50,13 +64,76 @@ class EmailRepositoryImplTest {
         List<Email> mockEmails = new ArrayList<>();
         mockEmails.add(new Email(LocalDate.of(2023, 1, 1), "test1@example.com"));
         mockEmails.add(new Email(LocalDate.of(2023, 1, 2), "test2@example.com"));
-        when(jdbcTemplate.query(anyString(), any(MapSqlParameterSource.class), any(BeanPropertyRowMapper.class))).thenReturn(mockEmails);
+        when(jdbcTemplate.query(anyString(), any(MapSqlParameterSource.class), any(EmailRowMapper.class))).thenReturn(mockEmails);
         List<Email> actualEmails = emailRepository.findAllByPeriod(mailCreatePeriod);
-        verify(jdbcTemplate).query(eq("SELECT * FROM emails WHERE create_date BETWEEN :startDate AND :endDate"), any(MapSqlParameterSource.class),
-                any(BeanPropertyRowMapper.class));
+        verify(jdbcTemplate).query(eq("SELECT id, create_date, email FROM emails WHERE create_date BETWEEN :startDate AND :endDate ORDER BY create_date, id"), any(MapSqlParameterSource.class),
+                eq(EmailRowMapper.INSTANCE));
         assertEquals(mockEmails, actualEmails);
     }
 
+    @Test
+    void findPage() {
+        MailCreatePeriod mailCreatePeriod = new MailCreatePeriod(LocalDate.of(2023, 1, 1), null);
+        List<Email> mockEmails = new ArrayList<>();
+        mockEmails.add(new Email(LocalDate.of(2023, 1, 1), "test1@example.com"));
+        when(jdbcTemplate.query(anyString(), any(MapSqlParameterSource.class), any(EmailRowMapper.class))).thenReturn(mockEmails);
+        List<Email> actualEmails = emailRepository.findPage(100, 11, mailCreatePeriod);
+        verify(jdbcTemplate).query(eq("SELECT id, create_date, email FROM emails WHERE id > :afterId AND create_date >= :startDate ORDER BY id LIMIT :limit"),
+                any(MapSqlParameterSource.class), eq(EmailRowMapper.INSTANCE));
+        assertEquals(mockEmails, actualEmails);
+    }
+
+    @Test
+    void streamAll() {
+        when(jdbcTemplate.getJdbcOperations()).thenReturn(jdbcOperations);
+        emailRepository.streamAll((id, createDate, email) -> {
+        });
+        verify(jdbcOperations).query(any(PreparedStatementCreator.class), any(RowCallbackHandler.class));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void streamAllTimed() throws SQLException {
+        ResultSet resultSet = mock(ResultSet.class);
+        when(resultSet.next()).thenReturn(true, false);
+        when(resultSet.getLong(1)).thenReturn(7L);
+        when(resultSet.getObject(2, LocalDate.class)).thenReturn(LocalDate.of(2023, 1, 1));
+        when(resultSet.getString(3)).thenReturn("email@example.com");
+        when(jdbcTemplate.getJdbcOperations()).thenReturn(jdbcOperations);
+        when(jdbcOperations.query(any(PreparedStatementCreator.class), any(ResultSetExtractor.class)))
+                .thenAnswer(invocation -> invocation.getArgument(1, ResultSetExtractor.class).extractData(resultSet));
+        List<String> rows = new ArrayList<>();
+        long[] timings = new long[3];
+        emailRepository.streamAll(new IEmailRowCallback() {
+            @Override
+            public void processRow(long id, LocalDate createDate, String email) {
+                rows.add(id + " " + createDate + " " + email);
+            }
+
+            @Override
+            public boolean isTimed() {
+                return true;
+            }
+
+            @Override
+            public void streamTimings(long queryNanos, long mappingNanos, long callbackNanos) {
+                timings[0] = queryNanos;
+                timings[1] = mappingNanos;
+                timings[2] = callbackNanos;
+            }
+        });
+        assertEquals(List.of("7 2023-01-01 email@example.com"), rows);
+        assertTrue(timings[0] > 0 && timings[1] >= 0 && timings[2] >= 0);
+    }
+
+    @Test
+    void streamByIdRange() {
+        when(jdbcTemplate.getJdbcOperations()).thenReturn(jdbcOperations);
+        emailRepository.streamByIdRange(10, 20, (id, createDate, email) -> {
+        });
+        verify(jdbcOperations).query(any(PreparedStatementCreator.class), any(RowCallbackHandler.class));
+    }
+
     @Test
     void save() {
         Email testEmail = new Email();
@@ -71,4 +148,17 @@ class EmailRepositoryImplTest {
                 eq(expectedParams)
         );
     }
-}
\ No newline at end of file
+
+    @Test
+    void saveAll() {
+        List<Email> emails = List.of(
+                new Email(LocalDate.of(2023, 1, 1), "test1@example.com"),
+                new Email(LocalDate.of(2023, 1, 1), "test2@example.com"));
+        when(jdbcTemplate.batchUpdate(anyString(), any(SqlParameterSource[].class))).thenReturn(new int[]{1, 0});
+        int[] updateCounts = emailRepository.saveAll(emails);
+        verify(jdbcTemplate).batchUpdate(
+                eq("INSERT INTO emails (create_date, email) VALUES (:createDate, :email) ON CONFLICT (email) DO NOTHING"),
+                any(SqlParameterSource[].class));
+        assertArrayEquals(new int[]{1, 0}, updateCounts);
+    }
+}
@@ -0,0 +1,35 @@
+package org.turkovaleksey.emailservice.repositories.impl.unit;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.turkovaleksey.emailservice.repositories.impl.EmailRowMapper;
+import org.turkovaleksey.emailservice.repositories.model.Email;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class EmailRowMapperTest {
+
+    @Mock
+    private ResultSet resultSet;
+
+    @Test
+    void mapRow() throws SQLException {
+        when(resultSet.getLong(1)).thenReturn(7L);
+        when(resultSet.getObject(2, LocalDate.class)).thenReturn(LocalDate.of(2023, 1, 1));
+        when(resultSet.getString(3)).thenReturn("test1@example.com");
+        Email expected = new Email(LocalDate.of(2023, 1, 1), "test1@example.com");
+        expected.setId(7L);
+        assertEquals(expected, EmailRowMapper.INSTANCE.mapRow(resultSet, 0));
+        verify(resultSet, never()).getMetaData();
+    }
+}
@@ -0,0 +1,68 @@
+package org.turkovaleksey.emailservice.services.impl.unit;
+
+import org.junit.jupiter.api.Test;
+import org.turkovaleksey.emailservice.services.exceptions.ConvertEmailListToCSVException;
+import org.turkovaleksey.emailservice.services.impl.CsvEncoder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class CsvEncoderTest {
+
+    @Test
+    void writeRows() {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        CsvEncoder csvEncoder = new CsvEncoder(outputStream);
+        csvEncoder.writeHeader();
+        csvEncoder.writeRow(LocalDate.of(2023, 1, 1), "test1@example.com");
+        csvEncoder.writeRow(LocalDate.of(2023, 1, 1), "te\"st2@example.com");
+        csvEncoder.writeRow(LocalDate.of(2023, 12, 31), "тест@пример.рф");
+        csvEncoder.flush();
+        assertEquals("\"Date\",\"Email\"\n"
+                + "\"2023-01-01\",\"test1@example.com\"\n"
+                + "\"2023-01-01\",\"te\"\"st2@example.com\"\n"
+                + "\"2023-12-31\",\"тест@пример.рф\"\n", outputStream.toString(StandardCharsets.UTF_8));
+        assertEquals(3, csvEncoder.getRowCount());
+    }
+
+    @Test
+    void writeNullFields() {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        CsvEncoder csvEncoder = new CsvEncoder(outputStream);
+        csvEncoder.writeRow(null, "test@example.com");
+        csvEncoder.writeRow(LocalDate.of(2023, 1, 1), null);
+        csvEncoder.flush();
+        assertEquals(",\"test@example.com\"\n\"2023-01-01\",\n", outputStream.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void writeRowsLongerThanBuffer() {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        CsvEncoder csvEncoder = new CsvEncoder(outputStream, 64);
+        String email = "€".repeat(100) + "@example.com";
+        csvEncoder.writeRow(LocalDate.of(2023, 1, 1), email);
+        csvEncoder.writeRow(LocalDate.of(2023, 1, 2), email);
+        csvEncoder.flush();
+        assertEquals("\"2023-01-01\",\"" + email + "\"\n\"2023-01-02\",\"" + email + "\"\n",
+                outputStream.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void flushThrowsConvertEmailListToCSVException() {
+        OutputStream outputStream = new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                throw new IOException("Broken pipe");
+            }
+        };
+        CsvEncoder csvEncoder = new CsvEncoder(outputStream);
+        csvEncoder.writeRow(LocalDate.of(2023, 1, 1), "test@example.com");
+        assertThrows(ConvertEmailListToCSVException.class, csvEncoder::flush);
+    }
+}
@@ -0,0 +1,63 @@
+package org.turkovaleksey.emailservice.services.impl.unit;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.turkovaleksey.emailservice.repositories.api.IEmailRepository;
+import org.turkovaleksey.emailservice.repositories.api.IEmailRowCallback;
+import org.turkovaleksey.emailservice.services.impl.EmailBloomFilter;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+
+@ExtendWith(MockitoExtension.class)
+class EmailBloomFilterTest {
+    @Mock
+    private IEmailRepository emailRepository;
+
+    @Test
+    void warmUpLoadsStoredEmails() {
+        doAnswer(invocation -> {
+            IEmailRowCallback callback = invocation.getArgument(0);
+            for (int i = 0; i < 1000; i++) {
+                callback.processRow(i, LocalDate.of(2023, 1, 1), "email" + i + "@example.com");
+            }
+            return null;
+        }).when(emailRepository).streamAll(any());
+        EmailBloomFilter filter = new EmailBloomFilter(emailRepository, 1000, 0.01);
+        filter.warmUp();
+        for (int i = 0; i < 1000; i++) {
+            assertTrue(filter.mightContain("email" + i + "@example.com"));
+        }
+        int falsePositives = 0;
+        for (int i = 0; i < 1000; i++) {
+            if (filter.mightContain("new" + i + "@example.com")) {
+                falsePositives++;
+            }
+        }
+        assertTrue(falsePositives < 50);
+    }
+
+    @Test
+    void putAfterWarmUp() {
+        EmailBloomFilter filter = new EmailBloomFilter(emailRepository, 1000, 0.01);
+        filter.warmUp();
+        assertFalse(filter.mightContain("new@example.com"));
+        filter.put("new@example.com");
+        assertTrue(filter.mightContain("new@example.com"));
+    }
+
+    @Test
+    void mightContainWhenWarmUpFailed() {
+        doThrow(new IllegalStateException("db is down")).when(emailRepository).streamAll(any());
+        EmailBloomFilter filter = new EmailBloomFilter(emailRepository, 1000, 0.01);
+        filter.warmUp();
+        assertTrue(filter.mightContain("new@example.com"));
+    }
+}
@@ -0,0 +1,55 @@
+package org.turkovaleksey.emailservice.services.impl.unit;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.turkovaleksey.emailservice.repositories.api.IEmailRepository;
+import org.turkovaleksey.emailservice.repositories.model.Email;
+import org.turkovaleksey.emailservice.services.dto.EmailDailyStats;
+import org.turkovaleksey.emailservice.services.dto.MailCreatePeriod;
+import org.turkovaleksey.emailservice.services.events.EmailsSavedEvent;
+import org.turkovaleksey.emailservice.services.impl.EmailDailyCounts;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class EmailDailyCountsTest {
+    private static final LocalDate DAY = LocalDate.of(2023, 1, 1);
+    @Mock
+    private IEmailRepository emailRepository;
+
+    @Test
+    void getStatsCountsSavedEmails() {
+        when(emailRepository.countByCreateDate()).thenReturn(Map.of(DAY, 3L, DAY.plusDays(2), 1L, DAY.plusDays(40), 5L));
+        EmailDailyCounts dailyCounts = new EmailDailyCounts(emailRepository);
+        dailyCounts.warmUp();
+        dailyCounts.onEmailsSaved(new EmailsSavedEvent(List.of(
+                new Email(DAY.plusDays(2), "email1@example.com"),
+                new Email(DAY.plusDays(3), "email2@example.com"))));
+        EmailDailyStats stats = dailyCounts.getStats(new MailCreatePeriod(DAY, DAY.plusDays(9)));
+        assertEquals(6, stats.getTotal());
+        assertEquals(Map.of(DAY, 3L, DAY.plusDays(2), 2L, DAY.plusDays(3), 1L), stats.getDays());
+        assertEquals(List.of(DAY, DAY.plusDays(2), DAY.plusDays(3)), List.copyOf(stats.getDays().keySet()));
+        assertEquals(11, dailyCounts.getStats(new MailCreatePeriod(DAY.minusYears(10), DAY.plusYears(10))).getTotal());
+    }
+
+    @Test
+    void getStatsBuildsCountersWhenWarmUpFailed() {
+        when(emailRepository.countByCreateDate())
+                .thenThrow(new IllegalStateException("db is down"))
+                .thenReturn(Map.of(DAY, 2L));
+        EmailDailyCounts dailyCounts = new EmailDailyCounts(emailRepository);
+        dailyCounts.warmUp();
+        assertEquals(2, dailyCounts.getStats(new MailCreatePeriod(DAY, DAY)).getTotal());
+        assertEquals(2, dailyCounts.getStats(new MailCreatePeriod(DAY, DAY)).getTotal());
+        verify(emailRepository, times(2)).countByCreateDate();
+    }
+}
@@ -0,0 +1,101 @@
+package org.turkovaleksey.emailservice.services.impl.unit;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.TransientDataAccessResourceException;
+import org.turkovaleksey.emailservice.repositories.api.IEmailRepository;
+import org.turkovaleksey.emailservice.repositories.model.Email;
+import org.turkovaleksey.emailservice.services.exceptions.IngestionQueueFullException;
+import org.turkovaleksey.emailservice.services.impl.EmailIngestionBuffer;
+import org.turkovaleksey.emailservice.services.impl.EmailIngestionBuffer.Backpressure;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class EmailIngestionBufferTest {
+    @Mock
+    private IEmailRepository emailRepository;
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Test
+    void stopFlushesQueuedEmails() {
+        List<String> saved = new ArrayList<>();
+        doAnswer(invocation -> {
+            List<Email> batch = invocation.getArgument(0);
+            batch.forEach(email -> saved.add(email.getEmail()));
+            return new int[batch.size()];
+        }).when(emailRepository).saveAll(anyList());
+        EmailIngestionBuffer buffer = new EmailIngestionBuffer(emailRepository, eventPublisher, true, 100, 10, 10_000, Backpressure.REJECT, 3, 1);
+        buffer.start();
+        for (int i = 0; i < 25; i++) {
+            buffer.submit(new Email(LocalDate.of(2023, 1, 1), "test" + i + "@example.com"));
+        }
+        buffer.stop();
+        assertEquals(25, saved.size());
+    }
+
+    @Test
+    void flushRetriesFailedBatch() {
+        List<String> saved = new ArrayList<>();
+        doThrow(new TransientDataAccessResourceException("connection reset"))
+                .doAnswer(invocation -> {
+                    List<Email> batch = invocation.getArgument(0);
+                    batch.forEach(email -> saved.add(email.getEmail()));
+                    return new int[batch.size()];
+                }).when(emailRepository).saveAll(anyList());
+        EmailIngestionBuffer buffer = new EmailIngestionBuffer(emailRepository, eventPublisher, true, 100, 10, 10_000, Backpressure.REJECT, 3, 1);
+        buffer.start();
+        for (int i = 0; i < 5; i++) {
+            buffer.submit(new Email(LocalDate.of(2023, 1, 1), "test" + i + "@example.com"));
+        }
+        buffer.stop();
+        assertEquals(5, saved.size());
+        assertEquals(0, buffer.getDropped());
+    }
+
+    @Test
+    void flushSavesOneByOneWhenRetriesExhausted() {
+        List<String> saved = new ArrayList<>();
+        doAnswer(invocation -> {
+            List<Email> batch = invocation.getArgument(0);
+            if (batch.size() > 1 || batch.get(0).getEmail().startsWith("bad")) {
+                throw new DataIntegrityViolationException("value too long");
+            }
+            saved.add(batch.get(0).getEmail());
+            return new int[]{1};
+        }).when(emailRepository).saveAll(anyList());
+        EmailIngestionBuffer buffer = new EmailIngestionBuffer(emailRepository, eventPublisher, true, 100, 10, 10_000, Backpressure.REJECT, 1, 1);
+        buffer.start();
+        buffer.submit(new Email(LocalDate.of(2023, 1, 1), "test1@example.com"));
+        buffer.submit(new Email(LocalDate.of(2023, 1, 1), "bad@example.com"));
+        buffer.submit(new Email(LocalDate.of(2023, 1, 1), "test2@example.com"));
+        buffer.stop();
+        assertEquals(List.of("test1@example.com", "test2@example.com"), saved);
+        assertEquals(1, buffer.getDropped());
+    }
+
+    @Test
+    void submitWhenQueueFullAndReject() {
+        EmailIngestionBuffer buffer = new EmailIngestionBuffer(emailRepository, eventPublisher, true, 1, 10, 10_000, Backpressure.REJECT, 3, 1);
+        buffer.start();
+        buffer.stop();
+        assertThrows(IngestionQueueFullException.class,
+                () -> buffer.submit(new Email(LocalDate.of(2023, 1, 1), "test@example.com")));
+        verify(emailRepository, never()).saveAll(anyList());
+    }
+}
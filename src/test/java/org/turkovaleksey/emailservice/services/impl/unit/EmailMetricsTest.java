@@ -0,0 +1,63 @@
+package org.turkovaleksey.emailservice.services.impl.unit;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.turkovaleksey.emailservice.repositories.api.IEmailRowCallback;
+import org.turkovaleksey.emailservice.services.dto.SaveStatus;
+import org.turkovaleksey.emailservice.services.impl.EmailMetrics;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EmailMetricsTest {
+
+    @Test
+    void finishRecordsStagesRowsAndBytes() throws IOException {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        EmailMetrics emailMetrics = new EmailMetrics(registry);
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        EmailMetrics.Export recording = emailMetrics.startExport(EmailMetrics.DOWNLOAD, outputStream);
+        IEmailRowCallback callback = recording.timed((id, createDate, email) -> {
+        });
+        assertTrue(callback.isTimed());
+        callback.processRow(1, LocalDate.of(2023, 1, 1), "email@example.com");
+        recording.write(new byte[]{1, 2, 3}, 0, 3);
+        callback.streamTimings(3_000_000, 2_000_000, 1_000_000_000);
+        recording.finish(1);
+        assertEquals(3, outputStream.size());
+        assertEquals(3.0, registry.get("email.stage").tags("operation", "download", "stage", "db.query")
+                .timer().totalTime(TimeUnit.MILLISECONDS));
+        assertEquals(2.0, registry.get("email.stage").tags("operation", "download", "stage", "row.mapping")
+                .timer().totalTime(TimeUnit.MILLISECONDS));
+        assertEquals(1, registry.get("email.stage").tags("operation", "download", "stage", "response.write")
+                .timer().count());
+        assertEquals(1.0, registry.get("email.export.rows").summary().totalAmount());
+        assertEquals(3.0, registry.get("email.export.bytes").summary().totalAmount());
+    }
+
+    @Test
+    void finishWithoutStreamSkipsDatabaseStages() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        EmailMetrics emailMetrics = new EmailMetrics(registry);
+        emailMetrics.startExport(EmailMetrics.DOWNLOAD_PERIOD, new ByteArrayOutputStream()).finish(-1);
+        assertNull(registry.find("email.stage").tags("stage", "db.query").timer());
+        assertNull(registry.find("email.export.rows").summary());
+        assertEquals(1, registry.get("email.export.bytes").summary().count());
+    }
+
+    @Test
+    void countSavesByStatus() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        EmailMetrics emailMetrics = new EmailMetrics(registry);
+        emailMetrics.countSaves(SaveStatus.DUPLICATE, 2);
+        emailMetrics.countSaves(SaveStatus.INVALID, 0);
+        assertEquals(2.0, registry.get("email.saves").tags("status", "duplicate").counter().count());
+        assertNull(registry.find("email.saves").tags("status", "invalid").counter());
+    }
+}
@@ -1,21 +1,50 @@
 package org.turkovaleksey.emailservice.services.impl.unit;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DuplicateKeyException;
 import org.turkovaleksey.emailservice.repositories.api.IEmailRepository;
+import org.turkovaleksey.emailservice.repositories.api.IEmailRowCallback;
 import org.turkovaleksey.emailservice.repositories.model.Email;
+import org.turkovaleksey.emailservice.services.dto.BulkSaveResult;
+import org.turkovaleksey.emailservice.services.dto.EmailPage;
+import org.turkovaleksey.emailservice.services.dto.ExportVersion;
 import org.turkovaleksey.emailservice.services.dto.MailCreatePeriod;
+import org.turkovaleksey.emailservice.services.dto.SaveStatus;
+import org.turkovaleksey.emailservice.services.events.EmailsSavedEvent;
+import org.turkovaleksey.emailservice.services.exceptions.EmailAlreadyExistsException;
 import org.turkovaleksey.emailservice.services.exceptions.IncorrectPeriodException;
+import org.turkovaleksey.emailservice.services.exceptions.InvalidEmailException;
+import org.turkovaleksey.emailservice.services.impl.EmailBloomFilter;
+import org.turkovaleksey.emailservice.services.impl.EmailDailyCounts;
+import org.turkovaleksey.emailservice.services.impl.EmailIngestionBuffer;
+import org.turkovaleksey.emailservice.services.impl.EmailMetrics;
 import org.turkovaleksey.emailservice.services.impl.EmailServiceImpl;
+import org.turkovaleksey.emailservice.services.impl.ExportCache;
+import org.turkovaleksey.emailservice.services.impl.ExportSegmentStore;
+import org.turkovaleksey.emailservice.services.impl.ExportSnapshotStore;
+import org.turkovaleksey.emailservice.services.impl.ExportVersionTracker;
+import org.turkovaleksey.emailservice.services.impl.HighWaterMarkTracker;
+import org.turkovaleksey.emailservice.services.impl.ParallelPeriodExporter;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.zip.ZipInputStream;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.Mockito.*;
 
@@ -25,6 +54,28 @@ class EmailServiceImplTest {
     private EmailServiceImpl emailService;
     @Mock
     private IEmailRepository emailRepository;
+    @Mock
+    private EmailIngestionBuffer ingestionBuffer;
+    @Mock
+    private EmailBloomFilter duplicateFilter;
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+    @Mock
+    private ExportCache exportCache;
+    @Mock
+    private ExportVersionTracker exportVersionTracker;
+    @Mock
+    private ExportSegmentStore exportSegmentStore;
+    @Mock
+    private ParallelPeriodExporter parallelPeriodExporter;
+    @Mock
+    private EmailDailyCounts dailyCounts;
+    @Mock
+    private ExportSnapshotStore exportSnapshotStore;
+    @Mock
+    private HighWaterMarkTracker highWaterMarkTracker;
+    @Spy
+    private EmailMetrics emailMetrics = new EmailMetrics(new SimpleMeterRegistry());
 
     @Test
     public void testGetEmailsAsCsv() {
@@ -52,6 +103,135 @@ class EmailServiceImplTest {
         assertEquals(expectedCsv, csvResult);
     }
 
+    @Test
+    public void testWriteEmailsAsCsv() {
+        List<Email> mockEmails = new ArrayList<>();
+        mockEmails.add(new Email(LocalDate.of(2023, 1, 1), "test1@example.com"));
+        mockEmails.add(new Email(LocalDate.of(2023, 1, 2), "test2@example.com"));
+        doAnswer(invocation -> {
+            IEmailRowCallback callback = invocation.getArgument(0);
+            mockEmails.forEach(email -> callback.processRow(0, email.getCreateDate(), email.getEmail()));
+            return null;
+        }).when(emailRepository).streamAll(any());
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        emailService.writeEmailsAsCsv(outputStream);
+        assertEquals(emailService.convertListAsCsv(mockEmails), outputStream.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testWriteEmailsByPeriodAsCsv() {
+        MailCreatePeriod mailCreatePeriod = new MailCreatePeriod(LocalDate.of(2023, 1, 1), LocalDate.of(2023, 1, 10));
+        List<Email> mockEmails = new ArrayList<>();
+        mockEmails.add(new Email(LocalDate.of(2023, 1, 1), "test1@example.com"));
+        mockEmails.add(new Email(LocalDate.of(2023, 1, 10), "test3@example.com"));
+        doAnswer(invocation -> {
+            IEmailRowCallback callback = invocation.getArgument(1);
+            mockEmails.forEach(email -> callback.processRow(0, email.getCreateDate(), email.getEmail()));
+            return null;
+        }).when(emailRepository).streamAllByPeriod(eq(mailCreatePeriod), any());
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        emailService.writeEmailsByPeriodAsCsv(mailCreatePeriod, outputStream);
+        assertEquals(emailService.convertListAsCsv(mockEmails), outputStream.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testWriteEmailsByPeriodAsCsvFromExportCache() {
+        MailCreatePeriod mailCreatePeriod = new MailCreatePeriod(LocalDate.of(2023, 1, 1), LocalDate.of(2023, 1, 31));
+        byte[] export = "\"Date\",\"Email\"\n\"2023-01-01\",\"test1@example.com\"\n".getBytes(StandardCharsets.UTF_8);
+        when(exportCache.isCacheable(mailCreatePeriod)).thenReturn(true);
+        when(exportCache.get(mailCreatePeriod)).thenReturn(export);
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        emailService.writeEmailsByPeriodAsCsv(mailCreatePeriod, outputStream);
+        assertArrayEquals(export, outputStream.toByteArray());
+        verify(emailRepository, never()).streamAllByPeriod(any(), any());
+    }
+
+    @Test
+    public void testWriteEmailsByPeriodAsCsvWhenIncorrectPeriodException() {
+        MailCreatePeriod mailCreatePeriod = new MailCreatePeriod(LocalDate.of(2023, 1, 1), LocalDate.of(2022, 12, 31));
+        assertThrows(IncorrectPeriodException.class,
+                () -> emailService.writeEmailsByPeriodAsCsv(mailCreatePeriod, new ByteArrayOutputStream()));
+        verify(emailRepository, never()).streamAllByPeriod(any(), any());
+    }
+
+    @Test
+    public void testWriteEmailsByPeriodAsZip() throws IOException {
+        MailCreatePeriod mailCreatePeriod = new MailCreatePeriod(LocalDate.of(2023, 1, 1), LocalDate.of(2023, 1, 31));
+        doAnswer(invocation -> {
+            IEmailRowCallback callback = invocation.getArgument(1);
+            callback.processRow(1, LocalDate.of(2023, 1, 1), "email1@example.com");
+            callback.processRow(2, LocalDate.of(2023, 1, 1), "email2@example.com");
+            callback.processRow(3, LocalDate.of(2023, 1, 3), "email3@example.com");
+            return null;
+        }).when(emailRepository).streamAllByPeriod(eq(mailCreatePeriod), any());
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        emailService.writeEmailsByPeriodAsZip(mailCreatePeriod, outputStream);
+        try (ZipInputStream zipInputStream = new ZipInputStream(new ByteArrayInputStream(outputStream.toByteArray()))) {
+            assertEquals("emails_2023-01-01.csv", zipInputStream.getNextEntry().getName());
+            assertEquals("\"Date\",\"Email\"\n\"2023-01-01\",\"email1@example.com\"\n\"2023-01-01\",\"email2@example.com\"\n",
+                    new String(zipInputStream.readAllBytes(), StandardCharsets.UTF_8));
+            assertEquals("emails_2023-01-03.csv", zipInputStream.getNextEntry().getName());
+            assertEquals("\"Date\",\"Email\"\n\"2023-01-03\",\"email3@example.com\"\n",
+                    new String(zipInputStream.readAllBytes(), StandardCharsets.UTF_8));
+            assertNull(zipInputStream.getNextEntry());
+        }
+    }
+
+    @Test
+    public void testGetPageWithNextCursor() {
+        List<Email> mockEmails = new ArrayList<>();
+        for (long id = 11; id <= 13; id++) {
+            Email email = new Email(LocalDate.of(2023, 1, 1), "email" + id + "@example.com");
+            email.setId(id);
+            mockEmails.add(email);
+        }
+        when(emailRepository.findPage(10, 3, null)).thenReturn(mockEmails);
+        EmailPage page = emailService.getPage(10, 2, null);
+        assertEquals(mockEmails.subList(0, 2), page.getEmails());
+        assertEquals(12L, page.getNextCursor());
+    }
+
+    @Test
+    public void testGetPageLastPage() {
+        List<Email> mockEmails = new ArrayList<>();
+        Email email = new Email(LocalDate.of(2023, 1, 1), "email1@example.com");
+        email.setId(1L);
+        mockEmails.add(email);
+        when(emailRepository.findPage(0, 1001, null)).thenReturn(mockEmails);
+        EmailPage page = emailService.getPage(-5, 5000, null);
+        assertEquals(mockEmails, page.getEmails());
+        assertNull(page.getNextCursor());
+    }
+
+    @Test
+    public void testGetPageWhenIncorrectPeriodException() {
+        MailCreatePeriod mailCreatePeriod = new MailCreatePeriod(LocalDate.of(2023, 1, 1), LocalDate.of(2022, 12, 31));
+        assertThrows(IncorrectPeriodException.class, () -> emailService.getPage(0, 10, mailCreatePeriod));
+        verify(emailRepository, never()).findPage(anyLong(), anyInt(), any());
+    }
+
+    @Test
+    public void testWriteEmailsSinceAsCsv() {
+        doAnswer(invocation -> {
+            IEmailRowCallback callback = invocation.getArgument(2);
+            callback.processRow(11, LocalDate.of(2023, 1, 1), "email11@example.com");
+            callback.processRow(12, LocalDate.of(2023, 1, 2), "email12@example.com");
+            return null;
+        }).when(emailRepository).streamByIdRange(eq(10L), eq(12L), any());
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        emailService.writeEmailsSinceAsCsv(10, 12, outputStream);
+        assertEquals("\"Date\",\"Email\"\n\"2023-01-01\",\"email11@example.com\"\n\"2023-01-02\",\"email12@example.com\"\n",
+                outputStream.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testWriteEmailsSinceAsCsvWhenNothingNew() {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        emailService.writeEmailsSinceAsCsv(12, 12, outputStream);
+        assertEquals("\"Date\",\"Email\"\n", outputStream.toString(StandardCharsets.UTF_8));
+        verify(emailRepository, never()).streamByIdRange(anyLong(), anyLong(), any());
+    }
+
     @Test
     public void testSave() {
         String email = "example@test.com";
@@ -59,6 +239,93 @@ class EmailServiceImplTest {
         verify(emailRepository, times(1)).save(any(Email.class));
     }
 
+    @Test
+    public void testSaveStoresCanonicalEmail() {
+        emailService.save(" \"Example@Test.COM\"\n");
+        verify(emailRepository, times(1)).save(argThat(email -> "Example@test.com".equals(email.getEmail())));
+    }
+
+    @Test
+    public void testSaveWhenInvalidEmail() {
+        assertThrows(InvalidEmailException.class, () -> emailService.save("not-an-email"));
+        verify(duplicateFilter, never()).mightContain(anyString());
+        verify(emailRepository, never()).save(any(Email.class));
+    }
+
+    @Test
+    public void testSavePublishesEvent() {
+        emailService.save("example@test.com");
+        verify(emailRepository, never()).existsByEmail(anyString());
+        verify(eventPublisher, times(1)).publishEvent(any(EmailsSavedEvent.class));
+    }
+
+    @Test
+    public void testSaveWhenDuplicateConfirmedByLookup() {
+        String email = "email1@example.com";
+        when(duplicateFilter.mightContain(email)).thenReturn(true);
+        when(emailRepository.existsByEmail(email)).thenReturn(true);
+        assertThrows(EmailAlreadyExistsException.class, () -> emailService.save(email));
+        verify(emailRepository, never()).save(any(Email.class));
+    }
+
+    @Test
+    public void testSaveWhenDuplicateKeyException() {
+        doThrow(new DuplicateKeyException("duplicate")).when(emailRepository).save(any(Email.class));
+        assertThrows(EmailAlreadyExistsException.class, () -> emailService.save("email1@example.com"));
+        verify(eventPublisher, never()).publishEvent(any());
+    }
+
+    @Test
+    public void testSaveWhenIngestionEnabled() {
+        when(ingestionBuffer.isEnabled()).thenReturn(true);
+        emailService.save("example@test.com");
+        verify(ingestionBuffer, times(1)).submit(any(Email.class));
+        verify(emailRepository, never()).save(any(Email.class));
+    }
+
+    @Test
+    public void testSaveAll() {
+        List<String> emails = List.of("new@example.com", "not-an-email", "email1@example.com");
+        when(emailRepository.saveAll(anyList())).thenReturn(new int[]{1, 0});
+        BulkSaveResult result = emailService.saveAll(emails);
+        assertEquals(1, result.getInserted());
+        assertEquals(1, result.getDuplicates());
+        assertEquals(1, result.getInvalid());
+        assertEquals(SaveStatus.INSERTED, result.getResults().get(0).getStatus());
+        assertEquals(SaveStatus.INVALID, result.getResults().get(1).getStatus());
+        assertEquals(SaveStatus.DUPLICATE, result.getResults().get(2).getStatus());
+    }
+
+    @Test
+    public void testSaveAllWhenAllInvalid() {
+        BulkSaveResult result = emailService.saveAll(List.of("", "@example.com"));
+        assertEquals(2, result.getInvalid());
+        verify(emailRepository, never()).saveAll(anyList());
+    }
+
+    @Test
+    public void testGetDailyStatsWhenIncorrectPeriodException() {
+        MailCreatePeriod mailCreatePeriod = new MailCreatePeriod(LocalDate.of(2023, 1, 2), LocalDate.of(2023, 1, 1));
+        assertThrows(IncorrectPeriodException.class, () -> emailService.getDailyStats(mailCreatePeriod));
+        verify(dailyCounts, never()).getStats(any());
+    }
+
+    @Test
+    public void testGetExportSnapshotWhenNotRecorded() {
+        when(exportSnapshotStore.isEnabled()).thenReturn(true);
+        assertNull(emailService.getExportSnapshot(new ExportVersion(5, 0)));
+        verify(exportSnapshotStore).find("5");
+        verify(emailRepository, never()).streamByIdRange(anyLong(), anyLong(), any());
+    }
+
+    @Test
+    public void testWriteEmailsAsCsvWhenSnapshotRecorded() {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        emailService.writeEmailsAsCsv(new ExportVersion(5, 0), outputStream);
+        verify(exportSnapshotStore).record(eq("5"), any());
+        assertEquals("\"Date\",\"Email\"\n", outputStream.toString(StandardCharsets.UTF_8));
+    }
+
     @Test
     public void testCheckDateWhenIncorrectPeriodException() {
         MailCreatePeriod mailCreatePeriod = new MailCreatePeriod();
@@ -0,0 +1,37 @@
+package org.turkovaleksey.emailservice.services.impl.unit;
+
+import org.junit.jupiter.api.Test;
+import org.turkovaleksey.emailservice.services.impl.EmailValidator;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class EmailValidatorTest {
+
+    @Test
+    void canonicalizeReturnsCanonicalAddressAsIs() {
+        String email = "first.last+tag@mail.example.com";
+        assertSame(email, EmailValidator.canonicalize(email));
+    }
+
+    @Test
+    void canonicalizeTrimsUnquotesAndLowercasesDomain() {
+        assertEquals("John.Doe@example.com", EmailValidator.canonicalize("  John.Doe@Example.COM\n"));
+        assertEquals("user@example.com", EmailValidator.canonicalize("\"user@example.com\""));
+        assertEquals("user@sub-domain.example.org", EmailValidator.canonicalize(" \"user@Sub-Domain.example.org\" "));
+    }
+
+    @Test
+    void canonicalizeRejectsInvalidAddresses() {
+        String[] invalid = {null, "", "   ", "\"\"", "not-an-email", "@example.com", "user@", "user@localhost",
+                "user@@example.com", ".user@example.com", "user.@example.com", "us..er@example.com",
+                "user@example..com", "user@-example.com", "user@example-.com", "user@example.com.",
+                "us er@example.com", "user@exa_mple.com", "\"user\"@example.com", "{\"email\":\"user@example.com\"}",
+                "тест@пример.рф", "a".repeat(65) + "@example.com", "user@" + "a".repeat(64) + ".com",
+                "user@" + "a".repeat(92) + ".com"};
+        for (String email : invalid) {
+            assertNull(EmailValidator.canonicalize(email), email);
+        }
+    }
+}
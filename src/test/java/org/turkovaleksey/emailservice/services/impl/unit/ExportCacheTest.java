@@ -0,0 +1,92 @@
+package org.turkovaleksey.emailservice.services.impl.unit;
+
+import org.junit.jupiter.api.Test;
+import org.turkovaleksey.emailservice.repositories.model.Email;
+import org.turkovaleksey.emailservice.services.dto.MailCreatePeriod;
+import org.turkovaleksey.emailservice.services.events.EmailsSavedEvent;
+import org.turkovaleksey.emailservice.services.impl.ExportCache;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ExportCacheTest {
+    private static final MailCreatePeriod JANUARY = new MailCreatePeriod(LocalDate.of(2023, 1, 1), LocalDate.of(2023, 1, 31));
+    private static final MailCreatePeriod FEBRUARY = new MailCreatePeriod(LocalDate.of(2023, 2, 1), LocalDate.of(2023, 2, 28));
+    private static final MailCreatePeriod MARCH = new MailCreatePeriod(LocalDate.of(2023, 3, 1), LocalDate.of(2023, 3, 31));
+
+    @Test
+    void isCacheableOnlyForClosedPeriods() {
+        ExportCache exportCache = new ExportCache(1024, 1024);
+        assertTrue(exportCache.isCacheable(JANUARY));
+        assertFalse(exportCache.isCacheable(new MailCreatePeriod(LocalDate.of(2023, 1, 1), LocalDate.now())));
+        assertFalse(new ExportCache(0, 0).isCacheable(JANUARY));
+    }
+
+    @Test
+    void putEvictsLeastRecentlyUsed() {
+        ExportCache exportCache = new ExportCache(200, 100);
+        exportCache.put(JANUARY, new byte[100], 0);
+        exportCache.put(FEBRUARY, new byte[100], 0);
+        exportCache.get(JANUARY);
+        exportCache.put(MARCH, new byte[100], 0);
+        assertEquals(100, exportCache.get(JANUARY).length);
+        assertNull(exportCache.get(FEBRUARY));
+        assertEquals(100, exportCache.get(MARCH).length);
+        assertEquals(200, exportCache.getStats().getBytes());
+        assertEquals(3, exportCache.getStats().getHits());
+        assertEquals(1, exportCache.getStats().getMisses());
+    }
+
+    @Test
+    void putSkipsTooLargeExports() {
+        ExportCache exportCache = new ExportCache(1024, 100);
+        exportCache.put(JANUARY, new byte[101], 0);
+        assertNull(exportCache.get(JANUARY));
+        assertEquals(0, exportCache.getStats().getEntries());
+    }
+
+    @Test
+    void onEmailsSavedEvictsCoveringPeriods() {
+        ExportCache exportCache = new ExportCache(1024, 1024);
+        exportCache.put(JANUARY, new byte[10], 0);
+        exportCache.put(FEBRUARY, new byte[10], 0);
+        exportCache.onEmailsSaved(new EmailsSavedEvent(List.of(new Email(LocalDate.of(2023, 1, 31), "late@example.com"))));
+        assertNull(exportCache.get(JANUARY));
+        assertEquals(10, exportCache.get(FEBRUARY).length);
+        assertEquals(10, exportCache.getStats().getBytes());
+    }
+
+    @Test
+    void putSkipsExportReadBeforeLateSave() {
+        ExportCache exportCache = new ExportCache(1024, 1024);
+        long generation = exportCache.getGeneration();
+        exportCache.onEmailsSaved(new EmailsSavedEvent(List.of(new Email(LocalDate.of(2023, 1, 31), "late@example.com"))));
+        exportCache.put(JANUARY, new byte[10], generation);
+        assertNull(exportCache.get(JANUARY));
+        long current = exportCache.getGeneration();
+        exportCache.onEmailsSaved(new EmailsSavedEvent(List.of(new Email(LocalDate.now(), "today@example.com"))));
+        assertEquals(current, exportCache.getGeneration());
+        exportCache.put(JANUARY, new byte[10], current);
+        assertEquals(10, exportCache.get(JANUARY).length);
+    }
+
+    @Test
+    void captureDropsCopyWhenTooLarge() throws IOException {
+        ExportCache exportCache = new ExportCache(1024, 4);
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        ExportCache.Capture capture = exportCache.capture(outputStream);
+        capture.write(new byte[]{1, 2, 3}, 0, 3);
+        assertArrayEquals(new byte[]{1, 2, 3}, capture.toByteArray());
+        capture.write(new byte[]{4, 5}, 0, 2);
+        assertNull(capture.toByteArray());
+        assertArrayEquals(new byte[]{1, 2, 3, 4, 5}, outputStream.toByteArray());
+    }
+}
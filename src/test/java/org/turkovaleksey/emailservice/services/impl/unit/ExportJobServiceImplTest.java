@@ -0,0 +1,128 @@
+package org.turkovaleksey.emailservice.services.impl.unit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.BadSqlGrammarException;
+import org.turkovaleksey.emailservice.services.api.IEmailService;
+import org.turkovaleksey.emailservice.services.dto.ExportJobState;
+import org.turkovaleksey.emailservice.services.dto.ExportJobStatus;
+import org.turkovaleksey.emailservice.services.dto.MailCreatePeriod;
+import org.turkovaleksey.emailservice.services.exceptions.ExportJobNotFoundException;
+import org.turkovaleksey.emailservice.services.exceptions.ExportJobNotReadyException;
+import org.turkovaleksey.emailservice.services.impl.ExportJobServiceImpl;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.turkovaleksey.emailservice.services.api.IMessage.CONVERT_LIST_TO_CSV_EXCEPTION;
+
+@ExtendWith(MockitoExtension.class)
+class ExportJobServiceImplTest {
+    private static final String CSV = "\"Date\",\"Email\"\n\"2023-01-01\",\"test1@example.com\"\n\"2023-01-02\",\"test2@example.com\"\n";
+    private static final MailCreatePeriod PERIOD = new MailCreatePeriod(LocalDate.of(2023, 1, 1), LocalDate.of(2023, 1, 2));
+    @Mock
+    private IEmailService emailService;
+    @TempDir
+    private Path directory;
+    private ExportJobServiceImpl exportJobService;
+
+    @AfterEach
+    void tearDown() {
+        exportJobService.shutdown();
+    }
+
+    @Test
+    void submitWritesExportFile() throws Exception {
+        writesCsv(null);
+        exportJobService = newService(60);
+        ExportJobStatus status = exportJobService.submit(PERIOD, "user");
+        ExportJobStatus done = awaitFinished(status.getId());
+        assertEquals(ExportJobState.DONE, done.getState());
+        assertEquals(2, done.getRows());
+        assertEquals(CSV.length(), done.getBytes());
+        assertEquals(CSV, Files.readString(exportJobService.getFile(status.getId(), "user"), StandardCharsets.UTF_8));
+        assertThrows(ExportJobNotFoundException.class, () -> exportJobService.getStatus(status.getId(), "other"));
+    }
+
+    @Test
+    void getFileBeforeJobIsDone() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        writesCsv(release);
+        exportJobService = newService(60);
+        ExportJobStatus status = exportJobService.submit(PERIOD, "user");
+        assertThrows(ExportJobNotReadyException.class, () -> exportJobService.getFile(status.getId(), "user"));
+        release.countDown();
+        assertEquals(ExportJobState.DONE, awaitFinished(status.getId()).getState());
+    }
+
+    @Test
+    void submitHidesFailureDetail() throws Exception {
+        doThrow(new BadSqlGrammarException("export", "SELECT create_date, email FROM emails", new SQLException("relation does not exist")))
+                .when(emailService).writeEmailsByPeriodAsCsv(eq(PERIOD), any(OutputStream.class));
+        exportJobService = newService(60);
+        ExportJobStatus status = exportJobService.submit(PERIOD, "user");
+        ExportJobStatus failed = awaitFinished(status.getId());
+        assertEquals(ExportJobState.FAILED, failed.getState());
+        assertEquals(CONVERT_LIST_TO_CSV_EXCEPTION, failed.getErrorMessage());
+        assertFalse(Files.exists(directory.resolve(status.getId() + ".csv.part")));
+    }
+
+    @Test
+    void removeExpiredDeletesJobAndFile() throws Exception {
+        writesCsv(null);
+        exportJobService = newService(0);
+        ExportJobStatus status = exportJobService.submit(PERIOD, "user");
+        awaitFinished(status.getId());
+        Path file = directory.resolve(status.getId() + ".csv");
+        assertTrue(Files.exists(file));
+        exportJobService.removeExpired();
+        assertFalse(Files.exists(file));
+        assertThrows(ExportJobNotFoundException.class, () -> exportJobService.getStatus(status.getId(), "user"));
+    }
+
+    private ExportJobServiceImpl newService(long ttlMinutes) {
+        ExportJobServiceImpl service = new ExportJobServiceImpl(emailService, 1, 4, 10, ttlMinutes, directory.toString());
+        service.init();
+        return service;
+    }
+
+    private void writesCsv(CountDownLatch release) {
+        doAnswer(invocation -> {
+            if (release != null) {
+                release.await(5, TimeUnit.SECONDS);
+            }
+            OutputStream outputStream = invocation.getArgument(1);
+            outputStream.write(CSV.getBytes(StandardCharsets.UTF_8));
+            return null;
+        }).when(emailService).writeEmailsByPeriodAsCsv(eq(PERIOD), any(OutputStream.class));
+    }
+
+    private ExportJobStatus awaitFinished(String id) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        ExportJobStatus status = exportJobService.getStatus(id, "user");
+        while (status.getFinishedAt() == null && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+            status = exportJobService.getStatus(id, "user");
+        }
+        return status;
+    }
+}
@@ -0,0 +1,136 @@
+package org.turkovaleksey.emailservice.services.impl.unit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.turkovaleksey.emailservice.repositories.api.IEmailRepository;
+import org.turkovaleksey.emailservice.repositories.api.IEmailRowCallback;
+import org.turkovaleksey.emailservice.repositories.model.Email;
+import org.turkovaleksey.emailservice.services.dto.MailCreatePeriod;
+import org.turkovaleksey.emailservice.services.events.EmailsSavedEvent;
+import org.turkovaleksey.emailservice.services.impl.ExportSegmentStore;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ExportSegmentStoreTest {
+    private static final String HEADER = "\"Date\",\"Email\"\n";
+    @Mock
+    private IEmailRepository emailRepository;
+    @TempDir
+    private Path directory;
+    private final List<Email> emails = new ArrayList<>();
+    private ExportSegmentStore exportSegmentStore;
+    private Runnable afterStream = () -> {
+    };
+
+    @BeforeEach
+    void setUp() throws IOException {
+        emails.add(new Email(LocalDate.of(2023, 1, 1), "email1@example.com"));
+        emails.add(new Email(LocalDate.of(2023, 1, 1), "email2@example.com"));
+        emails.add(new Email(LocalDate.of(2023, 1, 3), "email3@example.com"));
+        emails.add(new Email(LocalDate.now(), "today@example.com"));
+        doAnswer(invocation -> {
+            MailCreatePeriod period = invocation.getArgument(0);
+            IEmailRowCallback callback = invocation.getArgument(1);
+            for (Email email : List.copyOf(emails)) {
+                if (!email.getCreateDate().isBefore(period.getStart()) && !email.getCreateDate().isAfter(period.getEnd())) {
+                    callback.processRow(0, email.getCreateDate(), email.getEmail());
+                }
+            }
+            afterStream.run();
+            return null;
+        }).when(emailRepository).streamAllByPeriod(any(), any());
+        when(emailRepository.findMinCreateDate()).thenReturn(LocalDate.of(2023, 1, 1));
+        Files.writeString(directory.resolve("emails_2023-01-03.csv"), "\"2023-01-03\",\"stale@example.com\"\n");
+        exportSegmentStore = new ExportSegmentStore(emailRepository, true, directory.toString());
+        exportSegmentStore.init();
+    }
+
+    @Test
+    void writeToBuildsSegmentsOnce() throws IOException {
+        MailCreatePeriod january = new MailCreatePeriod(LocalDate.of(2023, 1, 1), LocalDate.of(2023, 1, 4));
+        String expected = HEADER
+                + "\"2023-01-01\",\"email1@example.com\"\n"
+                + "\"2023-01-01\",\"email2@example.com\"\n"
+                + "\"2023-01-03\",\"email3@example.com\"\n";
+        assertEquals(expected, write(january));
+        assertEquals(expected, write(january));
+        verify(emailRepository, times(1)).streamAllByPeriod(any(), any());
+        assertEquals(0, Files.size(directory.resolve("emails_2023-01-02.csv")));
+    }
+
+    @Test
+    void writeToSkipsDaysBeforeFirstEmail() throws IOException {
+        MailCreatePeriod period = new MailCreatePeriod(LocalDate.of(1900, 1, 1), LocalDate.of(2023, 1, 3));
+        assertEquals(HEADER
+                + "\"2023-01-01\",\"email1@example.com\"\n"
+                + "\"2023-01-01\",\"email2@example.com\"\n"
+                + "\"2023-01-03\",\"email3@example.com\"\n", write(period));
+        try (Stream<Path> files = Files.list(directory)) {
+            assertEquals(3, files.count());
+        }
+    }
+
+    @Test
+    void writeToEncodesTodayLive() {
+        MailCreatePeriod period = new MailCreatePeriod(LocalDate.of(2023, 1, 3), LocalDate.now());
+        String output = write(period);
+        assertTrue(output.startsWith(HEADER + "\"2023-01-03\",\"email3@example.com\"\n"));
+        assertTrue(output.endsWith("\"" + LocalDate.now() + "\",\"today@example.com\"\n"));
+        assertFalse(Files.exists(directory.resolve("emails_" + LocalDate.now() + ".csv")));
+    }
+
+    @Test
+    void onEmailsSavedDeletesSegment() {
+        MailCreatePeriod period = new MailCreatePeriod(LocalDate.of(2023, 1, 3), LocalDate.of(2023, 1, 3));
+        write(period);
+        Email late = new Email(LocalDate.of(2023, 1, 3), "late@example.com");
+        emails.add(late);
+        exportSegmentStore.onEmailsSaved(new EmailsSavedEvent(List.of(late)));
+        assertEquals(HEADER + "\"2023-01-03\",\"email3@example.com\"\n\"2023-01-03\",\"late@example.com\"\n", write(period));
+    }
+
+    @Test
+    void onEmailsSavedWhileBuildingDiscardsSegment() {
+        MailCreatePeriod period = new MailCreatePeriod(LocalDate.of(2023, 1, 3), LocalDate.of(2023, 1, 3));
+        Email late = new Email(LocalDate.of(2023, 1, 3), "late@example.com");
+        AtomicBoolean saved = new AtomicBoolean();
+        afterStream = () -> {
+            if (saved.compareAndSet(false, true)) {
+                emails.add(late);
+                exportSegmentStore.onEmailsSaved(new EmailsSavedEvent(List.of(late)));
+            }
+        };
+        write(period);
+        assertEquals(HEADER + "\"2023-01-03\",\"email3@example.com\"\n\"2023-01-03\",\"late@example.com\"\n", write(period));
+        verify(emailRepository, times(2)).streamAllByPeriod(any(), any());
+    }
+
+    private String write(MailCreatePeriod period) {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        exportSegmentStore.writeTo(period, outputStream);
+        return outputStream.toString(StandardCharsets.UTF_8);
+    }
+}
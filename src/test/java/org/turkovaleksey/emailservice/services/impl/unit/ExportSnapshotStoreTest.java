@@ -0,0 +1,103 @@
+package org.turkovaleksey.emailservice.services.impl.unit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.turkovaleksey.emailservice.services.impl.ExportSnapshotStore;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ExportSnapshotStoreTest {
+    private static final String CSV = "\"Date\",\"Email\"\n\"2023-01-01\",\"email1@example.com\"\n";
+    @TempDir
+    private Path directory;
+    private ExportSnapshotStore exportSnapshotStore;
+
+    @BeforeEach
+    void setUp() {
+        exportSnapshotStore = new ExportSnapshotStore(true, directory.toString(), 60, 2);
+        exportSnapshotStore.init();
+    }
+
+    @Test
+    void recordKeepsBytesSentToClient() throws IOException {
+        ByteArrayOutputStream client = new ByteArrayOutputStream();
+        assertNull(exportSnapshotStore.find("2-2"));
+        try (ExportSnapshotStore.Recorder recorder = exportSnapshotStore.record("2-2", client)) {
+            recorder.write(CSV.getBytes(StandardCharsets.UTF_8));
+            recorder.publish();
+        }
+        assertEquals(CSV, client.toString(StandardCharsets.UTF_8));
+        assertEquals(CSV, Files.readString(exportSnapshotStore.find("2-2"), StandardCharsets.UTF_8));
+        assertNull(exportSnapshotStore.record("2-2", client));
+    }
+
+    @Test
+    void recordCompletesSnapshotWhenClientGone() throws IOException {
+        OutputStream client = new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                throw new IOException("Broken pipe");
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                throw new IOException("Broken pipe");
+            }
+        };
+        try (ExportSnapshotStore.Recorder recorder = exportSnapshotStore.record("2-2", client)) {
+            recorder.write(CSV.getBytes(StandardCharsets.UTF_8));
+            assertThrows(IOException.class, recorder::publish);
+        }
+        assertEquals(CSV, Files.readString(exportSnapshotStore.find("2-2"), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void recordDiscardsUnpublishedSnapshot() throws IOException {
+        try (ExportSnapshotStore.Recorder recorder = exportSnapshotStore.record("2-2", new ByteArrayOutputStream())) {
+            recorder.write(CSV.getBytes(StandardCharsets.UTF_8));
+        }
+        assertNull(exportSnapshotStore.find("2-2"));
+        try (Stream<Path> files = Files.list(directory)) {
+            assertEquals(0, files.count());
+        }
+    }
+
+    @Test
+    void recordDeletesExpiredAndOldestSnapshots() throws IOException {
+        record("0-1");
+        Path expired = exportSnapshotStore.find("0-1");
+        Files.setLastModifiedTime(expired, FileTime.fromMillis(System.currentTimeMillis() - TimeUnit.MINUTES.toMillis(61)));
+        assertNull(exportSnapshotStore.find("0-1"));
+        record("0-2");
+        assertFalse(Files.exists(expired));
+        Files.setLastModifiedTime(exportSnapshotStore.find("0-2"), FileTime.fromMillis(System.currentTimeMillis() - 2000));
+        record("0-3");
+        Files.setLastModifiedTime(exportSnapshotStore.find("0-3"), FileTime.fromMillis(System.currentTimeMillis() - 1000));
+        record("0-4");
+        assertNull(exportSnapshotStore.find("0-2"));
+        assertNotNull(exportSnapshotStore.find("0-3"));
+        assertNotNull(exportSnapshotStore.find("0-4"));
+    }
+
+    private void record(String key) throws IOException {
+        try (ExportSnapshotStore.Recorder recorder = exportSnapshotStore.record(key, new ByteArrayOutputStream())) {
+            recorder.write(CSV.getBytes(StandardCharsets.UTF_8));
+            recorder.publish();
+        }
+    }
+}
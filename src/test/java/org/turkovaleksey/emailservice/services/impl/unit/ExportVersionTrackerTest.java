@@ -0,0 +1,50 @@
+package org.turkovaleksey.emailservice.services.impl.unit;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.turkovaleksey.emailservice.repositories.api.IEmailRepository;
+import org.turkovaleksey.emailservice.repositories.model.Email;
+import org.turkovaleksey.emailservice.services.dto.ExportVersion;
+import org.turkovaleksey.emailservice.services.events.EmailsSavedEvent;
+import org.turkovaleksey.emailservice.services.impl.ExportVersionTracker;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ExportVersionTrackerTest {
+    @Mock
+    private IEmailRepository emailRepository;
+
+    @Test
+    void onEmailsSavedChangesETag() {
+        when(emailRepository.count()).thenReturn(5L);
+        ExportVersionTracker tracker = new ExportVersionTracker(emailRepository);
+        tracker.warmUp();
+        ExportVersion before = tracker.getVersion();
+        assertEquals("\"5\"", before.getETag(""));
+        tracker.onEmailsSaved(new EmailsSavedEvent(List.of()));
+        assertEquals(before.getETag(""), tracker.getVersion().getETag(""));
+        tracker.onEmailsSaved(new EmailsSavedEvent(List.of(
+                new Email(LocalDate.now(), "email1@example.com"),
+                new Email(LocalDate.now(), "email2@example.com"))));
+        assertNotEquals(before.getETag(""), tracker.getVersion().getETag(""));
+        assertEquals(7, tracker.getVersion().getRowCount());
+    }
+
+    @Test
+    void getVersionWhenWarmUpFailed() {
+        when(emailRepository.count()).thenThrow(new IllegalStateException("db is down"));
+        ExportVersionTracker tracker = new ExportVersionTracker(emailRepository);
+        tracker.warmUp();
+        tracker.onEmailsSaved(new EmailsSavedEvent(List.of(new Email(LocalDate.now(), "email1@example.com"))));
+        assertNull(tracker.getVersion());
+    }
+}
@@ -0,0 +1,43 @@
+package org.turkovaleksey.emailservice.services.impl.unit;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.turkovaleksey.emailservice.repositories.api.IEmailRepository;
+import org.turkovaleksey.emailservice.services.impl.HighWaterMarkTracker;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class HighWaterMarkTrackerTest {
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+    @Mock
+    private IEmailRepository emailRepository;
+
+    @Test
+    void getHighWaterMarkLagsBehindMaxId() {
+        HighWaterMarkTracker tracker = new HighWaterMarkTracker(emailRepository, 10_000);
+        when(emailRepository.findMaxId()).thenReturn(10L);
+        assertEquals(0, tracker.getHighWaterMark(0));
+        when(emailRepository.findMaxId()).thenReturn(20L);
+        assertEquals(0, tracker.getHighWaterMark(5 * SECOND));
+        assertEquals(10, tracker.getHighWaterMark(10 * SECOND));
+        when(emailRepository.findMaxId()).thenReturn(30L);
+        assertEquals(10, tracker.getHighWaterMark(14 * SECOND));
+        assertEquals(20, tracker.getHighWaterMark(15 * SECOND));
+        assertEquals(30, tracker.getHighWaterMark(24 * SECOND));
+    }
+
+    @Test
+    void getHighWaterMarkKeepsTimeMaxIdWasFirstSeen() {
+        HighWaterMarkTracker tracker = new HighWaterMarkTracker(emailRepository, 10_000);
+        when(emailRepository.findMaxId()).thenReturn(10L);
+        assertEquals(0, tracker.getHighWaterMark(0));
+        assertEquals(0, tracker.getHighWaterMark(9 * SECOND));
+        assertEquals(10, tracker.getHighWaterMark(10 * SECOND));
+    }
+}
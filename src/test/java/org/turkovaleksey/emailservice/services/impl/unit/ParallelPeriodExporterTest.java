@@ -0,0 +1,152 @@
+package org.turkovaleksey.emailservice.services.impl.unit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.turkovaleksey.emailservice.repositories.api.IEmailRepository;
+import org.turkovaleksey.emailservice.repositories.api.IEmailRowCallback;
+import org.turkovaleksey.emailservice.services.dto.MailCreatePeriod;
+import org.turkovaleksey.emailservice.services.exceptions.ConvertEmailListToCSVException;
+import org.turkovaleksey.emailservice.services.impl.ParallelPeriodExporter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+
+@ExtendWith(MockitoExtension.class)
+class ParallelPeriodExporterTest {
+    private static final String HEADER = "\"Date\",\"Email\"\n";
+    private static final LocalDate START = LocalDate.of(2023, 1, 1);
+    @Mock
+    private IEmailRepository emailRepository;
+    @TempDir
+    private Path directory;
+    private ParallelPeriodExporter parallelPeriodExporter;
+
+    @AfterEach
+    void tearDown() {
+        parallelPeriodExporter.shutdown();
+    }
+
+    @Test
+    void isPartitionedForPeriodsLongerThanOnePartition() {
+        parallelPeriodExporter = newExporter(true, 10, 2, 2, 1024);
+        assertFalse(parallelPeriodExporter.isPartitioned(new MailCreatePeriod(START, START.plusDays(9))));
+        assertTrue(parallelPeriodExporter.isPartitioned(new MailCreatePeriod(START, START.plusDays(10))));
+        assertFalse(newExporter(false, 10, 2, 2, 1024)
+                .isPartitioned(new MailCreatePeriod(START, START.plusDays(100))));
+    }
+
+    @Test
+    void writeToKeepsDateOrderWhenLaterPartitionsFinishFirst() throws IOException {
+        CountDownLatch lastPartitionRead = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            MailCreatePeriod period = invocation.getArgument(0);
+            IEmailRowCallback callback = invocation.getArgument(1);
+            if (period.getStart().equals(START)) {
+                lastPartitionRead.await(5, TimeUnit.SECONDS);
+            }
+            for (LocalDate day = period.getStart(); !day.isAfter(period.getEnd()); day = day.plusDays(1)) {
+                callback.processRow(0, day, day + "@example.com");
+            }
+            if (period.getEnd().equals(START.plusDays(4))) {
+                lastPartitionRead.countDown();
+            }
+            return null;
+        }).when(emailRepository).streamAllByPeriod(any(), any());
+        parallelPeriodExporter = newExporter(true, 2, 3, 3, 40);
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        long rows = parallelPeriodExporter.writeTo(new MailCreatePeriod(START, START.plusDays(4)), outputStream);
+        StringBuilder expected = new StringBuilder(HEADER);
+        for (int i = 0; i < 5; i++) {
+            LocalDate day = START.plusDays(i);
+            expected.append('"').append(day).append("\",\"").append(day).append("@example.com\"\n");
+        }
+        assertEquals(5, rows);
+        assertEquals(expected.toString(), outputStream.toString(StandardCharsets.UTF_8));
+        assertEquals(0, spilledFiles());
+    }
+
+    @Test
+    void writeToRethrowsPartitionFailure() {
+        doAnswer(invocation -> {
+            throw new ConvertEmailListToCSVException("failed");
+        }).when(emailRepository).streamAllByPeriod(any(), any());
+        parallelPeriodExporter = newExporter(true, 2, 2, 2, 1024);
+        assertThrows(ConvertEmailListToCSVException.class,
+                () -> parallelPeriodExporter.writeTo(new MailCreatePeriod(START, START.plusDays(4)), new ByteArrayOutputStream()));
+    }
+
+    @Test
+    void writeToStopsReadingWhenClientAborts() throws Exception {
+        CountDownLatch readStarted = new CountDownLatch(1);
+        CountDownLatch readStopped = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            MailCreatePeriod period = invocation.getArgument(0);
+            IEmailRowCallback callback = invocation.getArgument(1);
+            if (period.getStart().equals(START)) {
+                readStarted.await(5, TimeUnit.SECONDS);
+                callback.processRow(0, START, "first@example.com");
+                return null;
+            }
+            readStarted.countDown();
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            try {
+                while (System.nanoTime() < deadline) {
+                    callback.processRow(0, period.getStart(), "endless@example.com");
+                }
+            } finally {
+                readStopped.countDown();
+            }
+            return null;
+        }).when(emailRepository).streamAllByPeriod(any(), any());
+        parallelPeriodExporter = newExporter(true, 2, 2, 2, 64);
+        OutputStream abortedStream = new ByteArrayOutputStream() {
+            @Override
+            public void write(byte[] bytes, int offset, int length) {
+                if (size() > 0) {
+                    throw new IllegalStateException("client aborted");
+                }
+                super.write(bytes, offset, length);
+            }
+        };
+        assertThrows(IllegalStateException.class,
+                () -> parallelPeriodExporter.writeTo(new MailCreatePeriod(START, START.plusDays(4)), abortedStream));
+        assertTrue(readStopped.await(5, TimeUnit.SECONDS));
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (spilledFiles() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(0, spilledFiles());
+    }
+
+    private ParallelPeriodExporter newExporter(boolean enabled, int partitionDays, int parallelism, int threads, int spillThreshold) {
+        ParallelPeriodExporter exporter = new ParallelPeriodExporter(emailRepository, enabled, partitionDays, parallelism,
+                threads, 4, spillThreshold, directory.toString());
+        exporter.init();
+        return exporter;
+    }
+
+    private long spilledFiles() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.count();
+        }
+    }
+}
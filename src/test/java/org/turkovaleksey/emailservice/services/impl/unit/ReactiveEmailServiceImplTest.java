@@ -0,0 +1,93 @@
+package org.turkovaleksey.emailservice.services.impl.unit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.turkovaleksey.emailservice.repositories.api.IReactiveEmailRepository;
+import org.turkovaleksey.emailservice.repositories.model.Email;
+import org.turkovaleksey.emailservice.services.dto.MailCreatePeriod;
+import org.turkovaleksey.emailservice.services.events.EmailsSavedEvent;
+import org.turkovaleksey.emailservice.services.exceptions.EmailAlreadyExistsException;
+import org.turkovaleksey.emailservice.services.exceptions.IncorrectPeriodException;
+import org.turkovaleksey.emailservice.services.impl.EmailBloomFilter;
+import org.turkovaleksey.emailservice.services.impl.ReactiveEmailServiceImpl;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ReactiveEmailServiceImplTest {
+    @Mock
+    private IReactiveEmailRepository emailRepository;
+    @Mock
+    private EmailBloomFilter duplicateFilter;
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+    private ReactiveEmailServiceImpl emailService;
+
+    @BeforeEach
+    void setUp() {
+        emailService = new ReactiveEmailServiceImpl(emailRepository, duplicateFilter, eventPublisher, 2);
+    }
+
+    @Test
+    void exportEmailsAsCsvInChunks() {
+        when(emailRepository.streamAll()).thenReturn(Flux.just(
+                new Email(LocalDate.of(2023, 1, 1), "email1@example.com"),
+                new Email(LocalDate.of(2023, 1, 2), "email2@example.com"),
+                new Email(LocalDate.of(2023, 1, 3), "email3@example.com")));
+        List<DataBuffer> chunks = emailService.exportEmailsAsCsv().collectList().block();
+        assertEquals(3, chunks.size());
+        String csv = chunks.stream().map(ReactiveEmailServiceImplTest::toString).reduce("", String::concat);
+        assertEquals("\"Date\",\"Email\"\n"
+                + "\"2023-01-01\",\"email1@example.com\"\n"
+                + "\"2023-01-02\",\"email2@example.com\"\n"
+                + "\"2023-01-03\",\"email3@example.com\"\n", csv);
+    }
+
+    @Test
+    void exportEmailsByPeriodAsCsvWithIncorrectPeriod() {
+        MailCreatePeriod period = new MailCreatePeriod(LocalDate.of(2023, 2, 1), LocalDate.of(2023, 1, 1));
+        assertThrows(IncorrectPeriodException.class, () -> emailService.exportEmailsByPeriodAsCsv(period));
+        verify(emailRepository, never()).streamAllByPeriod(any());
+    }
+
+    @Test
+    void saveSkipsLookupForNewEmail() {
+        when(duplicateFilter.mightContain("email@example.com")).thenReturn(false);
+        when(emailRepository.save(any())).thenReturn(Mono.just(1L));
+        emailService.save("email@example.com").block();
+        verify(emailRepository, never()).existsByEmail(any());
+        verify(eventPublisher).publishEvent(any(EmailsSavedEvent.class));
+    }
+
+    @Test
+    void saveWhenEmailAlreadyExists() {
+        when(duplicateFilter.mightContain("email@example.com")).thenReturn(true);
+        when(emailRepository.existsByEmail("email@example.com")).thenReturn(Mono.just(true));
+        assertThrows(EmailAlreadyExistsException.class, () -> emailService.save("email@example.com").block());
+        verify(emailRepository, never()).save(any());
+        verify(eventPublisher, never()).publishEvent(any());
+    }
+
+    private static String toString(DataBuffer dataBuffer) {
+        String value = dataBuffer.toString(StandardCharsets.UTF_8);
+        DataBufferUtils.release(dataBuffer);
+        return value;
+    }
+}